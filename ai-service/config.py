@@ -18,6 +18,14 @@ class Config:
     TEXT_MODEL_NAME: str = os.getenv("TEXT_MODEL_NAME", "hfl/chinese-roberta-wwm-ext")
     MAX_TEXT_LENGTH: int = int(os.getenv("MAX_TEXT_LENGTH", "512"))
     CONFIDENCE_THRESHOLD: float = float(os.getenv("CONFIDENCE_THRESHOLD", "0.7"))
+    MAX_BATCH_SIZE: int = int(os.getenv("MAX_BATCH_SIZE", "64"))
+    
+    # Consul registration, skipped when CONSUL_HOST is not set
+    CONSUL_HOST: Optional[str] = os.getenv("CONSUL_HOST")
+    CONSUL_PORT: int = int(os.getenv("CONSUL_PORT", "8500"))
+    SERVICE_NAME: str = os.getenv("SERVICE_NAME", "ai-service")
+    # Address other services reach this instance on; defaults to the container's own IP
+    SERVICE_ADDRESS: Optional[str] = os.getenv("SERVICE_ADDRESS")
     
     @classmethod
     def is_openai_available(cls) -> bool:
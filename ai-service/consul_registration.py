@@ -0,0 +1,62 @@
+"""
+Registers this instance in Consul so the content service can discover every
+ai-service instance, e.g. to hedge slow calls to a second one. Uses the Consul
+agent HTTP API with an HTTP health check on /health; an instance that stops
+answering is deregistered by Consul after a minute.
+"""
+import json
+import logging
+import socket
+import urllib.request
+
+from config import config
+
+logger = logging.getLogger(__name__)
+
+_service_id = None
+
+
+def _agent_call(path, body=None):
+    url = f"http://{config.CONSUL_HOST}:{config.CONSUL_PORT}/v1/agent/service/{path}"
+    data = json.dumps(body).encode("utf-8") if body is not None else None
+    request = urllib.request.Request(url, data=data, method="PUT")
+    request.add_header("Content-Type", "application/json")
+    with urllib.request.urlopen(request, timeout=5):
+        pass
+
+
+def register_service():
+    """Register with the local Consul agent; failures are logged, the service runs without it"""
+    global _service_id
+    if not config.CONSUL_HOST:
+        logger.info("CONSUL_HOST not set, not registering in Consul")
+        return
+    address = config.SERVICE_ADDRESS or socket.gethostbyname(socket.gethostname())
+    service_id = f"{config.SERVICE_NAME}-{address}-{config.PORT}"
+    try:
+        _agent_call("register", {
+            "ID": service_id,
+            "Name": config.SERVICE_NAME,
+            "Address": address,
+            "Port": config.PORT,
+            "Check": {
+                "HTTP": f"http://{address}:{config.PORT}/health",
+                "Interval": "10s",
+                "Timeout": "5s",
+                "DeregisterCriticalServiceAfter": "1m",
+            },
+        })
+        _service_id = service_id
+        logger.info(f"Registered {service_id} in Consul at {config.CONSUL_HOST}:{config.CONSUL_PORT}")
+    except Exception as e:
+        logger.error(f"Consul registration of {service_id} failed: {e}")
+
+
+def deregister_service():
+    if _service_id is None:
+        return
+    try:
+        _agent_call(f"deregister/{_service_id}")
+        logger.info(f"Deregistered {_service_id} from Consul")
+    except Exception as e:
+        logger.warning(f"Consul deregistration of {_service_id} failed: {e}")
@@ -0,0 +1,168 @@
+"""
+Throughput and latency load test for text audits.
+
+Modes:
+    direct   - call the AI service (or stub_server.py) directly, one item per call
+    batch    - call the AI service directly, --batch-size items per /ai/text/audit:batch call
+    content  - call the content service /api/content/audit/text, which micro-batches internally
+    overload - content mode against stub_server.py, which is made slow and failing after a warm-up;
+               checks that the content service's limiter and circuit breaker turn calls away
+               quickly (degraded verdicts) instead of queueing them, and exits 1 if they do not
+
+Every request uses distinct content so the verdict cache does not hide AI calls.
+Only the standard library is used.
+
+Examples:
+    python3 loadtest.py --mode direct --requests 500 --concurrency 64
+    python3 loadtest.py --mode batch --batch-size 16 --requests 500 --concurrency 64
+    python3 loadtest.py --mode content --url http://localhost:8082 --requests 500 --concurrency 64
+    python3 loadtest.py --mode overload --url http://localhost:8082 --stub-url http://localhost:8083 --requests 500
+"""
+import argparse
+import json
+import statistics
+import sys
+import time
+import urllib.request
+import uuid
+from concurrent.futures import ThreadPoolExecutor
+
+
+def post(url, body, headers=None):
+    data = json.dumps(body).encode("utf-8")
+    request = urllib.request.Request(url, data=data, method="POST")
+    request.add_header("Content-Type", "application/json")
+    for name, value in (headers or {}).items():
+        request.add_header(name, value)
+    with urllib.request.urlopen(request, timeout=180) as response:
+        return json.loads(response.read())
+
+
+def get(url):
+    with urllib.request.urlopen(url, timeout=30) as response:
+        return json.loads(response.read())
+
+
+def unique_content(i):
+    return f"Load test advertisement {i} {uuid.uuid4().hex}: limited offer on running shoes"
+
+
+def percentile(values, p):
+    ordered = sorted(values)
+    index = min(len(ordered) - 1, max(0, int(round(p / 100.0 * len(ordered))) - 1))
+    return ordered[index]
+
+
+def run(calls, concurrency, one_call):
+    started = time.perf_counter()
+    with ThreadPoolExecutor(max_workers=concurrency) as pool:
+        outcomes = list(pool.map(one_call, range(calls)))
+    return outcomes, time.perf_counter() - started
+
+
+def print_latencies(label, latencies):
+    if latencies:
+        print(f"{label} ms: p50={percentile(latencies, 50):.0f} p95={percentile(latencies, 95):.0f} "
+              f"p99={percentile(latencies, 99):.0f} mean={statistics.mean(latencies):.0f}")
+
+
+def overload(args, headers):
+    """Warm up against a healthy stub, then make it slow and failing and count how calls end"""
+    def one_call(i):
+        # Returns (latency seconds, degraded, failed)
+        start = time.perf_counter()
+        try:
+            body = post(args.url + "/api/content/audit/text", {"content": unique_content(i)}, headers)
+            degraded = bool((body.get("data") or {}).get("degraded"))
+            return time.perf_counter() - start, degraded, False
+        except Exception as e:
+            print(f"call {i} failed: {e}")
+            return time.perf_counter() - start, False, True
+
+    healthy = get(args.stub_url + "/stub/config")
+    run(args.warmup, args.concurrency, one_call)
+    print(f"warm-up of {args.warmup} calls done, stub now {args.slow_latency_ms:.0f}ms with fail rate {args.fail_rate}")
+    post(args.stub_url + "/stub/config", {"base_latency_ms": args.slow_latency_ms, "fail_rate": args.fail_rate})
+    try:
+        outcomes, elapsed = run(args.requests, args.concurrency, lambda i: one_call(args.warmup + i))
+    finally:
+        post(args.stub_url + "/stub/config", healthy)
+
+    rejected = [o[0] * 1000 for o in outcomes if o[1]]
+    answered = [o[0] * 1000 for o in outcomes if not o[1] and not o[2]]
+    failures = sum(1 for o in outcomes if o[2])
+    print(f"mode=overload calls={len(outcomes)} answered={len(answered)} rejected={len(rejected)} "
+          f"failures={failures} elapsed={elapsed:.2f}s")
+    print_latencies("answered latency", answered)
+    print_latencies("rejected latency", rejected)
+    for reason in ("limit", "circuit"):
+        try:
+            metric = get(f"{args.url}/actuator/metrics/audit.ai.rejections?tag=reason:{reason}")
+            print(f"audit.ai.rejections{{reason={reason}}}={metric['measurements'][0]['value']:.0f}")
+        except Exception as e:
+            print(f"audit.ai.rejections{{reason={reason}}} unavailable: {e}")
+
+    if not rejected:
+        print("FAIL: no call was turned away while the AI service was slow and failing")
+        return 1
+    if percentile(rejected, 50) > args.max_reject_ms:
+        print(f"FAIL: rejected calls took p50={percentile(rejected, 50):.0f}ms, more than {args.max_reject_ms}ms")
+        return 1
+    print("OK: overload was shed")
+    return 0
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Text audit load test")
+    parser.add_argument("--mode", choices=["direct", "batch", "content", "overload"], default="direct")
+    parser.add_argument("--url", default="http://localhost:8083")
+    parser.add_argument("--requests", type=int, default=500, help="number of items to audit")
+    parser.add_argument("--concurrency", type=int, default=32)
+    parser.add_argument("--batch-size", type=int, default=16)
+    parser.add_argument("--user-id", type=int, default=1, help="user for content mode")
+    parser.add_argument("--stub-url", default="http://localhost:8083", help="stub_server.py for overload mode")
+    parser.add_argument("--warmup", type=int, default=100, help="healthy calls before the stub is slowed down")
+    parser.add_argument("--slow-latency-ms", type=float, default=5000)
+    parser.add_argument("--fail-rate", type=float, default=0.5)
+    parser.add_argument("--max-reject-ms", type=float, default=1000, help="highest acceptable p50 of rejected calls")
+    args = parser.parse_args()
+
+    headers = {}
+    if args.mode in ("content", "overload"):
+        headers["X-User-Info"] = json.dumps({"userId": args.user_id, "username": "loadtest", "role": "USER"})
+    if args.mode == "overload":
+        sys.exit(overload(args, headers))
+
+    def one_call(i):
+        # Returns (latency seconds, items audited, failed)
+        start = time.perf_counter()
+        try:
+            if args.mode == "direct":
+                post(args.url + "/ai/text/audit", {"content": unique_content(i)})
+                items = 1
+            elif args.mode == "batch":
+                batch = [{"content": unique_content(i * args.batch_size + j)} for j in range(args.batch_size)]
+                post(args.url + "/ai/text/audit:batch", {"items": batch})
+                items = len(batch)
+            else:
+                post(args.url + "/api/content/audit/text", {"content": unique_content(i)}, headers)
+                items = 1
+            return time.perf_counter() - start, items, False
+        except Exception as e:
+            print(f"call {i} failed: {e}")
+            return time.perf_counter() - start, 0, True
+
+    calls = args.requests if args.mode != "batch" else max(1, args.requests // args.batch_size)
+    outcomes, elapsed = run(calls, args.concurrency, one_call)
+
+    latencies = [o[0] * 1000 for o in outcomes if not o[2]]
+    items = sum(o[1] for o in outcomes)
+    failures = sum(1 for o in outcomes if o[2])
+
+    print(f"mode={args.mode} calls={calls} items={items} failures={failures} concurrency={args.concurrency}")
+    print(f"elapsed={elapsed:.2f}s throughput={items / elapsed:.1f} items/s")
+    print_latencies("latency per call", latencies)
+
+
+if __name__ == "__main__":
+    main()
@@ -1,4 +1,4 @@
-from fastapi import FastAPI, HTTPException
+from fastapi import FastAPI, HTTPException, Request
 from fastapi.middleware.cors import CORSMiddleware
 from pydantic import BaseModel
 from typing import List, Optional
@@ -15,6 +15,7 @@ import re
 import openai
 import openai
 from config import config
+from consul_registration import register_service, deregister_service
 
 # Configure logging
 logging.basicConfig(level=logging.INFO)
@@ -27,9 +28,10 @@ async def lifespan(app: FastAPI):
     """Lifespan event handler"""
     # Startup
     load_models()
+    register_service()
     yield
     # Shutdown
-    pass
+    deregister_service()
 
 app = FastAPI(
     title="AI Content Audit Service", 
@@ -70,6 +72,13 @@ class AuditResponse(BaseModel):
     categories: List[str]
     status: str  # Add status field for frontend compatibility
 
+class TextBatchAuditRequest(BaseModel):
+    items: List[TextAuditRequest]
+
+class BatchAuditResponse(BaseModel):
+    results: List[Optional[AuditResponse]]
+    errors: List[Optional[str]]  # Per-item error, aligned with results by index
+
 # Global variables to store models
 text_model = None
 text_tokenizer = None
@@ -123,17 +132,10 @@ def preprocess_image(image_bytes):
         logger.error(f"Error preprocessing image: {e}")
         raise HTTPException(status_code=400, detail="Invalid image data")
 
-def openai_text_audit(content: str, template_config: Optional[dict] = None) -> AuditResponse:
-    """OpenAI-based text audit with template configuration support"""
-    try:
-        if not openai_client:
-            raise Exception("OpenAI client not available")
-        
-        # Build dynamic prompt based on template configuration
-        prompt = build_template_aware_prompt(content, template_config)
-        
-        # Use template-specific system prompt if available, otherwise fallback to default
-        system_prompt = """You are a content moderation expert specializing in ad content review. Your task is to analyze content for violations and respond ONLY with valid JSON in this exact format: {"status": "BLOCK/PASS/REVIEW", "is_violation": true/false, "confidence": 0.0-1.0, "reason": "explanation", "categories": ["category1", "category2"]}.
+def resolve_system_prompt(template_config: Optional[dict] = None) -> str:
+    """Resolve the system prompt, preferring the template-specific one"""
+    # Use template-specific system prompt if available, otherwise fallback to default
+    system_prompt = """You are a content moderation expert specializing in ad content review. Your task is to analyze content for violations and respond ONLY with valid JSON in this exact format: {"status": "BLOCK/PASS/REVIEW", "is_violation": true/false, "confidence": 0.0-1.0, "reason": "explanation", "categories": ["category1", "category2"]}.
 
 IMPORTANT CLASSIFICATION GUIDELINES:
 - BLOCK: Clear violations like explicit scams, adult content, illegal activities, or obvious fraud
@@ -148,28 +150,97 @@ IMPORTANT CLASSIFICATION GUIDELINES:
 For categories: Use 'advertising' for legitimate business promotions, 'legitimate_business' for normal commercial content, 'edge_case' for ambiguous content needing review, 'scam' only for clear fraudulent content, 'spam' only for unsolicited mass messages.
 
 When in doubt about whether content is clearly violating or clearly safe, classify as REVIEW."""
-        
-        # Override with template-specific prompt if available
-        if template_config and 'ai_prompt_template' in template_config:
-            ai_prompt_template = template_config['ai_prompt_template']
+    
+    # Override with template-specific prompt if available
+    if template_config and 'ai_prompt_template' in template_config:
+        ai_prompt_template = template_config['ai_prompt_template']
+        
+        # Handle both dict and list formats
+        if isinstance(ai_prompt_template, dict):
+            template_system_prompt = ai_prompt_template.get('system_prompt', '')
+        elif isinstance(ai_prompt_template, list) and len(ai_prompt_template) > 0:
+            # If it's a list, try to get the first item
+            first_item = ai_prompt_template[0]
+            if isinstance(first_item, dict):
+                template_system_prompt = first_item.get('system_prompt', '')
+            else:
+                template_system_prompt = str(first_item)
+        else:
+            template_system_prompt = str(ai_prompt_template)
             
-            # Handle both dict and list formats
-            if isinstance(ai_prompt_template, dict):
-                template_system_prompt = ai_prompt_template.get('system_prompt', '')
-            elif isinstance(ai_prompt_template, list) and len(ai_prompt_template) > 0:
-                # If it's a list, try to get the first item
-                first_item = ai_prompt_template[0]
-                if isinstance(first_item, dict):
-                    template_system_prompt = first_item.get('system_prompt', '')
+        if template_system_prompt:
+            system_prompt = template_system_prompt
+    else:
+        pass
+    
+    return system_prompt
+
+def map_openai_result(result: dict, result_text: str) -> AuditResponse:
+    """Map a parsed OpenAI JSON verdict to AuditResponse"""
+    # Map OpenAI response to our format
+    status = result.get("status", "REVIEW")
+    is_violation = result.get("is_violation", False)
+    
+    # If status is provided, use it to determine violation
+    if status == "BLOCK":
+        is_violation = True
+    elif status == "PASS":
+        is_violation = False
+    # For REVIEW, use the provided is_violation value
+    
+    # Map OpenAI response to standard format with better logic
+    if status == "BLOCK":
+        final_status = "BLOCK"
+    elif status == "PASS":
+        final_status = "PASS"
+    elif status == "REVIEW":
+        final_status = "REVIEW"
+    else:
+        # If no clear status, determine based on content analysis
+        if "misleading" in result_text.lower() or "high-risk" in result_text.lower() or "borderline" in result_text.lower():
+            final_status = "REVIEW"  # Borderline cases should be reviewed
+        elif is_violation:
+            final_status = "BLOCK"   # Clear violations
+        else:
+            final_status = "PASS"    # Safe content
+    
+    # Clean up categories to be more accurate
+    categories = result.get("categories", [])
+    if not is_violation and categories:
+        # For non-violating content, ensure categories are appropriate
+        cleaned_categories = []
+        for cat in categories:
+            cat_lower = cat.lower()
+            if any(spam_word in cat_lower for spam_word in ['spam', 'scam', 'fraud']):
+                # Replace spam-related categories with appropriate ones for legitimate content
+                if 'advertising' in cat_lower or 'promotion' in cat_lower:
+                    cleaned_categories.append('advertising')
+                elif 'business' in cat_lower or 'service' in cat_lower:
+                    cleaned_categories.append('legitimate_business')
                 else:
-                    template_system_prompt = str(first_item)
+                    cleaned_categories.append('advertising')  # Default for legitimate content
             else:
-                template_system_prompt = str(ai_prompt_template)
-                
-            if template_system_prompt:
-                system_prompt = template_system_prompt
-        else:
-            pass
+                cleaned_categories.append(cat)
+        categories = cleaned_categories if cleaned_categories else ['advertising']
+    
+    return AuditResponse(
+        is_violation=is_violation,
+        confidence=result.get("confidence", 0.5),
+        reason=result.get("reason", f"Content analyzed by OpenAI: {status}"),
+        categories=categories,
+        status=final_status  # Restore status field
+    )
+
+def openai_text_audit(content: str, template_config: Optional[dict] = None) -> AuditResponse:
+    """OpenAI-based text audit with template configuration support"""
+    try:
+        if not openai_client:
+            raise Exception("OpenAI client not available")
+        
+        # Build dynamic prompt based on template configuration
+        prompt = build_template_aware_prompt(content, template_config)
+        
+        system_prompt = resolve_system_prompt(template_config)
         
         response = openai_client.chat.completions.create(
             model=config.get_openai_model(),
@@ -202,59 +273,7 @@ When in doubt about whether content is clearly violating or clearly safe, classi
             # Fallback to rule-based audit
             return rule_based_text_audit(content)
         
-        # Map OpenAI response to our format
-        status = result.get("status", "REVIEW")
-        is_violation = result.get("is_violation", False)
-        
-        # If status is provided, use it to determine violation
-        if status == "BLOCK":
-            is_violation = True
-        elif status == "PASS":
-            is_violation = False
-        # For REVIEW, use the provided is_violation value
-        
-        # Map OpenAI response to standard format with better logic
-        if status == "BLOCK":
-            final_status = "BLOCK"
-        elif status == "PASS":
-            final_status = "PASS"
-        elif status == "REVIEW":
-            final_status = "REVIEW"
-        else:
-            # If no clear status, determine based on content analysis
-            if "misleading" in result_text.lower() or "high-risk" in result_text.lower() or "borderline" in result_text.lower():
-                final_status = "REVIEW"  # Borderline cases should be reviewed
-            elif is_violation:
-                final_status = "BLOCK"   # Clear violations
-            else:
-                final_status = "PASS"    # Safe content
-        
-        # Clean up categories to be more accurate
-        categories = result.get("categories", [])
-        if not is_violation and categories:
-            # For non-violating content, ensure categories are appropriate
-            cleaned_categories = []
-            for cat in categories:
-                cat_lower = cat.lower()
-                if any(spam_word in cat_lower for spam_word in ['spam', 'scam', 'fraud']):
-                    # Replace spam-related categories with appropriate ones for legitimate content
-                    if 'advertising' in cat_lower or 'promotion' in cat_lower:
-                        cleaned_categories.append('advertising')
-                    elif 'business' in cat_lower or 'service' in cat_lower:
-                        cleaned_categories.append('legitimate_business')
-                    else:
-                        cleaned_categories.append('advertising')  # Default for legitimate content
-                else:
-                    cleaned_categories.append(cat)
-            categories = cleaned_categories if cleaned_categories else ['advertising']
-        
-        return AuditResponse(
-            is_violation=is_violation,
-            confidence=result.get("confidence", 0.5),
-            reason=result.get("reason", f"Content analyzed by OpenAI: {status}"),
-            categories=categories,
-            status=final_status  # Restore status field
-        )
+        return map_openai_result(result, result_text)
         
     except Exception as e:
         logger.error(f"OpenAI audit error: {e}")
@@ -340,6 +359,81 @@ def model_based_text_audit(content: str) -> AuditResponse:
         # Fallback to rule engine
         return rule_based_text_audit(content)
 
+def openai_text_audit_batch(contents: List[str], template_config: Optional[dict] = None) -> List[AuditResponse]:
+    """OpenAI-based audit of several texts sharing one template, in a single completion"""
+    if len(contents) == 1:
+        return [openai_text_audit(contents[0], template_config)]
+    try:
+        if not openai_client:
+            raise Exception("OpenAI client not available")
+        
+        system_prompt = resolve_system_prompt(template_config)
+        prompt = build_template_aware_prompt("(see the numbered items below)", template_config)
+        prompt += f"\n\nThere are {len(contents)} items. Audit each one independently and respond ONLY with a JSON array of exactly {len(contents)} objects in the same order, each in the format described above.\n"
+        for i, content in enumerate(contents):
+            prompt += f"\nItem {i + 1}:\n\"\"\"\n{content}\n\"\"\"\n"
+        
+        response = openai_client.chat.completions.create(
+            model=config.get_openai_model(),
+            messages=[
+                {"role": "system", "content": system_prompt},
+                {"role": "user", "content": prompt}
+            ],
+            temperature=0.1,
+            max_tokens=300 * len(contents)
+        )
+        
+        result_text = response.choices[0].message.content.strip()
+        
+        import json
+        start_idx = result_text.find('[')
+        end_idx = result_text.rfind(']') + 1
+        if start_idx == -1 or end_idx == 0:
+            raise ValueError("No JSON array found in response")
+        results = json.loads(result_text[start_idx:end_idx])
+        if not isinstance(results, list) or len(results) != len(contents):
+            raise ValueError(f"Expected {len(contents)} verdicts, got {len(results) if isinstance(results, list) else 'none'}")
+        
+        return [map_openai_result(result, json.dumps(result)) for result in results]
+        
+    except Exception as e:
+        # A malformed batch answer must not fail every item, audit them one by one instead
+        logger.error(f"OpenAI batch audit error, falling back to single audits: {e}")
+        return [openai_text_audit(content, template_config) for content in contents]
+
+def model_based_text_audit_batch(contents: List[str]) -> List[AuditResponse]:
+    """Model-based audit of several texts in one forward pass"""
+    try:
+        inputs = text_tokenizer(
+            contents, 
+            return_tensors="pt", 
+            max_length=512, 
+            truncation=True,
+            padding=True
+        )
+        
+        with torch.no_grad():
+            outputs = text_model(**inputs)
+            predictions = torch.nn.functional.softmax(outputs.logits, dim=-1)
+            confidences = torch.max(predictions, dim=-1).values.tolist()
+            predicted_classes = torch.argmax(predictions, dim=-1).tolist()
+        
+        results = []
+        for content, confidence, predicted_class in zip(contents, confidences, predicted_classes):
+            is_violation = predicted_class == 1  # 1 means violation
+            results.append(AuditResponse(
+                is_violation=is_violation,
+                confidence=confidence,
+                reason=get_violation_reason(content) if is_violation else "Content normal",
+                categories=get_violation_categories(content) if is_violation else [],
+                status="BLOCK" if is_violation else "PASS"
+            ))
+        return results
+        
+    except Exception as e:
+        logger.error(f"Model batch inference error: {e}")
+        return [model_based_text_audit(content) for content in contents]
+
 def get_violation_reason(content: str) -> str:
     """Get violation reason"""
     content_lower = content.lower()
@@ -556,6 +650,49 @@ async def audit_text(request: TextAuditRequest):
         logger.error(f"Text audit error: {e}")
         raise HTTPException(status_code=500, detail=str(e))
 
+@app.post("/ai/text/audit:batch", response_model=BatchAuditResponse)
+async def audit_text_batch(request: TextBatchAuditRequest):
+    """Batch text content audit, results are returned in request order"""
+    import json
+    
+    if not request.items:
+        raise HTTPException(status_code=400, detail="Items cannot be empty")
+    if len(request.items) > config.MAX_BATCH_SIZE:
+        raise HTTPException(status_code=400, detail=f"At most {config.MAX_BATCH_SIZE} items per batch")
+    
+    results: List[Optional[AuditResponse]] = [None] * len(request.items)
+    errors: List[Optional[str]] = [None] * len(request.items)
+    
+    # Items sharing a template can go to the model in one call
+    groups = {}
+    for index, item in enumerate(request.items):
+        if not item.content or not item.content.strip():
+            errors[index] = "Content cannot be empty"
+            continue
+        group_key = json.dumps(item.template_config, sort_keys=True, default=str)
+        groups.setdefault(group_key, []).append(index)
+    
+    for indexes in groups.values():
+        template_config = request.items[indexes[0]].template_config
+        contents = [request.items[i].content for i in indexes]
+        try:
+            # Priority: OpenAI > Model > Rule Engine
+            if openai_client and config.is_openai_available():
+                group_results = openai_text_audit_batch(contents, template_config)
+            elif text_model is not None:
+                group_results = model_based_text_audit_batch(contents)
+            else:
+                group_results = [rule_based_text_audit(content) for content in contents]
+            for i, result in zip(indexes, group_results):
+                results[i] = result
+        except Exception as e:
+            logger.error(f"Batch text audit error: {e}")
+            for i in indexes:
+                errors[i] = str(e)
+    
+    logger.info(f"Batch text audit completed: items={len(request.items)}, groups={len(groups)}")
+    return BatchAuditResponse(results=results, errors=errors)
+
 @app.post("/ai/image/audit", response_model=AuditResponse)
 async def audit_image(request: ImageAuditRequest):
     """Image content audit"""
@@ -593,6 +730,22 @@ async def audit_image(request: ImageAuditRequest):
         logger.error(f"Image audit error: {e}")
         raise HTTPException(status_code=500, detail=str(e))
 
+@app.post("/ai/image/audit:binary", response_model=AuditResponse)
+async def audit_image_binary(request: Request):
+    """Image content audit with the raw image bytes as the request body"""
+    image_data = await request.body()
+    if not image_data:
+        raise HTTPException(status_code=400, detail="Image data cannot be empty")
+    try:
+        result = rule_based_image_audit(image_data)
+        logger.info(f"Binary image audit completed: bytes={len(image_data)}, violation={result.is_violation}")
+        return result
+    except HTTPException:
+        raise
+    except Exception as e:
+        logger.error(f"Image audit error: {e}")
+        raise HTTPException(status_code=500, detail=str(e))
+
 @app.get("/ai/models/status")
 async def get_models_status():
     """Get model status"""
@@ -611,4 +764,4 @@ async def get_models_status():
 
 if __name__ == "__main__":
     import uvicorn
-    uvicorn.run(app, host="0.0.0.0", port=8083) 
\ No newline at end of file
+    uvicorn.run(app, host="0.0.0.0", port=config.PORT) 
\ No newline at end of file
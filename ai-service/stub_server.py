@@ -0,0 +1,168 @@
+"""
+Local stub of the AI service for load testing.
+
+Serves the same text/image/batch endpoints as main.py without OpenAI or model
+weights. Each call costs a fixed overhead plus a per-item cost, and only
+STUB_WORKERS calls are processed at the same time, which is roughly how an
+upstream model endpoint behaves. Verdicts are deterministic per content so
+repeated runs are comparable.
+
+Latency and a failure rate (calls answered with 503) can be changed while the
+stub runs with POST /stub/config, e.g. to make the service slow in the middle
+of a load test (loadtest.py --mode overload does this).
+
+Usage:
+    STUB_BASE_LATENCY_MS=200 STUB_ITEM_LATENCY_MS=10 python3 stub_server.py
+    curl -X POST localhost:8083/stub/config -H 'Content-Type: application/json' -d '{"base_latency_ms": 5000}'
+"""
+import asyncio
+import hashlib
+import os
+import random
+from typing import List, Optional
+
+from fastapi import FastAPI, HTTPException, Request
+from pydantic import BaseModel
+
+config = {
+    "base_latency_ms": float(os.getenv("STUB_BASE_LATENCY_MS", "200")),
+    "item_latency_ms": float(os.getenv("STUB_ITEM_LATENCY_MS", "10")),
+    "fail_rate": float(os.getenv("STUB_FAIL_RATE", "0")),
+}
+WORKERS = int(os.getenv("STUB_WORKERS", "8"))
+PORT = int(os.getenv("STUB_PORT", "8083"))
+
+app = FastAPI(title="AI Content Audit Service (stub)")
+
+stats = {"calls": 0, "batch_calls": 0, "items": 0, "failed": 0}
+workers = None
+
+
+class TextAuditRequest(BaseModel):
+    content: str
+    template_config: Optional[dict] = None
+
+
+class TextBatchAuditRequest(BaseModel):
+    items: List[TextAuditRequest]
+
+
+class ImageAuditRequest(BaseModel):
+    image_url: Optional[str] = None
+    image_base64: Optional[str] = None
+    template_config: Optional[dict] = None
+
+
+class StubConfig(BaseModel):
+    base_latency_ms: Optional[float] = None
+    item_latency_ms: Optional[float] = None
+    fail_rate: Optional[float] = None
+
+
+class AuditResponse(BaseModel):
+    is_violation: bool
+    confidence: float
+    reason: str
+    categories: List[str]
+    status: str
+
+
+class BatchAuditResponse(BaseModel):
+    results: List[Optional[AuditResponse]]
+    errors: List[Optional[str]]
+
+
+def verdict(content: str) -> AuditResponse:
+    """Deterministic verdict: about one in ten contents is a violation"""
+    bucket = int(hashlib.sha256(content.encode("utf-8")).hexdigest()[:8], 16) % 10
+    if bucket == 0:
+        return AuditResponse(is_violation=True, confidence=0.95, reason="Stub violation",
+                             categories=["spam"], status="BLOCK")
+    if bucket == 1:
+        return AuditResponse(is_violation=False, confidence=0.6, reason="Stub needs review",
+                             categories=["edge_case"], status="REVIEW")
+    return AuditResponse(is_violation=False, confidence=0.97, reason="Content normal",
+                         categories=[], status="PASS")
+
+
+async def simulate(items: int):
+    global workers
+    if workers is None:
+        workers = asyncio.Semaphore(WORKERS)
+    async with workers:
+        await asyncio.sleep((config["base_latency_ms"] + config["item_latency_ms"] * items) / 1000.0)
+    stats["calls"] += 1
+    stats["items"] += items
+    if random.random() < config["fail_rate"]:
+        stats["failed"] += 1
+        raise HTTPException(status_code=503, detail="Stub failure")
+
+
+@app.get("/health")
+async def health_check():
+    return {"status": "healthy", "service": "ai-audit-service-stub"}
+
+
+@app.get("/stub/stats")
+async def get_stats():
+    return stats
+
+
+@app.get("/stub/config")
+async def get_config():
+    return config
+
+
+@app.post("/stub/config")
+async def set_config(request: StubConfig):
+    for name, value in request.dict(exclude_none=True).items():
+        config[name] = value
+    return config
+
+
+@app.post("/ai/text/audit", response_model=AuditResponse)
+async def audit_text(request: TextAuditRequest):
+    if not request.content or not request.content.strip():
+        raise HTTPException(status_code=400, detail="Content cannot be empty")
+    await simulate(1)
+    return verdict(request.content)
+
+
+@app.post("/ai/text/audit:batch", response_model=BatchAuditResponse)
+async def audit_text_batch(request: TextBatchAuditRequest):
+    if not request.items:
+        raise HTTPException(status_code=400, detail="Items cannot be empty")
+    await simulate(len(request.items))
+    stats["batch_calls"] += 1
+    results, errors = [], []
+    for item in request.items:
+        if not item.content or not item.content.strip():
+            results.append(None)
+            errors.append("Content cannot be empty")
+        else:
+            results.append(verdict(item.content))
+            errors.append(None)
+    return BatchAuditResponse(results=results, errors=errors)
+
+
+@app.post("/ai/image/audit", response_model=AuditResponse)
+async def audit_image(request: ImageAuditRequest):
+    if not request.image_url and not request.image_base64:
+        raise HTTPException(status_code=400, detail="Either image_url or image_base64 must be provided")
+    await simulate(1)
+    return verdict(request.image_base64 or request.image_url)
+
+
+
+@app.post("/ai/image/audit:binary", response_model=AuditResponse)
+async def audit_image_binary(request: Request):
+    image_data = await request.body()
+    if not image_data:
+        raise HTTPException(status_code=400, detail="Image data cannot be empty")
+    await simulate(1)
+    return verdict(hashlib.sha256(image_data).hexdigest())
+
+
+if __name__ == "__main__":
+    import uvicorn
+    uvicorn.run(app, host="0.0.0.0", port=PORT)
@@ -0,0 +1,9 @@
+-- Add the composite index behind cursor-paginated audit history (/api/content/history/cursor)
+-- Pages seek to (created_at, id) of the previous page's last row within one user's records,
+-- so every page is a short range scan of this index instead of an OFFSET scan.
+-- CONCURRENTLY keeps audit_records writable while the index is built; run it outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_audit_records_user_created
+    ON audit_records (user_id, created_at DESC, id DESC);
+
+-- The migration is complete and safe
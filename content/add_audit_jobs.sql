@@ -0,0 +1,44 @@
+-- Add asynchronous audit job tables
+-- Jobs hold progress counters, job items are the durable work queue that workers claim
+-- with FOR UPDATE SKIP LOCKED. Existing data is not affected.
+
+CREATE TABLE IF NOT EXISTS audit_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    user_info TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'CANCELLED')),
+    total_items INTEGER NOT NULL,
+    processed_items INTEGER NOT NULL DEFAULT 0,
+    failed_items INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
+CREATE TABLE IF NOT EXISTS audit_job_items (
+    id BIGSERIAL PRIMARY KEY,
+    job_id BIGINT NOT NULL,
+    item_index INTEGER NOT NULL,
+    item JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'RUNNING', 'DONE', 'ERROR', 'CANCELLED')),
+    result JSONB,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    locked_by VARCHAR(100),
+    locked_until TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (job_id, item_index),
+    FOREIGN KEY (job_id) REFERENCES audit_jobs(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_audit_jobs_user_id ON audit_jobs(user_id);
+-- Keeps the claim query small: finished items drop out of the index
+CREATE INDEX IF NOT EXISTS idx_audit_job_items_claimable ON audit_job_items(id) WHERE status IN ('PENDING', 'RUNNING');
+
+-- Add comments for documentation
+COMMENT ON TABLE audit_jobs IS 'Asynchronous batch audit jobs with progress counters';
+COMMENT ON TABLE audit_job_items IS 'Durable queue of audit job items';
+COMMENT ON COLUMN audit_job_items.locked_until IS 'Worker lease; RUNNING items past this are claimed again';
+
+-- The migration is complete and safe
@@ -0,0 +1,13 @@
+-- Add the blob store reference to audit records
+-- Images and texts above audit.blobs.text-threshold-bytes are kept in the content service's
+-- blob store under the SHA-256 of their bytes; content_blob holds that hash and content_text
+-- only the start of the text. Existing rows keep their inline content.
+-- CONCURRENTLY keeps audit_records writable while the index is built; run it outside a transaction.
+
+ALTER TABLE audit_records ADD COLUMN IF NOT EXISTS content_blob VARCHAR(64);
+
+-- Blob GC looks up which stored hashes are still referenced
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_audit_records_content_blob
+    ON audit_records (content_blob) WHERE content_blob IS NOT NULL;
+
+-- The migration is complete and safe
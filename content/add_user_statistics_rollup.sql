@@ -0,0 +1,28 @@
+-- Turn audit_statistics into a per-user daily rollup
+-- The table was not written by any service before, so its rows are replaced by a
+-- backfill computed from audit_records in one grouped pass.
+-- Run while content-service is stopped, or the records written in between are counted twice.
+
+DELETE FROM audit_statistics;
+
+ALTER TABLE audit_statistics ADD COLUMN user_id BIGINT NOT NULL;
+ALTER TABLE audit_statistics DROP CONSTRAINT IF EXISTS audit_statistics_date_key;
+ALTER TABLE audit_statistics ADD CONSTRAINT audit_statistics_user_id_date_key UNIQUE (user_id, date);
+
+INSERT INTO audit_statistics (user_id, date, total_count, pass_count, reject_count, review_count, text_count, image_count)
+SELECT user_id,
+       DATE(created_at),
+       COUNT(*),
+       COUNT(*) FILTER (WHERE status = 'PASS'),
+       COUNT(*) FILTER (WHERE status = 'REJECT'),
+       COUNT(*) FILTER (WHERE status = 'REVIEW'),
+       COUNT(*) FILTER (WHERE content_type = 'TEXT'),
+       COUNT(*) FILTER (WHERE content_type = 'IMAGE')
+FROM audit_records
+GROUP BY user_id, DATE(created_at);
+
+-- Add comments for documentation
+COMMENT ON TABLE audit_statistics IS 'Per-user daily audit counts, incremented as audit records are written';
+COMMENT ON COLUMN audit_statistics.user_id IS 'Owner of the counted audit records';
+
+-- The migration is complete and safe
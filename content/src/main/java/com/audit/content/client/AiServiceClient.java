@@ -1,18 +1,31 @@
 package com.audit.content.client;
 
+import com.audit.content.config.AiServiceClientConfig;
 import com.audit.content.dto.AiAuditResponse;
+import com.audit.content.dto.AiBatchAuditResponse;
 import com.audit.content.dto.AiImageAuditRequest;
 import com.audit.content.dto.AiTextAuditRequest;
+import com.audit.content.dto.AiTextBatchAuditRequest;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
-@FeignClient(name = "ai-service", url = "${ai.service.url}")
+@FeignClient(name = "ai-service", url = "${ai.service.url}", configuration = AiServiceClientConfig.class)
 public interface AiServiceClient {
     
     @PostMapping("/ai/text/audit")
     AiAuditResponse auditText(@RequestBody AiTextAuditRequest request);
     
+    @PostMapping("/ai/text/audit:batch")
+    AiBatchAuditResponse auditTextBatch(@RequestBody AiTextBatchAuditRequest request);
+    
     @PostMapping("/ai/image/audit")
     AiAuditResponse auditImage(@RequestBody AiImageAuditRequest request);
+    
+    /**
+     * Same as {@link #auditImage} with the raw image bytes as the request body instead of base64 JSON
+     */
+    @PostMapping(value = "/ai/image/audit:binary", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    AiAuditResponse auditImageBinary(@RequestBody byte[] image);
 } 
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.audit.content.client;
+
+import com.audit.content.dto.ApiResponse;
+import com.audit.content.dto.TemplateDefinition;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+@FeignClient(name = "template-service", url = "${template.service.url}")
+public interface TemplateServiceClient {
+    
+    @GetMapping("/api/template/by-template-id/{templateId}")
+    ApiResponse<TemplateDefinition> getTemplate(@RequestHeader("X-User-Info") String userInfo,
+                                                @PathVariable("templateId") String templateId);
+}
@@ -0,0 +1,22 @@
+package com.audit.content.config;
+
+import com.audit.content.service.AiRequestHedger;
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Feign configuration for {@link com.audit.content.client.AiServiceClient} only (deliberately
+ * not a @Configuration, which would make it the default for every Feign client): requests go
+ * through the {@link AiRequestHedger}, on top of the shared pooled client from {@link HttpClientConfig}
+ * wrapped so the hedger can abort losing attempts.
+ */
+public class AiServiceClientConfig {
+
+    @Bean
+    public Client aiServiceFeignClient(AiRequestHedger aiRequestHedger, CloseableHttpClient httpClient) {
+        Client delegate = new ApacheHttpClient(aiRequestHedger.abortable(httpClient));
+        return (request, options) -> aiRequestHedger.execute(delegate, request, options);
+    }
+}
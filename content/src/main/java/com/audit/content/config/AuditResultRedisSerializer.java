@@ -0,0 +1,428 @@
+package com.audit.content.config;
+
+import com.audit.content.dto.AuditResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Redis value serializer with a compact binary encoding for {@link AuditResult}.
+ * Cached verdicts are by far the most numerous values in Redis, and as Jackson JSON each one
+ * carries its field names and a @class header and is decoded reflectively on every hit. Here an
+ * AuditResult is a magic byte, a format version, a bit mask of the fields that are set and the
+ * field values: well-known categories, statuses and content types as small ints, the content hash
+ * as raw bytes and long reasons deflated. Every other value, and every entry that does not start
+ * with the magic byte (such as JSON written before this encoding), goes through Jackson, so both
+ * kinds of entries are read during a rollout. Entries of a newer format version than this replica
+ * knows, and entries that cannot be decoded (corrupt, or with an interned code this replica does
+ * not know), read as null, i.e. as a cache miss, and are counted as "audit.cache.codec.misses".
+ */
+public class AuditResultRedisSerializer implements RedisSerializer<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditResultRedisSerializer.class);
+
+    // Never the first byte of JSON, nor of UTF-8 text
+    static final byte MAGIC = (byte) 0xAC;
+    static final int VERSION = 1;
+
+    // Never reorder or remove: the position of a string is its code in entries already in Redis.
+    // Appending needs a VERSION bump too, so older replicas skip the new entries by version instead
+    // of failing to decode each one.
+    private static final List<String> INTERNED = Arrays.asList(
+            // content types
+            "TEXT", "IMAGE",
+            // statuses
+            "PASS", "REJECT", "REVIEW", "ERROR", "BLOCK",
+            // categories of the AI service and of the local word lists and rules
+            "politics", "porn", "violence", "spam", "advertising", "legitimate_business", "edge_case",
+            "scam", "suspicious", "misleading", "POLITICS", "PORN", "VIOLENCE", "SPAM");
+    private static final Map<String, Integer> CODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < INTERNED.size(); i++) {
+            CODES.put(INTERNED.get(i), i + 1);
+        }
+    }
+
+    // zlib state is costly to set up, so each thread keeps one of each
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private static final TypeReference<List<Map<String, Object>>> RULE_RESULTS = new TypeReference<List<Map<String, Object>>>() {};
+
+    private static final int HAS_CONTENT_HASH = 1;
+    private static final int HEX_CONTENT_HASH = 1 << 1;
+    private static final int HAS_CONTENT_TYPE = 1 << 2;
+    private static final int HAS_VIOLATION = 1 << 3;
+    private static final int VIOLATION = 1 << 4;
+    private static final int HAS_CONFIDENCE = 1 << 5;
+    private static final int HAS_REASON = 1 << 6;
+    private static final int DEFLATED_REASON = 1 << 7;
+    private static final int HAS_CATEGORIES = 1 << 8;
+    private static final int HAS_STATUS = 1 << 9;
+    private static final int HAS_TIMESTAMP = 1 << 10;
+    private static final int HAS_RULE_RESULTS = 1 << 11;
+    private static final int HAS_DERIVED = 1 << 12;
+    private static final int DERIVED = 1 << 13;
+    private static final int HAS_DERIVED_FROM = 1 << 14;
+    private static final int HAS_DEGRADED = 1 << 15;
+    private static final int DEGRADED = 1 << 16;
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean binary;
+    private final int deflateReasonBytes;
+    private final Counter newerVersion;
+    private final Counter unreadable;
+
+    /**
+     * @param binary             write AuditResults in the binary format; when false they are written as JSON,
+     *                           for rolling out next to replicas that cannot read the binary format yet
+     * @param deflateReasonBytes reasons of at least this many UTF-8 bytes are deflated
+     */
+    public AuditResultRedisSerializer(boolean binary, int deflateReasonBytes, MeterRegistry meterRegistry) {
+        this.binary = binary;
+        this.deflateReasonBytes = deflateReasonBytes;
+        newerVersion = Counter.builder("audit.cache.codec.misses").tag("reason", "newer-version").register(meterRegistry);
+        unreadable = Counter.builder("audit.cache.codec.misses").tag("reason", "unreadable").register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (binary && value instanceof AuditResult) {
+            return encode((AuditResult) value);
+        }
+        return json.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        try {
+            if (bytes != null && bytes.length > 0 && bytes[0] == MAGIC) {
+                return decode(bytes);
+            }
+            return json.deserialize(bytes);
+        } catch (SerializationException e) {
+            // The verdict is audited again and the entry overwritten, rather than every audit of it failing
+            unreadable.increment();
+            log.warn("[AuditResultRedisSerializer] Unreadable cache entry, treated as a miss: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    byte[] encode(AuditResult result) {
+        Writer out = new Writer();
+        out.buffer.write(MAGIC);
+        out.buffer.write(VERSION);
+
+        byte[] hash = hexBytes(result.getContentHash());
+        byte[] reason = result.getReason() != null ? result.getReason().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] deflatedReason = reason != null && reason.length >= deflateReasonBytes ? deflate(reason) : null;
+        int flags = 0;
+        flags |= result.getContentHash() != null ? HAS_CONTENT_HASH : 0;
+        flags |= hash != null ? HEX_CONTENT_HASH : 0;
+        flags |= result.getContentType() != null ? HAS_CONTENT_TYPE : 0;
+        flags |= result.getIsViolation() != null ? HAS_VIOLATION : 0;
+        flags |= Boolean.TRUE.equals(result.getIsViolation()) ? VIOLATION : 0;
+        flags |= result.getConfidence() != null ? HAS_CONFIDENCE : 0;
+        flags |= reason != null ? HAS_REASON : 0;
+        flags |= deflatedReason != null ? DEFLATED_REASON : 0;
+        flags |= result.getCategories() != null ? HAS_CATEGORIES : 0;
+        flags |= result.getStatus() != null ? HAS_STATUS : 0;
+        flags |= result.getTimestamp() != null ? HAS_TIMESTAMP : 0;
+        flags |= result.getRuleResults() != null ? HAS_RULE_RESULTS : 0;
+        flags |= result.getDerived() != null ? HAS_DERIVED : 0;
+        flags |= Boolean.TRUE.equals(result.getDerived()) ? DERIVED : 0;
+        flags |= result.getDerivedFrom() != null ? HAS_DERIVED_FROM : 0;
+        flags |= result.getDegraded() != null ? HAS_DEGRADED : 0;
+        flags |= Boolean.TRUE.equals(result.getDegraded()) ? DEGRADED : 0;
+        out.varint(flags);
+
+        if (hash != null) {
+            out.buffer.write(hash, 0, hash.length);
+        } else if (result.getContentHash() != null) {
+            out.string(result.getContentHash());
+        }
+        if (result.getContentType() != null) {
+            out.interned(result.getContentType());
+        }
+        if (result.getConfidence() != null) {
+            out.fixed64(Double.doubleToLongBits(result.getConfidence()));
+        }
+        if (deflatedReason != null) {
+            out.varint(reason.length);
+            out.bytes(deflatedReason);
+        } else if (reason != null) {
+            out.bytes(reason);
+        }
+        if (result.getCategories() != null) {
+            out.varint(result.getCategories().size());
+            for (String category : result.getCategories()) {
+                out.interned(category);
+            }
+        }
+        if (result.getStatus() != null) {
+            out.interned(result.getStatus());
+        }
+        if (result.getTimestamp() != null) {
+            out.varint(result.getTimestamp());
+        }
+        if (result.getRuleResults() != null) {
+            try {
+                out.bytes(objectMapper.writeValueAsBytes(result.getRuleResults()));
+            } catch (IOException e) {
+                throw new SerializationException("Could not write rule results", e);
+            }
+        }
+        if (result.getDerivedFrom() != null) {
+            out.string(result.getDerivedFrom());
+        }
+        return out.buffer.toByteArray();
+    }
+
+    AuditResult decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        in.position = 1;
+        try {
+            int version = in.next();
+            if (version > VERSION) {
+                // Written by a newer replica; treated as a miss rather than misread
+                newerVersion.increment();
+                return null;
+            }
+            AuditResult result = new AuditResult();
+            int flags = (int) in.varint();
+            if ((flags & HEX_CONTENT_HASH) != 0) {
+                result.setContentHash(hex(in.fixed(32)));
+            } else if ((flags & HAS_CONTENT_HASH) != 0) {
+                result.setContentHash(in.string());
+            }
+            if ((flags & HAS_CONTENT_TYPE) != 0) {
+                result.setContentType(in.interned());
+            }
+            if ((flags & HAS_VIOLATION) != 0) {
+                result.setIsViolation((flags & VIOLATION) != 0);
+            }
+            if ((flags & HAS_CONFIDENCE) != 0) {
+                result.setConfidence(Double.longBitsToDouble(in.fixed64()));
+            }
+            if ((flags & DEFLATED_REASON) != 0) {
+                int length = (int) in.varint();
+                result.setReason(new String(inflate(in.bytes(), length), StandardCharsets.UTF_8));
+            } else if ((flags & HAS_REASON) != 0) {
+                result.setReason(in.string());
+            }
+            if ((flags & HAS_CATEGORIES) != 0) {
+                int count = (int) in.varint();
+                List<String> categories = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    categories.add(in.interned());
+                }
+                result.setCategories(categories);
+            }
+            if ((flags & HAS_STATUS) != 0) {
+                result.setStatus(in.interned());
+            }
+            if ((flags & HAS_TIMESTAMP) != 0) {
+                result.setTimestamp(in.varint());
+            }
+            if ((flags & HAS_RULE_RESULTS) != 0) {
+                result.setRuleResults(objectMapper.readValue(in.bytes(), RULE_RESULTS));
+            }
+            if ((flags & HAS_DERIVED) != 0) {
+                result.setDerived((flags & DERIVED) != 0);
+            }
+            if ((flags & HAS_DERIVED_FROM) != 0) {
+                result.setDerivedFrom(in.string());
+            }
+            if ((flags & HAS_DEGRADED) != 0) {
+                result.setDegraded((flags & DEGRADED) != 0);
+            }
+            return result;
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            throw new SerializationException("Could not read binary AuditResult", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length];
+        int length = deflater.deflate(buffer);
+        // Not worth it, or did not even fit in the original size
+        return deflater.finished() && length < data.length ? Arrays.copyOf(buffer, length) : null;
+    }
+
+    private static byte[] inflate(byte[] data, int length) throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data);
+        byte[] output = new byte[length];
+        int read = inflater.inflate(output);
+        if (read != length) {
+            throw new DataFormatException("inflated " + read + " of " + length + " bytes");
+        }
+        return output;
+    }
+
+    // A lowercase 64-char hex SHA-256 as its 32 bytes, null for anything else
+    private static byte[] hexBytes(String value) {
+        if (value == null || value.length() != 64) {
+            return null;
+        }
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < 32; i++) {
+            int high = Character.digit(value.charAt(2 * i), 16);
+            int low = Character.digit(value.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0 || Character.isUpperCase(value.charAt(2 * i)) || Character.isUpperCase(value.charAt(2 * i + 1))) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = Character.forDigit(bytes[i] >> 4 & 0xF, 16);
+            chars[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(chars);
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer.write((int) value);
+        }
+
+        void fixed64(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer.write((int) (value >>> shift));
+            }
+        }
+
+        void bytes(byte[] value) {
+            varint(value.length);
+            buffer.write(value, 0, value.length);
+        }
+
+        void string(String value) {
+            bytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // The code of a well-known string, or 0 followed by the string's length + 1 (0 for null) and bytes
+        void interned(String value) {
+            Integer code = value != null ? CODES.get(value) : null;
+            if (code != null) {
+                varint(code);
+                return;
+            }
+            varint(0);
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1L);
+            buffer.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int next() {
+            if (position >= data.length) {
+                throw new IllegalStateException("truncated entry");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("malformed varint");
+        }
+
+        long fixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = value << 8 | next();
+            }
+            return value;
+        }
+
+        byte[] fixed(int length) {
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalStateException("truncated entry");
+            }
+            byte[] value = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return value;
+        }
+
+        byte[] bytes() {
+            return fixed((int) varint());
+        }
+
+        String string() {
+            int length = (int) varint();
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalStateException("truncated entry");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        String interned() {
+            int code = (int) varint();
+            if (code == 0) {
+                int length = (int) varint() - 1;
+                return length < 0 ? null : new String(fixed(length), StandardCharsets.UTF_8);
+            }
+            if (code > INTERNED.size()) {
+                throw new IllegalStateException("unknown interned string " + code);
+            }
+            return INTERNED.get(code - 1);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.audit.content.config;
+
+import com.audit.content.service.NearDuplicateIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint for the near-duplicate verdict index.
+ * A POST replays recent recorded verdicts to report the reuse hit rate and false reuse rate.
+ */
+@Component
+@Endpoint(id = "nearduplicates")
+public class NearDuplicateEndpoint {
+
+    private static final int DEFAULT_REPLAY_LIMIT = 10_000;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @ReadOperation
+    public Map<String, Object> info() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("localEntries", nearDuplicateIndex.localSize());
+        return info;
+    }
+
+    @WriteOperation
+    public Map<String, Object> replay(@Nullable Integer limit) {
+        return nearDuplicateIndex.replay(limit != null ? limit : DEFAULT_REPLAY_LIMIT);
+    }
+}
@@ -1,17 +1,25 @@
 package com.audit.content.config;
 
+import com.audit.content.service.CompiledTemplateCache;
+import com.audit.content.service.VerdictCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       @Value("${audit.cache.codec.binary:true}") boolean binaryCodec,
+                                                       @Value("${audit.cache.codec.deflate-reason-bytes:256}") int deflateReasonBytes,
+                                                       MeterRegistry meterRegistry) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
@@ -19,11 +27,26 @@ public class RedisConfig {
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
         
-        // Set value serialization method
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        // Set value serialization method: binary for cached AuditResults, JSON for everything else
+        AuditResultRedisSerializer valueSerializer = new AuditResultRedisSerializer(binaryCodec, deflateReasonBytes, meterRegistry);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
         
         template.afterPropertiesSet();
         return template;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Pub/sub listeners that keep per-replica in-process caches coherent
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       VerdictCache verdictCache,
+                                                                       CompiledTemplateCache compiledTemplateCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(verdictCache, new ChannelTopic(VerdictCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(compiledTemplateCache, new ChannelTopic(CompiledTemplateCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+} 
@@ -0,0 +1,42 @@
+package com.audit.content.config;
+
+import com.audit.content.service.VerdictCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint for inspecting and invalidating the verdict cache.
+ * Hit/miss/eviction counters are published as "cache.*" and "audit.cache.l2.*" metrics.
+ */
+@Component
+@Endpoint(id = "verdictcache")
+public class VerdictCacheEndpoint {
+
+    @Autowired
+    private VerdictCache verdictCache;
+
+    @ReadOperation
+    public Map<String, Object> info() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("l1Size", verdictCache.localSize());
+        info.put("invalidationChannel", VerdictCache.INVALIDATION_CHANNEL);
+        return info;
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        verdictCache.invalidateAllLocal();
+    }
+
+    @DeleteOperation
+    public void invalidate(@Selector String key) {
+        verdictCache.invalidate(key);
+    }
+}
@@ -1,13 +1,27 @@
     package com.audit.content.controller;
 
     import com.audit.content.dto.*;
+    import com.audit.content.entity.AuditJob;
     import com.audit.content.entity.AuditRecord;
+    import com.audit.content.service.AuditJobService;
     import com.audit.content.service.ContentAuditService;
+    import com.fasterxml.jackson.databind.ObjectMapper;
     import org.springframework.beans.factory.annotation.Autowired;
+    import org.springframework.beans.factory.annotation.Value;
     import org.springframework.data.domain.Page;
+    import org.springframework.http.MediaType;
+    import org.springframework.http.ResponseEntity;
     import org.springframework.web.bind.annotation.*;
+    import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+    import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+    import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+    import java.nio.ByteBuffer;
+    import java.nio.channels.Channels;
+    import java.util.LinkedHashMap;
     import java.util.List;
+    import java.util.Map;
+    import java.util.concurrent.atomic.AtomicBoolean;
     import javax.annotation.PostConstruct;
     import org.slf4j.Logger;
     import org.slf4j.LoggerFactory;
@@ -18,9 +32,24 @@
         
         private static final Logger log = LoggerFactory.getLogger(ContentController.class);
         
+        private static final String NDJSON = "application/x-ndjson";
+        private static final MediaType NDJSON_UTF8 = MediaType.parseMediaType(NDJSON + ";charset=UTF-8");
+        
         @Autowired
         private ContentAuditService contentAuditService;
         
+        @Autowired
+        private AuditJobService auditJobService;
+        
+        @Autowired
+        private ObjectMapper objectMapper;
+        
+        @Value("${audit.jobs.sync-max-items:0}")
+        private int syncBatchMaxItems;
+        
+        @Value("${audit.batch.stream-timeout-ms:1800000}")
+        private long streamTimeoutMs;
+        
         @PostConstruct
         public void init() {
             log.info("[Controller] ContentController initialized.");
@@ -49,7 +78,9 @@
                 }
                 System.out.println("========================");
                 
-                AuditResult result = contentAuditService.auditText(userInfo, request.getContent(), request.getTemplateConfig(), request.getForceRefresh());
+                Map<String, Object> templateConfig = contentAuditService.resolveTemplateConfig(userInfo,
+                        request.getTemplateConfig(), request.getTemplateId(), request.getTemplateVersion());
+                AuditResult result = contentAuditService.auditText(userInfo, request.getContent(), templateConfig, request.getForceRefresh());
                 return ApiResponse.success(result);
             } catch (Exception e) {
                 System.err.println("Controller Error: " + e.getMessage());
@@ -64,15 +95,64 @@
             try {
                 AuditResult result = contentAuditService.auditImage(userInfo, request.getImageUrl(), request.getImageBase64());
                 return ApiResponse.success(result);
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, e.getMessage());
             } catch (Exception e) {
                 return ApiResponse.error(500, e.getMessage());
             }
         }
         
+        /**
+         * Image upload as the raw request body, without base64
+         */
+        @PostMapping(value = "/audit/image", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "image/*"})
+        public ApiResponse<AuditResult> auditImageBinary(@RequestHeader("X-User-Info") String userInfo,
+                                                      @RequestBody byte[] image) {
+            try {
+                AuditResult result = contentAuditService.auditImage(userInfo, image);
+                return ApiResponse.success(result);
+            } catch (Exception e) {
+                return ApiResponse.error(500, e.getMessage());
+            }
+        }
+        
+        /**
+         * Full content of one of the caller's records, streamed from the blob store for long texts and images
+         */
+        @GetMapping("/records/{id}/content")
+        public ResponseEntity<StreamingResponseBody> getRecordContent(@RequestHeader("X-User-Info") String userInfo,
+                                                                      @PathVariable Long id) {
+            AuditRecord record;
+            ByteBuffer content;
+            try {
+                record = contentAuditService.getOwnRecord(userInfo, id);
+                content = contentAuditService.getRecordContent(record);
+            } catch (Exception e) {
+                return ResponseEntity.notFound().build();
+            }
+            if (content == null) {
+                return ResponseEntity.notFound().build();
+            }
+            String type = contentAuditService.getRecordContentType(record, content);
+            if (type == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(type))
+                    .header("X-Content-Type-Options", "nosniff")
+                    .contentLength(content.remaining())
+                    .body(out -> Channels.newChannel(out).write(content));
+        }
+        
         @PostMapping("/audit/batch")
         public ApiResponse<List<AuditResult>> auditBatch(@RequestHeader("X-User-Info") String userInfo,
                                                     @RequestBody BatchAuditRequest request) {
             try {
+                // Optionally send large batches to the job API so they do not depend on one long-lived request
+                if (syncBatchMaxItems > 0 && request.getItems() != null && request.getItems().size() > syncBatchMaxItems) {
+                    return ApiResponse.error(400, "Batch of " + request.getItems().size() + " items exceeds "
+                            + syncBatchMaxItems + ", submit it to /api/content/audit/jobs instead");
+                }
                 List<AuditResult> results = contentAuditService.auditBatch(userInfo, request);
                 return ApiResponse.success(results);
             } catch (Exception e) {
@@ -80,6 +160,115 @@
             }
         }
         
+        /**
+         * Streaming batch audit. Each result is written as soon as it is ready, tagged with its item index:
+         * one JSON object per line for application/x-ndjson, or one "result" event each for text/event-stream,
+         * followed by a final "done" record. Items not yet started are skipped once the client goes away.
+         */
+        @PostMapping(value = "/audit/batch/stream", produces = {NDJSON, MediaType.TEXT_EVENT_STREAM_VALUE})
+        public ResponseBodyEmitter auditBatchStream(@RequestHeader("X-User-Info") String userInfo,
+                                                    @RequestHeader(value = "Accept", required = false) String accept,
+                                                    @RequestBody BatchAuditRequest request) {
+            boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+            ResponseBodyEmitter emitter = sse ? new SseEmitter(streamTimeoutMs) : new ResponseBodyEmitter(streamTimeoutMs);
+            AtomicBoolean cancelled = new AtomicBoolean(false);
+            emitter.onTimeout(() -> cancelled.set(true));
+            emitter.onError(e -> cancelled.set(true));
+            
+            int total = request.getItems() != null ? request.getItems().size() : 0;
+            try {
+                contentAuditService.auditBatchStream(userInfo, request,
+                        (index, result) -> emit(emitter, sse, "result", String.valueOf(index), new BatchAuditStreamItem(index, result), cancelled),
+                        cancelled::get)
+                        .whenComplete((done, error) -> {
+                            if (cancelled.get()) {
+                                log.info("[Controller] Batch stream cancelled by client");
+                                emitter.complete();
+                                return;
+                            }
+                            if (error != null) {
+                                emit(emitter, sse, "error", null, ApiResponse.error(500, error.getMessage()), cancelled);
+                            } else {
+                                Map<String, Object> summary = new LinkedHashMap<>();
+                                summary.put("done", true);
+                                summary.put("count", total);
+                                emit(emitter, sse, "done", null, summary, cancelled);
+                            }
+                            emitter.complete();
+                        });
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+            return emitter;
+        }
+        
+        private void emit(ResponseBodyEmitter emitter, boolean sse, String event, String id, Object payload, AtomicBoolean cancelled) {
+            try {
+                String json = objectMapper.writeValueAsString(payload);
+                if (sse) {
+                    SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event).data(json);
+                    if (id != null) {
+                        builder.id(id);
+                    }
+                    ((SseEmitter) emitter).send(builder);
+                } else {
+                    emitter.send(json + "\n", NDJSON_UTF8);
+                }
+            } catch (Exception e) {
+                // The client went away; stop starting new items
+                log.info("[Controller] Batch stream write failed, cancelling: {}", e.getMessage());
+                cancelled.set(true);
+            }
+        }
+        
+        /**
+         * Submit a batch as an asynchronous job; returns immediately with the job id and progress counters
+         */
+        @PostMapping("/audit/jobs")
+        public ApiResponse<AuditJob> submitAuditJob(@RequestHeader("X-User-Info") String userInfo,
+                                                    @RequestBody BatchAuditRequest request) {
+            try {
+                return ApiResponse.success(auditJobService.submit(userInfo, request));
+            } catch (Exception e) {
+                return ApiResponse.error(500, e.getMessage());
+            }
+        }
+        
+        @GetMapping("/audit/jobs/{id}")
+        public ApiResponse<AuditJob> getAuditJob(@RequestHeader("X-User-Info") String userInfo,
+                                                 @PathVariable Long id) {
+            try {
+                return ApiResponse.success(auditJobService.getJob(userInfo, id));
+            } catch (Exception e) {
+                return ApiResponse.error(500, e.getMessage());
+            }
+        }
+        
+        /**
+         * Finished item results in index order; pass the last index received as afterIndex to continue
+         */
+        @GetMapping("/audit/jobs/{id}/results")
+        public ApiResponse<List<BatchAuditStreamItem>> getAuditJobResults(@RequestHeader("X-User-Info") String userInfo,
+                                                                         @PathVariable Long id,
+                                                                         @RequestParam(defaultValue = "-1") int afterIndex,
+                                                                         @RequestParam(defaultValue = "100") int limit) {
+            try {
+                return ApiResponse.success(auditJobService.getResults(userInfo, id, afterIndex, limit));
+            } catch (Exception e) {
+                return ApiResponse.error(500, e.getMessage());
+            }
+        }
+        
+        @DeleteMapping("/audit/jobs/{id}")
+        public ApiResponse<AuditJob> cancelAuditJob(@RequestHeader("X-User-Info") String userInfo,
+                                                    @PathVariable Long id) {
+            try {
+                return ApiResponse.success(auditJobService.cancel(userInfo, id));
+            } catch (Exception e) {
+                return ApiResponse.error(500, e.getMessage());
+            }
+        }
+        
         @GetMapping("/history")
         public ApiResponse<Page<AuditRecord>> getHistory(@RequestHeader("X-User-Info") String userInfo,
                                                     @RequestParam(defaultValue = "0") int page,
@@ -92,6 +281,24 @@
             }
         }
 
+        /**
+         * Cursor-paginated history for list views: pass the nextCursor of the previous page to continue,
+         * and withTotal=false to skip counting the user's records.
+         */
+        @GetMapping("/history/cursor")
+        public ApiResponse<AuditHistoryPage> getHistoryPage(@RequestHeader("X-User-Info") String userInfo,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "20") int size,
+                                                          @RequestParam(defaultValue = "true") boolean withTotal) {
+            try {
+                return ApiResponse.success(contentAuditService.getHistoryPage(userInfo, cursor, size, withTotal));
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, e.getMessage());
+            } catch (Exception e) {
+                return ApiResponse.error(500, e.getMessage());
+            }
+        }
+
         @GetMapping("/test")
         public ApiResponse<String> test() {
             log.info("Test endpoint called");
@@ -0,0 +1,18 @@
+package com.audit.content.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public class AiBatchAuditResponse {
+    @JsonProperty("results")
+    private List<AiAuditResponse> results;
+    
+    @JsonProperty("errors")
+    private List<String> errors;  // Per-item error message, aligned with results by index
+    
+    public List<AiAuditResponse> getResults() { return results; }
+    public void setResults(List<AiAuditResponse> results) { this.results = results; }
+    
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+}
@@ -0,0 +1,12 @@
+package com.audit.content.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public class AiTextBatchAuditRequest {
+    @JsonProperty("items")
+    private List<AiTextAuditRequest> items;
+    
+    public List<AiTextAuditRequest> getItems() { return items; }
+    public void setItems(List<AiTextAuditRequest> items) { this.items = items; }
+}
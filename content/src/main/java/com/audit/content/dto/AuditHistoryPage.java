@@ -0,0 +1,26 @@
+package com.audit.content.dto;
+
+import java.util.List;
+
+/**
+ * One page of cursor-paginated audit history. nextCursor is null on the last page;
+ * totalCount is only filled in when requested.
+ */
+public class AuditHistoryPage {
+    private List<AuditHistoryItem> items;
+    private String nextCursor;
+    private Boolean hasMore;
+    private Long totalCount;
+    
+    public List<AuditHistoryItem> getItems() { return items; }
+    public void setItems(List<AuditHistoryItem> items) { this.items = items; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public Boolean getHasMore() { return hasMore; }
+    public void setHasMore(Boolean hasMore) { this.hasMore = hasMore; }
+    
+    public Long getTotalCount() { return totalCount; }
+    public void setTotalCount(Long totalCount) { this.totalCount = totalCount; }
+}
@@ -1,6 +1,7 @@
 package com.audit.content.dto;
 
 import java.util.List;
+import java.util.Map;
 
 public class AuditResult {
     private String contentHash;
@@ -11,6 +12,32 @@ public class AuditResult {
     private List<String> categories;
     private String status;
     private Long timestamp;
+    private List<Map<String, Object>> ruleResults;
+    // Reused from the verdict of a near-identical text instead of calling the AI
+    private Boolean derived;
+    private String derivedFrom;
+    // REVIEW without an AI verdict because the AI service was unavailable
+    private Boolean degraded;
+    
+    /**
+     * Shallow copy, for adjusting a verdict that is shared through the cache
+     */
+    public AuditResult copy() {
+        AuditResult copy = new AuditResult();
+        copy.contentHash = contentHash;
+        copy.contentType = contentType;
+        copy.isViolation = isViolation;
+        copy.confidence = confidence;
+        copy.reason = reason;
+        copy.categories = categories;
+        copy.status = status;
+        copy.timestamp = timestamp;
+        copy.ruleResults = ruleResults;
+        copy.derived = derived;
+        copy.derivedFrom = derivedFrom;
+        copy.degraded = degraded;
+        return copy;
+    }
     
     // Getters and Setters
     public String getContentHash() { return contentHash; }
@@ -36,4 +63,16 @@ public class AuditResult {
     
     public Long getTimestamp() { return timestamp; }
     public void setTimestamp(Long timestamp) { this.timestamp = timestamp; }
-} 
\ No newline at end of file
+    
+    public List<Map<String, Object>> getRuleResults() { return ruleResults; }
+    public void setRuleResults(List<Map<String, Object>> ruleResults) { this.ruleResults = ruleResults; }
+    
+    public Boolean getDerived() { return derived; }
+    public void setDerived(Boolean derived) { this.derived = derived; }
+    
+    public String getDerivedFrom() { return derivedFrom; }
+    public void setDerivedFrom(String derivedFrom) { this.derivedFrom = derivedFrom; }
+    
+    public Boolean getDegraded() { return degraded; }
+    public void setDegraded(Boolean degraded) { this.degraded = degraded; }
+}
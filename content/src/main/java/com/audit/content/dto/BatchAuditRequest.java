@@ -5,16 +5,22 @@ import java.util.Map;
 
 public class BatchAuditRequest {
     private List<AuditItem> items;
+    private Integer parallelism; // Optional: max concurrent items for this request (capped by server config)
     
     public List<AuditItem> getItems() { return items; }
     public void setItems(List<AuditItem> items) { this.items = items; }
     
+    public Integer getParallelism() { return parallelism; }
+    public void setParallelism(Integer parallelism) { this.parallelism = parallelism; }
+    
     public static class AuditItem {
         private String type; // TEXT or IMAGE
         private String content;
         private Long studyId; // New: Study ID
         private Long recordId; // New: Study Record ID
         private Map<String, Object> templateConfig; // New: Template Configuration
+        private String templateId; // Reference to a stored template instead of templateConfig
+        private String templateVersion; // Optional: expected version of the referenced template
         
         public String getType() { return type; }
         public void setType(String type) { this.type = type; }
@@ -30,5 +36,11 @@ public class BatchAuditRequest {
         
         public Map<String, Object> getTemplateConfig() { return templateConfig; }
         public void setTemplateConfig(Map<String, Object> templateConfig) { this.templateConfig = templateConfig; }
+        
+        public String getTemplateId() { return templateId; }
+        public void setTemplateId(String templateId) { this.templateId = templateId; }
+        
+        public String getTemplateVersion() { return templateVersion; }
+        public void setTemplateVersion(String templateVersion) { this.templateVersion = templateVersion; }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.audit.content.dto;
+
+/**
+ * One result of a streamed batch audit; index is the position of the item in the request.
+ */
+public class BatchAuditStreamItem {
+    private Integer index;
+    private AuditResult result;
+    
+    public BatchAuditStreamItem() {}
+    
+    public BatchAuditStreamItem(Integer index, AuditResult result) {
+        this.index = index;
+        this.result = result;
+    }
+    
+    public Integer getIndex() { return index; }
+    public void setIndex(Integer index) { this.index = index; }
+    
+    public AuditResult getResult() { return result; }
+    public void setResult(AuditResult result) { this.result = result; }
+}
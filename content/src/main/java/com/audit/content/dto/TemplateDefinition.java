@@ -0,0 +1,74 @@
+package com.audit.content.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An audit template as returned by the template service.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TemplateDefinition {
+    private Long id;
+    private String templateId;
+    private String name;
+    private String version;
+    private String description;
+    private String contentType;
+    private String industry;
+    private List<String> rules;
+    private Map<String, Object> decisionLogic;
+    private Map<String, Object> aiPromptTemplate;
+    private Map<String, Object> metadata;
+    private Boolean isActive;
+    private Boolean isDefault;
+    private Long createdBy;
+    private LocalDateTime updatedAt;
+    
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getTemplateId() { return templateId; }
+    public void setTemplateId(String templateId) { this.templateId = templateId; }
+    
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public String getIndustry() { return industry; }
+    public void setIndustry(String industry) { this.industry = industry; }
+    
+    public List<String> getRules() { return rules; }
+    public void setRules(List<String> rules) { this.rules = rules; }
+    
+    public Map<String, Object> getDecisionLogic() { return decisionLogic; }
+    public void setDecisionLogic(Map<String, Object> decisionLogic) { this.decisionLogic = decisionLogic; }
+    
+    public Map<String, Object> getAiPromptTemplate() { return aiPromptTemplate; }
+    public void setAiPromptTemplate(Map<String, Object> aiPromptTemplate) { this.aiPromptTemplate = aiPromptTemplate; }
+    
+    public Map<String, Object> getMetadata() { return metadata; }
+    public void setMetadata(Map<String, Object> metadata) { this.metadata = metadata; }
+    
+    public Boolean getIsActive() { return isActive; }
+    public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+    
+    public Boolean getIsDefault() { return isDefault; }
+    public void setIsDefault(Boolean isDefault) { this.isDefault = isDefault; }
+    
+    public Long getCreatedBy() { return createdBy; }
+    public void setCreatedBy(Long createdBy) { this.createdBy = createdBy; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
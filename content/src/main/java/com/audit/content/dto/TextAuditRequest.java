@@ -10,6 +10,12 @@ public class TextAuditRequest {
     @JsonProperty("template_config")
     private Map<String, Object> templateConfig;  // Add template configuration support
     
+    @JsonProperty("template_id")
+    private String templateId;  // Reference to a stored template, instead of sending template_config
+    
+    @JsonProperty("template_version")
+    private String templateVersion;  // Optional: expected version of the referenced template
+    
     @JsonProperty("force_refresh")
     private Boolean forceRefresh;  // Add force refresh support
     
@@ -19,6 +25,12 @@ public class TextAuditRequest {
     public Map<String, Object> getTemplateConfig() { return templateConfig; }
     public void setTemplateConfig(Map<String, Object> templateConfig) { this.templateConfig = templateConfig; }
     
+    public String getTemplateId() { return templateId; }
+    public void setTemplateId(String templateId) { this.templateId = templateId; }
+    
+    public String getTemplateVersion() { return templateVersion; }
+    public void setTemplateVersion(String templateVersion) { this.templateVersion = templateVersion; }
+    
     public Boolean getForceRefresh() { return forceRefresh; }
     public void setForceRefresh(Boolean forceRefresh) { this.forceRefresh = forceRefresh; }
 } 
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.audit.content.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Map;
+import org.hibernate.annotations.Type;
+
+@Entity
+@Table(name = "audit_job_items",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"job_id", "item_index"}))
+public class AuditJobItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+    
+    @Column(name = "item_index", nullable = false)
+    private Integer itemIndex;
+    
+    // The submitted BatchAuditRequest.AuditItem
+    @Column(name = "item", nullable = false, columnDefinition = "jsonb")
+    @Type(type = "com.vladmihalcea.hibernate.type.json.JsonType")
+    private Map<String, Object> item;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ItemStatus status;
+    
+    @Column(name = "result", columnDefinition = "jsonb")
+    @Type(type = "com.vladmihalcea.hibernate.type.json.JsonType")
+    private Map<String, Object> result;
+    
+    @Column(nullable = false)
+    private Integer attempts;
+    
+    // Worker lease: a RUNNING item whose lease expired is claimed again
+    @Column(name = "locked_by")
+    private String lockedBy;
+    
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getJobId() { return jobId; }
+    public void setJobId(Long jobId) { this.jobId = jobId; }
+    
+    public Integer getItemIndex() { return itemIndex; }
+    public void setItemIndex(Integer itemIndex) { this.itemIndex = itemIndex; }
+    
+    public Map<String, Object> getItem() { return item; }
+    public void setItem(Map<String, Object> item) { this.item = item; }
+    
+    public ItemStatus getStatus() { return status; }
+    public void setStatus(ItemStatus status) { this.status = status; }
+    
+    public Map<String, Object> getResult() { return result; }
+    public void setResult(Map<String, Object> result) { this.result = result; }
+    
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+    
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+    
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public enum ItemStatus {
+        PENDING, RUNNING, DONE, ERROR, CANCELLED
+    }
+}
@@ -3,6 +3,7 @@ package com.audit.content.entity;
 import javax.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import org.hibernate.annotations.Type;
 
@@ -26,6 +27,10 @@ public class AuditRecord {
     @Column(name = "content_url")
     private String contentUrl;
     
+    // Hash of the full text or image in the blob store; content_text then only holds a preview
+    @Column(name = "content_blob", length = 64)
+    private String contentBlob;
+    
     @Column(name = "content_hash", nullable = false)
     private String contentHash;
     
@@ -47,6 +52,10 @@ public class AuditRecord {
     @Column(name = "manual_result", columnDefinition = "jsonb")
     @Type(type = "com.vladmihalcea.hibernate.type.json.JsonType")
     private Map<String, Object> manualResult;
+
+    @Column(name = "rule_results", columnDefinition = "jsonb")
+    @Type(type = "com.vladmihalcea.hibernate.type.json.JsonType")
+    private List<Map<String, Object>> ruleResults;
     
     @Column(name = "reviewer_id")
     private Long reviewerId;
@@ -87,6 +96,9 @@ public class AuditRecord {
     public String getContentUrl() { return contentUrl; }
     public void setContentUrl(String contentUrl) { this.contentUrl = contentUrl; }
     
+    public String getContentBlob() { return contentBlob; }
+    public void setContentBlob(String contentBlob) { this.contentBlob = contentBlob; }
+    
     public String getContentHash() { return contentHash; }
     public void setContentHash(String contentHash) { this.contentHash = contentHash; }
     
@@ -102,6 +114,9 @@ public class AuditRecord {
     public Map<String, Object> getAiResult() { return aiResult; }
     public void setAiResult(Map<String, Object> aiResult) { this.aiResult = aiResult; }
 
+    public List<Map<String, Object>> getRuleResults() { return ruleResults; }
+    public void setRuleResults(List<Map<String, Object>> ruleResults) { this.ruleResults = ruleResults; }
+
     public Map<String, Object> getManualResult() { return manualResult; }
     public void setManualResult(Map<String, Object> manualResult) { this.manualResult = manualResult; }
     
@@ -0,0 +1,61 @@
+package com.audit.content.repository;
+
+import com.audit.content.dto.AuditHistoryItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keyset pagination over a user's audit records, newest first.
+ * Pages continue after the (created_at, id) of the previous page's last row, so every page is
+ * an index range scan on (user_id, created_at DESC, id DESC) no matter how deep it is.
+ */
+@Repository
+public class AuditHistoryRepository {
+
+    private static final String COLUMNS =
+            "SELECT id, content_type, content_url, content_hash, confidence, status, reviewer_id, reviewed_at, created_at " +
+            "FROM audit_records ";
+
+    private static final String FIRST_PAGE_SQL = COLUMNS +
+            "WHERE user_id = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    private static final String NEXT_PAGE_SQL = COLUMNS +
+            "WHERE user_id = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    private static final RowMapper<AuditHistoryItem> ROW_MAPPER = (rs, rowNum) -> {
+        AuditHistoryItem item = new AuditHistoryItem();
+        item.setId(rs.getLong("id"));
+        item.setContentType(rs.getString("content_type"));
+        item.setContentUrl(rs.getString("content_url"));
+        item.setContentHash(rs.getString("content_hash"));
+        item.setConfidence(rs.getBigDecimal("confidence"));
+        item.setStatus(rs.getString("status"));
+        long reviewerId = rs.getLong("reviewer_id");
+        item.setReviewerId(rs.wasNull() ? null : reviewerId);
+        Timestamp reviewedAt = rs.getTimestamp("reviewed_at");
+        item.setReviewedAt(reviewedAt != null ? reviewedAt.toLocalDateTime() : null);
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        item.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        return item;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Up to limit records of the user older than (afterCreatedAt, afterId), or the newest
+     * records when afterCreatedAt is null.
+     */
+    public List<AuditHistoryItem> findPage(Long userId, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        if (afterCreatedAt == null) {
+            return jdbcTemplate.query(FIRST_PAGE_SQL, ROW_MAPPER, userId, limit);
+        }
+        return jdbcTemplate.query(NEXT_PAGE_SQL, ROW_MAPPER, userId, Timestamp.valueOf(afterCreatedAt), afterId, limit);
+    }
+}
@@ -0,0 +1,17 @@
+package com.audit.content.repository;
+
+import com.audit.content.entity.AuditJobItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AuditJobItemRepository extends JpaRepository<AuditJobItem, Long> {
+    
+    // Finished items after the given index, for incremental result polling
+    @Query("SELECT i FROM AuditJobItem i WHERE i.jobId = ?1 AND i.itemIndex > ?2 AND i.status IN ('DONE', 'ERROR') ORDER BY i.itemIndex")
+    List<AuditJobItem> findFinishedAfter(Long jobId, Integer afterIndex, Pageable pageable);
+}
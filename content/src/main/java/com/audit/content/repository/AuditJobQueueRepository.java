@@ -0,0 +1,196 @@
+package com.audit.content.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queue operations on audit_job_items. Workers claim items with FOR UPDATE SKIP LOCKED so any
+ * number of replicas can pull from the same table without handing out an item twice; a claim is
+ * a lease, and items whose lease ran out (worker died or pod restarted) are claimed again.
+ */
+@Repository
+public class AuditJobQueueRepository {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO audit_job_items (job_id, item_index, item, status, attempts, updated_at) " +
+            "VALUES (?, ?, ?, 'PENDING', 0, now())";
+
+    private static final String CLAIM_SQL =
+            "UPDATE audit_job_items SET status = 'RUNNING', locked_by = ?, " +
+            "locked_until = now() + make_interval(secs => ?), attempts = attempts + 1, updated_at = now() " +
+            "WHERE id IN (" +
+            "  SELECT i.id FROM audit_job_items i JOIN audit_jobs j ON j.id = i.job_id " +
+            "  WHERE (i.status = 'PENDING' OR (i.status = 'RUNNING' AND i.locked_until < now())) " +
+            "    AND j.status IN ('QUEUED', 'RUNNING') " +
+            "  ORDER BY i.id LIMIT ? FOR UPDATE OF i SKIP LOCKED) " +
+            "RETURNING id, job_id, item_index, item::text AS item, attempts";
+
+    private static final String COMPLETE_ITEM_SQL =
+            "UPDATE audit_job_items SET status = ?, result = ?, locked_by = NULL, locked_until = NULL, updated_at = now() " +
+            "WHERE id = ? AND status = 'RUNNING' AND locked_by = ?";
+
+    // Still RUNNING but without an owner, so it is claimed again once locked_until has passed
+    private static final String RETRY_LATER_SQL =
+            "UPDATE audit_job_items SET locked_by = NULL, locked_until = now() + make_interval(secs => ?), updated_at = now() " +
+            "WHERE id = ? AND status = 'RUNNING' AND locked_by = ?";
+
+    private static final String RENEW_LEASE_SQL =
+            "UPDATE audit_job_items SET locked_until = now() + make_interval(secs => ?), updated_at = now() " +
+            "WHERE id = ? AND status = 'RUNNING' AND locked_by = ?";
+
+    private static final String RECORD_PROGRESS_SQL =
+            "UPDATE audit_jobs SET processed_items = processed_items + 1, failed_items = failed_items + ?, " +
+            "status = CASE WHEN processed_items + 1 >= total_items THEN 'COMPLETED' ELSE 'RUNNING' END, " +
+            "started_at = COALESCE(started_at, now()), " +
+            "finished_at = CASE WHEN processed_items + 1 >= total_items THEN now() ELSE finished_at END, " +
+            "updated_at = now() " +
+            "WHERE id = ? AND status IN ('QUEUED', 'RUNNING')";
+
+    private static final String CANCEL_JOB_SQL =
+            "UPDATE audit_jobs SET status = 'CANCELLED', finished_at = now(), updated_at = now() " +
+            "WHERE id = ? AND status IN ('QUEUED', 'RUNNING')";
+
+    private static final String CANCEL_ITEMS_SQL =
+            "UPDATE audit_job_items SET status = 'CANCELLED', updated_at = now() WHERE job_id = ? AND status = 'PENDING'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert the items of a new job; itemJson holds one serialized item per index.
+     */
+    public void insertItems(Long jobId, List<String> itemJson) {
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, jobId);
+                ps.setInt(2, i);
+                ps.setObject(3, itemJson.get(i), Types.OTHER);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return itemJson.size();
+            }
+        });
+    }
+
+    /**
+     * Lease up to limit runnable items to the given worker.
+     */
+    public List<ClaimedItem> claim(String workerId, int limit, long leaseSeconds) {
+        return jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new ClaimedItem(rs.getLong("id"), rs.getLong("job_id"), rs.getInt("item_index"),
+                        rs.getString("item"), rs.getInt("attempts")),
+                workerId, leaseSeconds, limit);
+    }
+
+    /**
+     * Store the outcome of a claimed item and advance the job's progress counters.
+     * Does nothing if the worker no longer holds the lease (the item was re-claimed elsewhere).
+     *
+     * @return true if the result was recorded
+     */
+    @Transactional
+    public boolean complete(ClaimedItem item, String workerId, boolean failed, String resultJson) {
+        int updated = jdbcTemplate.update(COMPLETE_ITEM_SQL, ps -> {
+            ps.setString(1, failed ? "ERROR" : "DONE");
+            ps.setObject(2, resultJson, Types.OTHER);
+            ps.setLong(3, item.getId());
+            ps.setString(4, workerId);
+        });
+        if (updated == 0) {
+            return false;
+        }
+        jdbcTemplate.update(RECORD_PROGRESS_SQL, failed ? 1 : 0, item.getJobId());
+        return true;
+    }
+
+    /**
+     * Extend the leases of items a worker still holds.
+     *
+     * @param held the claimed items, with the worker that claimed each
+     * @return the items whose lease was already lost
+     */
+    public List<ClaimedItem> renewLeases(Map<ClaimedItem, String> held, long leaseSeconds) {
+        List<Map.Entry<ClaimedItem, String>> entries = new ArrayList<>(held.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(RENEW_LEASE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, leaseSeconds);
+                ps.setLong(2, entries.get(i).getKey().getId());
+                ps.setString(3, entries.get(i).getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+        List<ClaimedItem> lost = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                lost.add(entries.get(i).getKey());
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * Give a claimed item back to the queue without a result, to be claimed again after delaySeconds.
+     * The attempt still counts towards the item's attempts.
+     *
+     * @return false if the worker no longer held the lease
+     */
+    public boolean retryLater(ClaimedItem item, String workerId, long delaySeconds) {
+        return jdbcTemplate.update(RETRY_LATER_SQL, delaySeconds, item.getId(), workerId) > 0;
+    }
+
+    /**
+     * Mark a queued or running job as cancelled; workers stop claiming its items.
+     *
+     * @return false if the job had already finished
+     */
+    public boolean cancelJob(Long jobId) {
+        return jdbcTemplate.update(CANCEL_JOB_SQL, jobId) > 0;
+    }
+
+    /**
+     * Drop the items of a cancelled job that have not started yet.
+     */
+    public int cancelPending(Long jobId) {
+        return jdbcTemplate.update(CANCEL_ITEMS_SQL, jobId);
+    }
+
+    public static class ClaimedItem {
+        private final Long id;
+        private final Long jobId;
+        private final Integer itemIndex;
+        private final String itemJson;
+        private final Integer attempts;
+
+        public ClaimedItem(Long id, Long jobId, Integer itemIndex, String itemJson, Integer attempts) {
+            this.id = id;
+            this.jobId = jobId;
+            this.itemIndex = itemIndex;
+            this.itemJson = itemJson;
+            this.attempts = attempts;
+        }
+
+        public Long getId() { return id; }
+        public Long getJobId() { return jobId; }
+        public Integer getItemIndex() { return itemIndex; }
+        public String getItemJson() { return itemJson; }
+        public Integer getAttempts() { return attempts; }
+    }
+}
@@ -0,0 +1,15 @@
+package com.audit.content.repository;
+
+import com.audit.content.entity.AuditJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AuditJobRepository extends JpaRepository<AuditJob, Long> {
+    
+    Optional<AuditJob> findByIdAndUserId(Long id, Long userId);
+    
+    boolean existsByIdAndUserId(Long id, Long userId);
+}
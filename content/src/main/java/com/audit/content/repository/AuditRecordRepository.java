@@ -4,17 +4,28 @@ import com.audit.content.entity.AuditRecord;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AuditRecordRepository extends JpaRepository<AuditRecord, Long> {
     
     Page<AuditRecord> findByUserId(Long userId, Pageable pageable);
     
+    // Row lock for read-modify-write of the status (manual review)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM AuditRecord a WHERE a.id = ?1")
+    Optional<AuditRecord> findByIdForUpdate(Long id);
+    
     Page<AuditRecord> findByStatus(String status, Pageable pageable);
     
     @Query("SELECT COUNT(a) FROM AuditRecord a WHERE a.createdAt >= ?1")
@@ -28,6 +39,22 @@ public interface AuditRecordRepository extends JpaRepository<AuditRecord, Long>
     
     List<AuditRecord> findByContentHash(String contentHash);
     
+    // Text, status, confidence and text blob of the latest AI text verdicts, newest first (near-duplicate replay)
+    @Query(value = "SELECT content_text, status, confidence, content_blob FROM audit_records " +
+            "WHERE content_type = 'TEXT' AND content_text IS NOT NULL AND ai_result IS NOT NULL " +
+            "ORDER BY id DESC LIMIT ?1", nativeQuery = true)
+    List<Object[]> findRecentAiTextVerdicts(int limit);
+    
+    // The given blob hashes that are still referenced by some record (blob store GC)
+    @Query("SELECT DISTINCT a.contentBlob FROM AuditRecord a WHERE a.contentBlob IN ?1")
+    List<String> findReferencedBlobs(Collection<String> hashes);
+    
+    // Drop the blob references of records past blob retention; texts keep their preview (blob store GC)
+    @Modifying
+    @Transactional
+    @Query("UPDATE AuditRecord a SET a.contentBlob = NULL WHERE a.contentBlob IS NOT NULL AND a.createdAt < ?1")
+    int releaseBlobsCreatedBefore(LocalDateTime cutoff);
+    
     // Additional methods needed by ContentAuditService
     Long countByUserId(Long userId);
     
@@ -43,8 +70,4 @@ public interface AuditRecordRepository extends JpaRepository<AuditRecord, Long>
     Long countByStatusAndCreatedAtBetween(AuditRecord.AuditStatus status, LocalDateTime start, LocalDateTime end);
     
     List<AuditRecord> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
-    
-    // Methods for trend data
-    @Query("SELECT COUNT(a) FROM AuditRecord a WHERE a.userId = ?1 AND a.status = ?2 AND DATE(a.createdAt) = DATE(?3)")
-    Long countByUserIdAndStatusAndDate(Long userId, AuditRecord.AuditStatus status, LocalDateTime date);
 } 
\ No newline at end of file
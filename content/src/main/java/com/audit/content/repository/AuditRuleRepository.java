@@ -0,0 +1,38 @@
+package com.audit.content.repository;
+
+import com.audit.content.service.CompiledRuleSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Read access to the active rows of audit_rules for the local rule engine.
+ */
+@Repository
+public class AuditRuleRepository {
+
+    private static final String FIND_ACTIVE_SQL =
+            "SELECT rule_id, category, label, severity, conditions::text AS conditions, action, content_types " +
+            "FROM audit_rules WHERE is_active = TRUE ORDER BY id";
+
+    // Changes whenever an active rule is added, removed, toggled or edited
+    private static final String SIGNATURE_SQL =
+            "SELECT COUNT(*) || ':' || COALESCE(md5(string_agg(rule_id || '|' || conditions::text || '|' || COALESCE(action, '') || '|' || " +
+            "COALESCE(severity, '') || '|' || COALESCE(content_types, '') || '|' || COALESCE(category, '') || '|' || COALESCE(label, ''), ',' ORDER BY id)), '') " +
+            "FROM audit_rules WHERE is_active = TRUE";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<CompiledRuleSet.RuleDefinition> findActive() {
+        return jdbcTemplate.query(FIND_ACTIVE_SQL, (rs, rowNum) -> new CompiledRuleSet.RuleDefinition(
+                rs.getString("rule_id"), rs.getString("category"), rs.getString("label"), rs.getString("severity"),
+                rs.getString("conditions"), rs.getString("action"), rs.getString("content_types")));
+    }
+
+    public String signature() {
+        return jdbcTemplate.queryForObject(SIGNATURE_SQL, String.class);
+    }
+}
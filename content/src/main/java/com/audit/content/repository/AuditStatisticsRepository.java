@@ -0,0 +1,167 @@
+package com.audit.content.repository;
+
+import com.audit.content.entity.AuditRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user daily rollup of audit counts in audit_statistics.
+ * Rows are incremented as audit records are written and adjusted on manual review,
+ * so statistics read one row per day instead of counting audit_records.
+ */
+@Repository
+public class AuditStatisticsRepository {
+
+    private static final String INCREMENT_SQL =
+            "INSERT INTO audit_statistics (user_id, date, total_count, pass_count, reject_count, review_count, text_count, image_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, date) DO UPDATE SET " +
+            "total_count = audit_statistics.total_count + EXCLUDED.total_count, " +
+            "pass_count = audit_statistics.pass_count + EXCLUDED.pass_count, " +
+            "reject_count = audit_statistics.reject_count + EXCLUDED.reject_count, " +
+            "review_count = audit_statistics.review_count + EXCLUDED.review_count, " +
+            "text_count = audit_statistics.text_count + EXCLUDED.text_count, " +
+            "image_count = audit_statistics.image_count + EXCLUDED.image_count";
+
+    private static final String FIND_BY_USER_SQL =
+            "SELECT date, total_count, pass_count, reject_count, review_count, text_count, image_count " +
+            "FROM audit_statistics WHERE user_id = ? ORDER BY date";
+
+    // One grouped pass over the user's records, replacing whatever the rollup holds
+    private static final String REBUILD_USER_SQL =
+            "INSERT INTO audit_statistics (user_id, date, total_count, pass_count, reject_count, review_count, text_count, image_count) " +
+            "SELECT user_id, DATE(created_at), COUNT(*), " +
+            "COUNT(*) FILTER (WHERE status = 'PASS'), COUNT(*) FILTER (WHERE status = 'REJECT'), " +
+            "COUNT(*) FILTER (WHERE status = 'REVIEW'), COUNT(*) FILTER (WHERE content_type = 'TEXT'), " +
+            "COUNT(*) FILTER (WHERE content_type = 'IMAGE') " +
+            "FROM audit_records WHERE user_id = ? GROUP BY user_id, DATE(created_at) " +
+            "ON CONFLICT (user_id, date) DO UPDATE SET " +
+            "total_count = EXCLUDED.total_count, pass_count = EXCLUDED.pass_count, " +
+            "reject_count = EXCLUDED.reject_count, review_count = EXCLUDED.review_count, " +
+            "text_count = EXCLUDED.text_count, image_count = EXCLUDED.image_count";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Add the given per-user, per-day deltas to the rollup.
+     */
+    public void increment(List<DailyCounts> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                DailyCounts delta = deltas.get(i);
+                ps.setLong(1, delta.getUserId());
+                ps.setDate(2, Date.valueOf(delta.getDate()));
+                ps.setLong(3, delta.getTotal());
+                ps.setLong(4, delta.getPass());
+                ps.setLong(5, delta.getReject());
+                ps.setLong(6, delta.getReview());
+                ps.setLong(7, delta.getText());
+                ps.setLong(8, delta.getImage());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+    }
+
+    /**
+     * All daily rows of a user, oldest first.
+     */
+    public List<DailyCounts> findByUserId(Long userId) {
+        return jdbcTemplate.query(FIND_BY_USER_SQL, (rs, rowNum) -> {
+            DailyCounts counts = new DailyCounts(userId, rs.getDate("date").toLocalDate());
+            counts.total = rs.getLong("total_count");
+            counts.pass = rs.getLong("pass_count");
+            counts.reject = rs.getLong("reject_count");
+            counts.review = rs.getLong("review_count");
+            counts.text = rs.getLong("text_count");
+            counts.image = rs.getLong("image_count");
+            return counts;
+        }, userId);
+    }
+
+    /**
+     * Recompute a user's rollup from audit_records.
+     */
+    public int rebuildForUser(Long userId) {
+        return jdbcTemplate.update(REBUILD_USER_SQL, userId);
+    }
+
+    /**
+     * Per (user, day) deltas for a set of newly written records.
+     */
+    public static List<DailyCounts> countRecords(List<AuditRecord> records) {
+        Map<String, DailyCounts> byKey = new LinkedHashMap<>();
+        for (AuditRecord record : records) {
+            LocalDate date = record.getCreatedAt().toLocalDate();
+            DailyCounts counts = byKey.computeIfAbsent(record.getUserId() + ":" + date,
+                    key -> new DailyCounts(record.getUserId(), date));
+            counts.add(record.getStatus(), record.getContentType(), 1);
+        }
+        return new ArrayList<>(byKey.values());
+    }
+
+    public static class DailyCounts {
+        private final Long userId;
+        private final LocalDate date;
+        private long total;
+        private long pass;
+        private long reject;
+        private long review;
+        private long text;
+        private long image;
+
+        public DailyCounts(Long userId, LocalDate date) {
+            this.userId = userId;
+            this.date = date;
+        }
+
+        /**
+         * Count one record (delta 1) or take it back (delta -1). Null arguments are skipped.
+         */
+        public void add(AuditRecord.AuditStatus status, AuditRecord.ContentType contentType, int delta) {
+            if (contentType != null) {
+                total += delta;
+                if (contentType == AuditRecord.ContentType.TEXT) {
+                    text += delta;
+                } else {
+                    image += delta;
+                }
+            }
+            if (status == AuditRecord.AuditStatus.PASS) {
+                pass += delta;
+            } else if (status == AuditRecord.AuditStatus.REJECT) {
+                reject += delta;
+            } else if (status == AuditRecord.AuditStatus.REVIEW) {
+                review += delta;
+            }
+        }
+
+        public Long getUserId() { return userId; }
+        public LocalDate getDate() { return date; }
+        public long getTotal() { return total; }
+        public long getPass() { return pass; }
+        public long getReject() { return reject; }
+        public long getReview() { return review; }
+        public long getText() { return text; }
+        public long getImage() { return image; }
+    }
+}
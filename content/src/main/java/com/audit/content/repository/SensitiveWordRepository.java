@@ -0,0 +1,34 @@
+package com.audit.content.repository;
+
+import com.audit.content.service.SensitiveWordMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Read access to the sensitive_words table for the in-process prefilter.
+ */
+@Repository
+public class SensitiveWordRepository {
+
+    private static final String FIND_ALL_SQL = "SELECT word, category, level FROM sensitive_words";
+
+    // Changes whenever a word is added, removed or edited; cheap enough to poll for a word list
+    private static final String SIGNATURE_SQL =
+            "SELECT COUNT(*) || ':' || COALESCE(md5(string_agg(word || '|' || category || '|' || COALESCE(level, ''), ',' ORDER BY id)), '') " +
+            "FROM sensitive_words";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<SensitiveWordMatcher.Word> findAll() {
+        return jdbcTemplate.query(FIND_ALL_SQL, (rs, rowNum) -> new SensitiveWordMatcher.Word(
+                rs.getString("word"), rs.getString("category"), SensitiveWordMatcher.parseLevel(rs.getString("level"))));
+    }
+
+    public String signature() {
+        return jdbcTemplate.queryForObject(SIGNATURE_SQL, String.class);
+    }
+}
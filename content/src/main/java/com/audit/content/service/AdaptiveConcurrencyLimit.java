@@ -0,0 +1,99 @@
+package com.audit.content.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit driven by the gradient between short- and long-term latency.
+ * Both are exponentially smoothed averages of successful call latencies, over about short-window
+ * and long-window calls. While the short-term average stays within latency-tolerance times the
+ * long-term one, the limit grows by about one per window of calls while it is being used. Once
+ * requests queue up in the AI service for a sustained stretch the short-term average rises above
+ * that, and the limit shrinks in proportion to the gap. Single slow calls barely move the
+ * short-term average, so latency that varies with text length or micro-batch size is not taken
+ * for queueing. Failed calls cut the limit by the backoff ratio. A permanently slower service
+ * becomes the new long-term baseline instead of keeping the limit at its floor.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    // Share of the gap to the gradient's target closed per sample
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final double shortAlpha;
+    private final double longAlpha;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Guarded by this
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double latencyTolerance, double backoffRatio, int shortWindow, int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.shortAlpha = 2.0 / (Math.max(1, shortWindow) + 1);
+        this.longAlpha = 2.0 / (Math.max(1, longWindow) + 1);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot if fewer than limit calls are in flight. Never blocks.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give a slot back with the call's latency.
+     *
+     * @param failed whether the call failed in a way that indicates overload
+     */
+    public void release(long rttNanos, boolean failed) {
+        int wasInFlight = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (failed) {
+                // A timeout's latency says nothing about the service's normal speed
+                limit = Math.max(minLimit, limit * backoffRatio);
+                return;
+            }
+            if (longRttNanos == 0) {
+                shortRttNanos = rttNanos;
+                longRttNanos = rttNanos;
+            } else {
+                shortRttNanos += (rttNanos - shortRttNanos) * shortAlpha;
+                longRttNanos += (rttNanos - longRttNanos) * longAlpha;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, latencyTolerance * longRttNanos / shortRttNanos));
+            if (gradient < 1.0) {
+                limit = Math.max(minLimit, limit - limit * (1.0 - gradient) * SMOOTHING);
+            } else if (wasInFlight * 2 >= limit) {
+                // Only grow while at least half the limit is used, an idle limit says nothing about capacity
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
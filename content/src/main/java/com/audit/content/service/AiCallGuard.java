@@ -0,0 +1,184 @@
+package com.audit.content.service;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for calls to the AI service.
+ * Every call needs a slot from the {@link AdaptiveConcurrencyLimit} of its operation (single and
+ * batch calls have very different latencies, so each learns its own) and permission from the
+ * {@link CircuitBreaker} shared by all operations. Without either the call is not made and
+ * {@link UnavailableException} is thrown straight away, so a slow AI service costs callers
+ * nothing instead of tying up a request thread for the whole read timeout. Client errors (4xx)
+ * do not count as failures.
+ */
+@Component
+public class AiCallGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(AiCallGuard.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.ai.guard.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.ai.guard.limit.initial:20}")
+    private int initialLimit;
+
+    @Value("${audit.ai.guard.limit.min:2}")
+    private int minLimit;
+
+    @Value("${audit.ai.guard.limit.max:200}")
+    private int maxLimit;
+
+    @Value("${audit.ai.guard.limit.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${audit.ai.guard.limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${audit.ai.guard.limit.short-window:20}")
+    private int shortWindow;
+
+    @Value("${audit.ai.guard.limit.long-window:600}")
+    private int longWindow;
+
+    @Value("${audit.ai.guard.circuit.window-size:50}")
+    private int windowSize;
+
+    @Value("${audit.ai.guard.circuit.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${audit.ai.guard.circuit.failure-rate-threshold:50}")
+    private double failureRateThreshold;
+
+    @Value("${audit.ai.guard.circuit.slow-call-ms:30000}")
+    private long slowCallMs;
+
+    @Value("${audit.ai.guard.circuit.open-seconds:15}")
+    private long openSeconds;
+
+    @Value("${audit.ai.guard.circuit.half-open-probes:3}")
+    private int halfOpenProbes;
+
+    private final Map<String, AdaptiveConcurrencyLimit> limits = new ConcurrentHashMap<>();
+    private CircuitBreaker breaker;
+
+    private Counter limitRejections;
+    private Counter circuitRejections;
+    private Counter failures;
+
+    @PostConstruct
+    public void init() {
+        breaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                TimeUnit.SECONDS.toMillis(openSeconds), halfOpenProbes);
+        Gauge.builder("audit.ai.circuit.state", breaker, b -> b.getState().ordinal())
+                .description("0 closed, 1 half open, 2 open")
+                .register(meterRegistry);
+        limitRejections = Counter.builder("audit.ai.rejections").tag("reason", "limit").register(meterRegistry);
+        circuitRejections = Counter.builder("audit.ai.rejections").tag("reason", "circuit").register(meterRegistry);
+        failures = Counter.builder("audit.ai.failures").register(meterRegistry);
+    }
+
+    /**
+     * Make an AI call if the operation's limit and the circuit breaker allow it.
+     *
+     * @throws UnavailableException if the call was not made
+     */
+    public <T> T call(String operation, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        AdaptiveConcurrencyLimit limit = limits.computeIfAbsent(operation, this::newLimit);
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            circuitRejections.increment();
+            throw new UnavailableException("circuit breaker open");
+        }
+        if (!limit.tryAcquire()) {
+            breaker.release(permit);
+            limitRejections.increment();
+            throw new UnavailableException("concurrency limit of " + limit.getLimit() + " reached");
+        }
+
+        CircuitBreaker.State before = breaker.getState();
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            failed = countsAsFailure(e);
+            throw e;
+        } finally {
+            long rttNanos = System.nanoTime() - start;
+            limit.release(rttNanos, failed);
+            boolean slow = rttNanos > TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+            breaker.onResult(permit, !failed && !slow);
+            if (failed || slow) {
+                failures.increment();
+            }
+            CircuitBreaker.State after = breaker.getState();
+            if (after != before) {
+                log.warn("[AiCallGuard] Circuit breaker {} -> {} after {} call, its concurrency limit is {}",
+                        before, after, operation, limit.getLimit());
+            }
+        }
+    }
+
+    /**
+     * False while the circuit breaker is open, for callers that would otherwise queue work first.
+     */
+    public boolean isCallPermitted() {
+        return !enabled || breaker.isCallPermitted();
+    }
+
+    /**
+     * The operation's current concurrency limit, for callers that queue work in front of the guard.
+     */
+    public int getLimit(String operation) {
+        if (!enabled) {
+            return Integer.MAX_VALUE;
+        }
+        return limits.computeIfAbsent(operation, this::newLimit).getLimit();
+    }
+
+    private AdaptiveConcurrencyLimit newLimit(String operation) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio, shortWindow, longWindow);
+        Gauge.builder("audit.ai.limit", limit, AdaptiveConcurrencyLimit::getLimit).tag("operation", operation).register(meterRegistry);
+        Gauge.builder("audit.ai.inflight", limit, AdaptiveConcurrencyLimit::getInFlight).tag("operation", operation).register(meterRegistry);
+        return limit;
+    }
+
+    private static boolean countsAsFailure(RuntimeException e) {
+        if (e instanceof FeignException) {
+            int status = ((FeignException) e).status();
+            // status is -1 for connect and read timeouts
+            return status < 400 || status >= 500;
+        }
+        return true;
+    }
+
+    /**
+     * The AI service was not called because it is overloaded or failing.
+     */
+    public static class UnavailableException extends RuntimeException {
+        public UnavailableException(String message) {
+            super("AI service unavailable: " + message);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.audit.content.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Fair admission of AI calls across users.
+ * Each operation (text, image) has its own pool, which runs only as many calls as the AI side
+ * admits right now: the capacity the caller passes, normally read from the {@link AiCallGuard}'s
+ * adaptive limit on every grant, and never more than max-concurrent. Callers beyond that wait
+ * here instead of being turned away by the guard, in a queue of their own user, inside one of
+ * two lanes: INTERACTIVE for single audits and BATCH for batch, job and
+ * study traffic. Free slots go to the lanes by deficit round-robin with the lanes' weights, and
+ * within a lane round-robin over the users that are waiting, so one user's 50k-item upload
+ * queues behind itself instead of in front of everybody else. A caller that waits longer than
+ * its lane's max-wait gets {@link AiCallGuard.UnavailableException}, like any other rejected call.
+ * The lane is taken from the calling thread, see {@link #inBatchLane(Supplier)}. A user's queue
+ * only exists while the user has calls waiting, and metrics are per lane, not per user.
+ */
+@Component
+public class AiCallScheduler {
+
+    public enum Lane { INTERACTIVE, BATCH }
+
+    private static final ThreadLocal<Lane> CURRENT_LANE = new ThreadLocal<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.ai.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.ai.scheduler.max-concurrent:64}")
+    private int maxConcurrent;
+
+    @Value("${audit.ai.scheduler.interactive.weight:8}")
+    private int interactiveWeight;
+
+    @Value("${audit.ai.scheduler.interactive.max-wait-ms:10000}")
+    private long interactiveMaxWaitMs;
+
+    @Value("${audit.ai.scheduler.batch.weight:1}")
+    private int batchWeight;
+
+    @Value("${audit.ai.scheduler.batch.max-wait-ms:600000}")
+    private long batchMaxWaitMs;
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Run work on the calling thread in the BATCH lane.
+     */
+    public static <T> T inBatchLane(Supplier<T> work) {
+        Lane previous = CURRENT_LANE.get();
+        CURRENT_LANE.set(Lane.BATCH);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_LANE.remove();
+            } else {
+                CURRENT_LANE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Whether the calling thread runs in the BATCH lane.
+     */
+    public static boolean isBatchLane() {
+        return CURRENT_LANE.get() == Lane.BATCH;
+    }
+
+    /**
+     * The longest the calling thread's calls may wait for their turn, by its lane.
+     */
+    public long maxWaitMs() {
+        if (!enabled) {
+            return 0;
+        }
+        return isBatchLane() ? batchMaxWaitMs : interactiveMaxWaitMs;
+    }
+
+    /**
+     * Make an AI call for a user once it is the user's turn in the current lane of the operation's pool.
+     *
+     * @param capacity how many calls of the operation the AI side admits at once right now; the pool
+     *                 created by the operation's first call keeps its supplier
+     * @throws AiCallGuard.UnavailableException if the turn did not come within the lane's max-wait
+     */
+    public <T> T call(Long userId, String operation, IntSupplier capacity, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        Pool pool = pools.computeIfAbsent(operation, op -> newPool(op, capacity));
+        Lane lane = CURRENT_LANE.get() != null ? CURRENT_LANE.get() : Lane.INTERACTIVE;
+        pool.acquire(userId != null ? userId : 0L, lane);
+        try {
+            return call.get();
+        } finally {
+            pool.release();
+        }
+    }
+
+    private Pool newPool(String operation, IntSupplier capacity) {
+        Pool pool = new Pool(capacity, new LaneQueue[] {
+                newLane(operation, Lane.INTERACTIVE, interactiveWeight, interactiveMaxWaitMs),
+                newLane(operation, Lane.BATCH, batchWeight, batchMaxWaitMs)
+        });
+        Gauge.builder("audit.ai.scheduler.running", pool, p -> p.running).tag("operation", operation).register(meterRegistry);
+        Gauge.builder("audit.ai.scheduler.capacity", pool, Pool::capacity).tag("operation", operation).register(meterRegistry);
+        return pool;
+    }
+
+    private LaneQueue newLane(String operation, Lane lane, int weight, long maxWaitMs) {
+        String laneTag = lane.name().toLowerCase();
+        LaneQueue laneQueue = new LaneQueue(weight, maxWaitMs, Timer.builder("audit.ai.scheduler.wait")
+                .tag("operation", operation).tag("lane", laneTag)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+        Gauge.builder("audit.ai.scheduler.queued", laneQueue, q -> q.queued)
+                .tag("operation", operation).tag("lane", laneTag)
+                .register(meterRegistry);
+        Gauge.builder("audit.ai.scheduler.waiting-users", laneQueue, q -> q.tenants.size())
+                .tag("operation", operation).tag("lane", laneTag)
+                .register(meterRegistry);
+        return laneQueue;
+    }
+
+    private final class Pool {
+        private final IntSupplier capacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        // Guarded by lock
+        private final LaneQueue[] lanes;
+        private int laneIndex;
+        private int running;
+        private int waiting;
+
+        private Pool(IntSupplier capacity, LaneQueue[] lanes) {
+            this.capacity = capacity;
+            this.lanes = lanes;
+        }
+
+        private int capacity() {
+            // At least one, so a pool whose limit is misreported still makes progress
+            return Math.max(1, Math.min(maxConcurrent, capacity.getAsInt()));
+        }
+
+        private void acquire(long userId, Lane lane) {
+            LaneQueue laneQueue = lanes[lane.ordinal()];
+            long start = System.nanoTime();
+            Ticket ticket = null;
+            lock.lock();
+            try {
+                if (running < capacity() && waiting == 0) {
+                    running++;
+                    laneQueue.wait.record(0, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                TenantQueue tenant = laneQueue.tenants.computeIfAbsent(userId, TenantQueue::new);
+                ticket = new Ticket(tenant, lock.newCondition());
+                tenant.tickets.addLast(ticket);
+                if (tenant.tickets.size() == 1) {
+                    laneQueue.active.addLast(tenant);
+                }
+                laneQueue.queued++;
+                waiting++;
+
+                long remainingNanos = TimeUnit.MILLISECONDS.toNanos(laneQueue.maxWaitMs);
+                while (!ticket.granted && remainingNanos > 0) {
+                    remainingNanos = ticket.turn.awaitNanos(remainingNanos);
+                }
+                if (!ticket.granted) {
+                    withdraw(laneQueue, ticket);
+                    throw new AiCallGuard.UnavailableException("no turn within " + laneQueue.maxWaitMs + "ms in the "
+                            + lane.name().toLowerCase() + " queue");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (ticket != null && !ticket.granted) {
+                    withdraw(laneQueue, ticket);
+                    throw new AiCallGuard.UnavailableException("interrupted while queued");
+                }
+            } finally {
+                lock.unlock();
+            }
+            laneQueue.wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        private void release() {
+            lock.lock();
+            try {
+                running--;
+                // The capacity is re-read for every grant, so a limit that grew is used straight away
+                while (waiting > 0 && running < capacity()) {
+                    Ticket next = nextTicket();
+                    next.granted = true;
+                    running++;
+                    waiting--;
+                    next.turn.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Must hold lock, with waiting > 0
+        private Ticket nextTicket() {
+            // Deficit round-robin over the lanes: a lane spends its weight in turns, then the next one gets its weight
+            while (true) {
+                LaneQueue lane = lanes[laneIndex];
+                if (lane.active.isEmpty()) {
+                    lane.deficit = 0;
+                } else if (lane.deficit >= 1) {
+                    lane.deficit--;
+                    return lane.next();
+                }
+                laneIndex = (laneIndex + 1) % lanes.length;
+                if (!lanes[laneIndex].active.isEmpty()) {
+                    lanes[laneIndex].deficit += lanes[laneIndex].weight;
+                }
+            }
+        }
+
+        // Must hold lock
+        private void withdraw(LaneQueue lane, Ticket ticket) {
+            TenantQueue tenant = ticket.tenant;
+            if (tenant.tickets.remove(ticket)) {
+                waiting--;
+                lane.queued--;
+                if (tenant.tickets.isEmpty()) {
+                    lane.active.remove(tenant);
+                    lane.tenants.remove(tenant.userId);
+                }
+            }
+        }
+    }
+
+    private static final class LaneQueue {
+        private final int weight;
+        private final long maxWaitMs;
+        private final Timer wait;
+        // Guarded by the pool's lock; only users with waiting calls, so idle users cost nothing
+        private final Map<Long, TenantQueue> tenants = new HashMap<>();
+        // Users with waiting calls, in round-robin order
+        private final ArrayDeque<TenantQueue> active = new ArrayDeque<>();
+        private int deficit;
+        private int queued;
+
+        private LaneQueue(int weight, long maxWaitMs, Timer wait) {
+            this.weight = Math.max(1, weight);
+            this.maxWaitMs = maxWaitMs;
+            this.wait = wait;
+        }
+
+        private Ticket next() {
+            TenantQueue tenant = active.pollFirst();
+            Ticket ticket = tenant.tickets.pollFirst();
+            queued--;
+            if (tenant.tickets.isEmpty()) {
+                tenants.remove(tenant.userId);
+            } else {
+                active.addLast(tenant);
+            }
+            return ticket;
+        }
+    }
+
+    private static final class TenantQueue {
+        private final long userId;
+        private final ArrayDeque<Ticket> tickets = new ArrayDeque<>();
+
+        private TenantQueue(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Ticket {
+        private final TenantQueue tenant;
+        private final Condition turn;
+        private boolean granted;
+
+        private Ticket(TenantQueue tenant, Condition turn) {
+            this.tenant = tenant;
+            this.turn = turn;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package com.audit.content.service;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.AbstractExecutionAwareRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedged requests to the AI service.
+ * Calls on a hedging route go to an ai-service instance from Consul discovery (ai-service registers
+ * itself when CONSUL_HOST is set), and when one has not answered within the p95 latency observed for
+ * that route, the same request is sent to a different instance; whichever answers first wins and the
+ * other is aborted, which closes its connection and so frees its slot in the AI service. Hedges
+ * are paid for from a budget that every primary request tops up by budget-percent of a hedge,
+ * so hedging can never add more than that share of extra load. Routes are the AI client's
+ * endpoints: text, text-batch, image and image-binary. With fewer than two instances registered
+ * there is nowhere to hedge to, and calls go unhedged to the configured URL. Aborting needs the
+ * underlying Apache request, so the Feign client must run on {@link #abortable(CloseableHttpClient)}.
+ */
+@Component
+public class AiRequestHedger {
+
+    private static final Logger log = LoggerFactory.getLogger(AiRequestHedger.class);
+
+    // Hedges that can be saved up in quiet periods; the budget itself counts thousandths of a hedge
+    private static final long MAX_SAVED_HEDGES = 10;
+
+    // The attempt running on the current thread, for the abortable client to register its request with
+    private static final ThreadLocal<Attempt> CURRENT_ATTEMPT = new ThreadLocal<>();
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.ai.hedge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${audit.ai.hedge.service-id:ai-service}")
+    private String serviceId;
+
+    @Value("${audit.ai.hedge.routes:text}")
+    private String[] hedgedRoutes;
+
+    @Value("${audit.ai.hedge.budget-percent:10}")
+    private double budgetPercent;
+
+    @Value("${audit.ai.hedge.window-size:1000}")
+    private int windowSize;
+
+    @Value("${audit.ai.hedge.min-samples:200}")
+    private int minSamples;
+
+    @Value("${audit.ai.hedge.min-delay-ms:50}")
+    private long minDelayMs;
+
+    @Value("${audit.ai.hedge.instances-refresh-seconds:15}")
+    private long instancesRefreshSeconds;
+
+    private final List<Route> routes = new ArrayList<>();
+    private final AtomicLong budgetMillis = new AtomicLong();
+    private volatile List<URI> instances = Collections.emptyList();
+
+    private ExecutorService attempts;
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void init() {
+        // Longest path first, "/ai/text/audit" is a prefix of the batch path
+        routes.add(new Route("text-batch", "/ai/text/audit:batch"));
+        routes.add(new Route("text", "/ai/text/audit"));
+        routes.add(new Route("image-binary", "/ai/image/audit:binary"));
+        routes.add(new Route("image", "/ai/image/audit"));
+        attempts = Executors.newCachedThreadPool(BatchAuditExecutor.namedThreads("ai-hedge-"));
+        if (enabled) {
+            refresher = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("ai-hedge-discovery-"));
+            refresher.scheduleWithFixedDelay(this::refreshInstances, 0, instancesRefreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        attempts.shutdownNow();
+    }
+
+    /**
+     * The given client with its requests registered with the hedged attempt running them, so a
+     * losing attempt can be aborted. Closing it leaves the shared client open.
+     */
+    public CloseableHttpClient abortable(CloseableHttpClient client) {
+        return new AbortableClient(client);
+    }
+
+    /**
+     * Execute a Feign request, hedging it if its route is enabled and it is slow.
+     */
+    public Response execute(Client delegate, Request request, Request.Options options) throws IOException {
+        Route route = routeOf(request.url());
+        if (route == null) {
+            return delegate.execute(request, options);
+        }
+        long start = System.nanoTime();
+        if (!enabled || !route.hedged) {
+            Response response = delegate.execute(request, options);
+            route.recordPrimary(System.nanoTime() - start);
+            return response;
+        }
+
+        List<URI> known = instances;
+        if (known.size() < 2) {
+            route.noInstance.increment();
+            Response response = delegate.execute(request, options);
+            route.recordPrimary(System.nanoTime() - start);
+            return response;
+        }
+        // The primary also goes to a discovered instance, otherwise the hedge may hit the same one
+        request = retarget(request, known.get(ThreadLocalRandom.current().nextInt(known.size())));
+
+        topUpBudget();
+        Attempt primaryAttempt = new Attempt();
+        CompletionService<Response> completion = new ExecutorCompletionService<>(attempts);
+        Future<Response> primary = completion.submit(attempt(delegate, request, options, route, start, primaryAttempt, true));
+
+        Response response;
+        long delayNanos = route.hedgeDelayNanos();
+        if (delayNanos < 0) {
+            response = await(primary, primaryAttempt);
+        } else {
+            response = awaitWithHedge(delegate, request, options, route, start, completion, primary, primaryAttempt, delayNanos);
+        }
+        route.effective.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return response;
+    }
+
+    private Response awaitWithHedge(Client delegate, Request request, Request.Options options, Route route, long start,
+                                    CompletionService<Response> completion, Future<Response> primary,
+                                    Attempt primaryAttempt, long delayNanos) throws IOException {
+        try {
+            return primary.get(delayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Slower than p95, hedge below
+        } catch (InterruptedException e) {
+            primaryAttempt.abandon();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the AI service", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        URI alternate = alternateInstance(request.url());
+        if (alternate == null) {
+            route.noInstance.increment();
+            return await(primary, primaryAttempt);
+        }
+        if (!takeHedgeFromBudget()) {
+            route.budgetExhausted.increment();
+            return await(primary, primaryAttempt);
+        }
+        route.sent.increment();
+        Attempt hedgeAttempt = new Attempt();
+        Request hedgeRequest = retarget(request, alternate);
+        Future<Response> hedge = completion.submit(attempt(delegate, hedgeRequest, options, route, System.nanoTime(), hedgeAttempt, false));
+
+        // First usable answer wins; a server error only wins if the other attempt fails as well
+        Throwable firstFailure = null;
+        Response fallback = null;
+        for (int pending = 2; pending > 0; pending--) {
+            Future<Response> done;
+            try {
+                done = completion.take();
+            } catch (InterruptedException e) {
+                primaryAttempt.abandon();
+                hedgeAttempt.abandon();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the AI service", e);
+            }
+            boolean isHedge = done == hedge;
+            try {
+                Response response = done.get();
+                if (response.status() >= 500 && pending > 1) {
+                    fallback = response;
+                    continue;
+                }
+                // Aborts the loser's request, or closes its response (the fallback) if it has one
+                (isHedge ? primaryAttempt : hedgeAttempt).abandon();
+                if (isHedge) {
+                    route.won.increment();
+                }
+                return response;
+            } catch (ExecutionException e) {
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the AI service", e);
+            }
+        }
+        if (fallback != null) {
+            return fallback;
+        }
+        throw unwrap((ExecutionException) firstFailure);
+    }
+
+    private Callable<Response> attempt(Client delegate, Request request, Request.Options options, Route route,
+                                       long start, Attempt attempt, boolean primary) {
+        return () -> {
+            Response response;
+            CURRENT_ATTEMPT.set(attempt);
+            try {
+                response = delegate.execute(request, options);
+            } catch (IOException | RuntimeException e) {
+                if (primary && attempt.isAbandoned()) {
+                    // Aborted because the hedge won; it would have taken at least this long
+                    route.recordPrimary(System.nanoTime() - start);
+                }
+                throw e;
+            } finally {
+                CURRENT_ATTEMPT.remove();
+            }
+            if (primary) {
+                // The latency the call would have had without hedging, even if it lost
+                route.recordPrimary(System.nanoTime() - start);
+            }
+            if (!attempt.deliver(response)) {
+                // Lost while the response was on its way, nobody else will close it
+                response.close();
+            }
+            return response;
+        };
+    }
+
+    private Response await(Future<Response> future, Attempt attempt) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            attempt.abandon();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the AI service", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private void topUpBudget() {
+        long share = (long) (budgetPercent * 10);
+        budgetMillis.getAndUpdate(current -> Math.min(MAX_SAVED_HEDGES * 1000, current + share));
+    }
+
+    private boolean takeHedgeFromBudget() {
+        while (true) {
+            long current = budgetMillis.get();
+            if (current < 1000) {
+                return false;
+            }
+            if (budgetMillis.compareAndSet(current, current - 1000)) {
+                return true;
+            }
+        }
+    }
+
+    private Route routeOf(String url) {
+        String path = URI.create(url).getPath();
+        for (Route route : routes) {
+            if (path.endsWith(route.path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private URI alternateInstance(String url) {
+        URI current = URI.create(url);
+        List<URI> candidates = new ArrayList<>();
+        for (URI instance : instances) {
+            if (!(instance.getHost().equalsIgnoreCase(current.getHost()) && instance.getPort() == port(current))) {
+                candidates.add(instance);
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() >= 0) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private static Request retarget(Request request, URI instance) {
+        return Request.create(request.httpMethod(), rewrite(request.url(), instance),
+                request.headers(), request.body(), request.charset(), request.requestTemplate());
+    }
+
+    private static String rewrite(String url, URI instance) {
+        URI original = URI.create(url);
+        String query = original.getRawQuery() != null ? "?" + original.getRawQuery() : "";
+        return instance.getScheme() + "://" + instance.getHost() + ":" + instance.getPort() + original.getRawPath() + query;
+    }
+
+    private void refreshInstances() {
+        try {
+            List<URI> discovered = new ArrayList<>();
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                discovered.add(URI.create((instance.isSecure() ? "https" : "http") + "://" + instance.getHost() + ":" + instance.getPort()));
+            }
+            if (!discovered.equals(instances)) {
+                log.info("[AiRequestHedger] {} instances of {}: {}", discovered.size(), serviceId, discovered);
+            }
+            instances = discovered;
+        } catch (Exception e) {
+            // Keep the last known instances
+            log.warn("[AiRequestHedger] Discovery of {} failed: {}", serviceId, e.getMessage());
+        }
+    }
+
+    /**
+     * One attempt of a hedged call. Whichever of abandon() and deliver() comes second cleans up:
+     * an abandoned attempt aborts its request, and closes its response if one was delivered
+     * already or arrives later.
+     */
+    private static final class Attempt {
+        // Guarded by this
+        private AbstractExecutionAwareRequest request;
+        private Response response;
+        private boolean abandoned;
+
+        synchronized void started(AbstractExecutionAwareRequest request) {
+            this.request = request;
+            if (abandoned) {
+                request.abort();
+            }
+        }
+
+        /**
+         * Hand the response over, or return false if the attempt was abandoned and the caller must close it.
+         */
+        synchronized boolean deliver(Response response) {
+            if (abandoned) {
+                return false;
+            }
+            this.response = response;
+            return true;
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        synchronized void abandon() {
+            if (abandoned) {
+                return;
+            }
+            abandoned = true;
+            if (response != null) {
+                response.close();
+            } else if (request != null) {
+                request.abort();
+            }
+        }
+    }
+
+    /**
+     * Registers each request with the attempt running it, see {@link Attempt#started}.
+     */
+    private static final class AbortableClient extends CloseableHttpClient {
+        private final CloseableHttpClient delegate;
+
+        private AbortableClient(CloseableHttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+                throws IOException, ClientProtocolException {
+            Attempt attempt = CURRENT_ATTEMPT.get();
+            if (attempt != null && request instanceof AbstractExecutionAwareRequest) {
+                attempt.started((AbstractExecutionAwareRequest) request);
+            }
+            return delegate.execute(target, request, context);
+        }
+
+        @Override
+        public void close() {
+            // The shared client is closed by its own bean
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public HttpParams getParams() {
+            return delegate.getParams();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public ClientConnectionManager getConnectionManager() {
+            return delegate.getConnectionManager();
+        }
+    }
+
+    /**
+     * Per-route latency window and metrics. The p95 over the last window-size primary
+     * attempts is recomputed every few samples and used as the hedge delay.
+     */
+    private final class Route {
+        private final String path;
+        private final boolean hedged;
+        private final long[] window = new long[windowSize];
+        private int next;
+        private int samples;
+        private volatile long p95Nanos = -1;
+
+        private final Timer primaryLatency;
+        private final Timer effective;
+        private final Counter sent;
+        private final Counter won;
+        private final Counter budgetExhausted;
+        private final Counter noInstance;
+
+        private Route(String name, String path) {
+            this.path = path;
+            this.hedged = Arrays.asList(hedgedRoutes).contains(name);
+            primaryLatency = latencyTimer(name, "primary");
+            effective = latencyTimer(name, "effective");
+            sent = hedgeCounter(name, "sent");
+            won = hedgeCounter(name, "won");
+            budgetExhausted = hedgeCounter(name, "budget-exhausted");
+            noInstance = hedgeCounter(name, "no-instance");
+        }
+
+        private Timer latencyTimer(String route, String attempt) {
+            return Timer.builder("audit.ai.hedge.latency")
+                    .tag("route", route)
+                    .tag("attempt", attempt)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        private Counter hedgeCounter(String route, String result) {
+            return Counter.builder("audit.ai.hedge.requests").tag("route", route).tag("result", result).register(meterRegistry);
+        }
+
+        private void recordPrimary(long nanos) {
+            primaryLatency.record(nanos, TimeUnit.NANOSECONDS);
+            long[] snapshot = null;
+            int count;
+            synchronized (this) {
+                window[next] = nanos;
+                next = (next + 1) % window.length;
+                samples++;
+                count = Math.min(samples, window.length);
+                if (count >= minSamples && samples % 20 == 0) {
+                    snapshot = Arrays.copyOf(window, count);
+                }
+            }
+            if (snapshot != null) {
+                Arrays.sort(snapshot);
+                p95Nanos = snapshot[(int) Math.ceil(count * 0.95) - 1];
+            }
+        }
+
+        /**
+         * The hedge delay, or -1 while there are too few samples to know the p95.
+         */
+        private long hedgeDelayNanos() {
+            long p95 = p95Nanos;
+            return p95 < 0 ? -1 : Math.max(p95, TimeUnit.MILLISECONDS.toNanos(minDelayMs));
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.audit.content.service;
+
+import com.audit.content.client.AiServiceClient;
+import com.audit.content.dto.AiAuditResponse;
+import com.audit.content.dto.AiBatchAuditResponse;
+import com.audit.content.dto.AiTextAuditRequest;
+import com.audit.content.dto.AiTextBatchAuditRequest;
+import feign.FeignException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects concurrent text audits for a few milliseconds and sends them to the AI service
+ * as one /ai/text/audit:batch call. A batch is flushed when it reaches max-size or when the
+ * window of its first item elapses, whichever comes first. Callers still see one blocking call
+ * per item; a failure of one item in a batch is reported to that item's caller only. Every call
+ * to the AI service, single or batch, goes through the {@link AiCallGuard}. Batches waiting for
+ * a flusher and callers waiting for their batch are both bounded; past either bound the caller
+ * gets {@link AiCallGuard.UnavailableException} like any other rejected call.
+ */
+@Component
+public class AiTextMicroBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(AiTextMicroBatcher.class);
+
+    // How long to stay on single calls after the AI service turned out not to know the batch endpoint
+    private static final long BATCH_ENDPOINT_RETRY_MS = 60_000;
+
+    @Autowired
+    private AiServiceClient aiServiceClient;
+
+    @Autowired
+    private AiCallGuard aiCallGuard;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.ai.micro-batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.ai.micro-batch.max-size:16}")
+    private int maxSize;
+
+    @Value("${audit.ai.micro-batch.window-ms:5}")
+    private long windowMs;
+
+    @Value("${audit.ai.micro-batch.max-concurrent-flushes:8}")
+    private int maxConcurrentFlushes;
+
+    @Value("${audit.ai.micro-batch.max-queued-flushes:16}")
+    private int maxQueuedFlushes;
+
+    @Value("${audit.ai.micro-batch.await-timeout-ms:125000}")
+    private long awaitTimeoutMs;
+
+    private final Object lock = new Object();
+    private List<Pending> pending = new ArrayList<>();
+    private ScheduledFuture<?> windowTimer;
+    private volatile long batchEndpointRetryAt;
+
+    private ScheduledExecutorService timer;
+    private ExecutorService flushers;
+    private DistributionSummary batchSizes;
+    private Timer batchCalls;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("ai-batch-timer-"));
+        flushers = new ThreadPoolExecutor(maxConcurrentFlushes, maxConcurrentFlushes, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedFlushes), BatchAuditExecutor.namedThreads("ai-batch-flush-"));
+        batchSizes = DistributionSummary.builder("audit.ai.micro-batch.size").register(meterRegistry);
+        batchCalls = Timer.builder("audit.ai.micro-batch.calls").publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        timer.shutdown();
+        flushers.shutdown();
+    }
+
+    /**
+     * Audit one text, possibly together with other texts submitted within the same window.
+     */
+    public AiAuditResponse audit(AiTextAuditRequest request) {
+        if (!enabled || maxSize <= 1) {
+            return aiCallGuard.call("text", () -> aiServiceClient.auditText(request));
+        }
+        // No point waiting for a batch that will not be sent
+        if (!aiCallGuard.isCallPermitted()) {
+            throw new AiCallGuard.UnavailableException("circuit breaker open");
+        }
+
+        Pending item = new Pending(request);
+        List<Pending> full = null;
+        synchronized (lock) {
+            pending.add(item);
+            if (pending.size() >= maxSize) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                windowTimer = timer.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return await(item.future);
+    }
+
+    /**
+     * How many texts can be in flight at once without the {@link AiCallGuard} turning calls away:
+     * the guard's limit on the calls this batcher makes, times the items each call carries.
+     */
+    public int capacity() {
+        if (!enabled || maxSize <= 1) {
+            return aiCallGuard.getLimit("text");
+        }
+        if (System.currentTimeMillis() < batchEndpointRetryAt) {
+            // Each flusher sends its items one at a time
+            return Math.min(aiCallGuard.getLimit("text"), maxConcurrentFlushes);
+        }
+        return Math.min(aiCallGuard.getLimit("text-batch"), maxConcurrentFlushes) * maxSize;
+    }
+
+    private void flush() {
+        List<Pending> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    // Must hold lock
+    private List<Pending> takePending() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>(maxSize);
+        if (windowTimer != null) {
+            windowTimer.cancel(false);
+            windowTimer = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Pending> batch) {
+        try {
+            flushers.execute(() -> send(batch));
+        } catch (RejectedExecutionException e) {
+            AiCallGuard.UnavailableException unavailable = new AiCallGuard.UnavailableException(
+                    "micro-batch queue of " + maxQueuedFlushes + " batches is full");
+            batch.forEach(p -> p.future.completeExceptionally(unavailable));
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.future.completeExceptionally(e));
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        if (batch.size() == 1 || System.currentTimeMillis() < batchEndpointRetryAt) {
+            sendIndividually(batch);
+            return;
+        }
+
+        AiTextBatchAuditRequest request = new AiTextBatchAuditRequest();
+        List<AiTextAuditRequest> items = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            items.add(p.request);
+        }
+        request.setItems(items);
+
+        AiBatchAuditResponse response;
+        try {
+            response = batchCalls.recordCallable(() -> aiCallGuard.call("text-batch", () -> aiServiceClient.auditTextBatch(request)));
+        } catch (FeignException.NotFound e) {
+            log.warn("[AiTextMicroBatcher] AI service has no batch endpoint, using single calls for {}ms", BATCH_ENDPOINT_RETRY_MS);
+            batchEndpointRetryAt = System.currentTimeMillis() + BATCH_ENDPOINT_RETRY_MS;
+            sendIndividually(batch);
+            return;
+        } catch (Exception e) {
+            log.error("[AiTextMicroBatcher] Batch of {} failed: {}", batch.size(), e.getMessage());
+            batch.forEach(p -> p.future.completeExceptionally(e));
+            return;
+        }
+
+        List<AiAuditResponse> results = response != null ? response.getResults() : null;
+        List<String> errors = response != null ? response.getErrors() : null;
+        for (int i = 0; i < batch.size(); i++) {
+            AiAuditResponse result = results != null && i < results.size() ? results.get(i) : null;
+            if (result != null) {
+                batch.get(i).future.complete(result);
+            } else {
+                String error = errors != null && i < errors.size() && errors.get(i) != null
+                        ? errors.get(i) : "No result returned for batch item " + i;
+                batch.get(i).future.completeExceptionally(new RuntimeException("AI audit failed: " + error));
+            }
+        }
+    }
+
+    private void sendIndividually(List<Pending> batch) {
+        for (Pending p : batch) {
+            try {
+                p.future.complete(aiCallGuard.call("text", () -> aiServiceClient.auditText(p.request)));
+            } catch (Exception e) {
+                p.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private AiAuditResponse await(CompletableFuture<AiAuditResponse> future) {
+        try {
+            return future.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new AiCallGuard.UnavailableException("no micro-batch result within " + awaitTimeoutMs + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for AI audit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("AI audit failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static final class Pending {
+        private final AiTextAuditRequest request;
+        private final CompletableFuture<AiAuditResponse> future = new CompletableFuture<>();
+
+        private Pending(AiTextAuditRequest request) {
+            this.request = request;
+        }
+    }
+}
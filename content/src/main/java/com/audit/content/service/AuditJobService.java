@@ -0,0 +1,123 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import com.audit.content.dto.AuditResult;
+import com.audit.content.dto.BatchAuditRequest;
+import com.audit.content.dto.BatchAuditStreamItem;
+import com.audit.content.entity.AuditJob;
+import com.audit.content.entity.AuditJobItem;
+import com.audit.content.repository.AuditJobItemRepository;
+import com.audit.content.repository.AuditJobQueueRepository;
+import com.audit.content.repository.AuditJobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Asynchronous batch audits. A submitted batch is persisted as a job plus one queue row per item
+ * and processed by {@link AuditJobWorker} threads on any replica; clients poll for progress and
+ * fetch results incrementally.
+ */
+@Service
+public class AuditJobService {
+
+    private static final int MAX_RESULTS_PAGE = 500;
+
+    @Autowired
+    private AuditJobRepository auditJobRepository;
+
+    @Autowired
+    private AuditJobItemRepository auditJobItemRepository;
+
+    @Autowired
+    private AuditJobQueueRepository auditJobQueueRepository;
+
+    @Value("${audit.jobs.max-items:10000}")
+    private int maxItems;
+
+    @Transactional
+    public AuditJob submit(String userInfo, BatchAuditRequest request) {
+        List<BatchAuditRequest.AuditItem> items = request.getItems();
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("Job must contain at least one item");
+        }
+        if (items.size() > maxItems) {
+            throw new RuntimeException("Job exceeds the maximum of " + maxItems + " items");
+        }
+
+        AuditJob job = new AuditJob();
+        job.setUserId(extractUserId(userInfo));
+        job.setUserInfo(userInfo);
+        job.setStatus(AuditJob.JobStatus.QUEUED);
+        job.setTotalItems(items.size());
+        job.setProcessedItems(0);
+        job.setFailedItems(0);
+        job = auditJobRepository.save(job);
+
+        List<String> itemJson = new ArrayList<>(items.size());
+        for (BatchAuditRequest.AuditItem item : items) {
+            itemJson.add(JSON.toJSONString(item));
+        }
+        auditJobQueueRepository.insertItems(job.getId(), itemJson);
+        return job;
+    }
+
+    public AuditJob getJob(String userInfo, Long jobId) {
+        return auditJobRepository.findByIdAndUserId(jobId, extractUserId(userInfo))
+                .orElseThrow(() -> new RuntimeException("Audit job not found"));
+    }
+
+    /**
+     * Finished results in index order, starting after afterIndex (-1 for the beginning).
+     */
+    public List<BatchAuditStreamItem> getResults(String userInfo, Long jobId, int afterIndex, int limit) {
+        checkOwnership(userInfo, jobId);
+        int pageSize = Math.max(1, Math.min(limit, MAX_RESULTS_PAGE));
+        List<AuditJobItem> items = auditJobItemRepository.findFinishedAfter(jobId, afterIndex, PageRequest.of(0, pageSize));
+
+        List<BatchAuditStreamItem> results = new ArrayList<>(items.size());
+        for (AuditJobItem item : items) {
+            AuditResult result = item.getResult() != null
+                    ? JSON.parseObject(JSON.toJSONString(item.getResult()), AuditResult.class) : null;
+            results.add(new BatchAuditStreamItem(item.getItemIndex(), result));
+        }
+        return results;
+    }
+
+    /**
+     * Stop a job: items not started yet are skipped, items in flight still finish.
+     */
+    public AuditJob cancel(String userInfo, Long jobId) {
+        checkOwnership(userInfo, jobId);
+        // Plain UPDATE so the progress counters written concurrently by workers are not overwritten
+        if (auditJobQueueRepository.cancelJob(jobId)) {
+            auditJobQueueRepository.cancelPending(jobId);
+        }
+        return auditJobRepository.findById(jobId).orElseThrow(() -> new RuntimeException("Audit job not found"));
+    }
+
+    private void checkOwnership(String userInfo, Long jobId) {
+        if (!auditJobRepository.existsByIdAndUserId(jobId, extractUserId(userInfo))) {
+            throw new RuntimeException("Audit job not found");
+        }
+    }
+
+    private Long extractUserId(String userInfo) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
+        Object userIdObj = userMap.get("id");
+        if (userIdObj == null) {
+            userIdObj = userMap.get("userId"); // Fallback to "userId" for backward compatibility
+        }
+        if (userIdObj == null) {
+            throw new RuntimeException("Missing userId in user info. Please clear browser storage and login again. User info: " + userInfo);
+        }
+        return Long.valueOf(userIdObj.toString());
+    }
+}
@@ -0,0 +1,208 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import com.audit.content.dto.AuditResult;
+import com.audit.content.dto.BatchAuditRequest;
+import com.audit.content.entity.AuditJob;
+import com.audit.content.repository.AuditJobQueueRepository;
+import com.audit.content.repository.AuditJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls audit job items from the Postgres queue and audits them.
+ * Workers are independent of the API: any replica with audit.jobs.worker.enabled runs them,
+ * so they can be scaled separately (e.g. a worker-only deployment with more threads).
+ * Leases of claimed items are renewed while they wait and run, however long they queue in the
+ * {@link AiCallScheduler}, so items left RUNNING are only picked up again once the replica
+ * that claimed them died.
+ */
+@Component
+@Lazy(false)
+public class AuditJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditJobWorker.class);
+
+    @Autowired
+    private AuditJobQueueRepository auditJobQueueRepository;
+
+    @Autowired
+    private AuditJobRepository auditJobRepository;
+
+    @Autowired
+    private ContentAuditService contentAuditService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.jobs.worker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.jobs.worker.threads:4}")
+    private int threads;
+
+    @Value("${audit.jobs.worker.claim-size:1}")
+    private int claimSize;
+
+    @Value("${audit.jobs.worker.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${audit.jobs.worker.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${audit.jobs.worker.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${audit.jobs.worker.unavailable-retry-seconds:30}")
+    private long unavailableRetrySeconds;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final Map<AuditJobQueueRepository.ClaimedItem, String> heldItems = new ConcurrentHashMap<>();
+    private ScheduledExecutorService renewer;
+    private volatile boolean running;
+
+    private Counter processed;
+    private Counter failed;
+    private Counter deferred;
+
+    @PostConstruct
+    public void start() {
+        processed = Counter.builder("audit.jobs.items").tag("result", "done").register(meterRegistry);
+        failed = Counter.builder("audit.jobs.items").tag("result", "error").register(meterRegistry);
+        deferred = Counter.builder("audit.jobs.items").tag("result", "deferred").register(meterRegistry);
+        if (!enabled) {
+            log.info("[AuditJobWorker] Job workers disabled on this replica");
+            return;
+        }
+
+        running = true;
+        long renewIntervalSeconds = Math.max(1, leaseSeconds / 3);
+        renewer = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("audit-job-lease-"));
+        renewer.scheduleWithFixedDelay(this::renewLeases, renewIntervalSeconds, renewIntervalSeconds, TimeUnit.SECONDS);
+        for (int i = 1; i <= threads; i++) {
+            String workerId = nodeId + "-" + i;
+            Thread thread = new Thread(() -> runLoop(workerId), "audit-job-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+        log.info("[AuditJobWorker] Started {} job workers ({})", threads, nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Items in flight keep their lease and are picked up again after it expires
+        running = false;
+        workerThreads.forEach(Thread::interrupt);
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+    }
+
+    private void runLoop(String workerId) {
+        while (running) {
+            try {
+                List<AuditJobQueueRepository.ClaimedItem> claimed = auditJobQueueRepository.claim(workerId, claimSize, leaseSeconds);
+                if (claimed.isEmpty()) {
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+                claimed.forEach(item -> heldItems.put(item, workerId));
+                try {
+                    for (AuditJobQueueRepository.ClaimedItem item : claimed) {
+                        try {
+                            process(workerId, item);
+                        } finally {
+                            heldItems.remove(item);
+                        }
+                    }
+                } finally {
+                    // Items not reached keep their lease until it runs out
+                    claimed.forEach(heldItems::remove);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Database trouble: back off and try again
+                log.error("[AuditJobWorker] Worker {} failed to claim items: {}", workerId, e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(String workerId, AuditJobQueueRepository.ClaimedItem item) {
+        AuditResult result;
+        if (item.getAttempts() > maxAttempts) {
+            // Every earlier attempt lost its lease or was deferred, e.g. the item takes a replica down with it
+            result = new AuditResult();
+            result.setStatus("ERROR");
+            result.setReason("Audit failed: gave up after " + maxAttempts + " attempts");
+        } else {
+            String userInfo = auditJobRepository.findById(item.getJobId()).map(AuditJob::getUserInfo).orElse(null);
+            if (userInfo == null) {
+                // The job was deleted since the claim, and its items with it
+                return;
+            }
+            BatchAuditRequest.AuditItem auditItem = JSON.parseObject(item.getItemJson(), BatchAuditRequest.AuditItem.class);
+            result = contentAuditService.auditBatchItem(userInfo, auditItem, item.getAttempts() < maxAttempts);
+        }
+
+        if (Boolean.TRUE.equals(result.getDegraded())) {
+            // The AI service turned the item away; try again once it had time to recover
+            if (auditJobQueueRepository.retryLater(item, workerId, unavailableRetrySeconds)) {
+                deferred.increment();
+            }
+            return;
+        }
+
+        boolean isError = "ERROR".equals(result.getStatus());
+        if (auditJobQueueRepository.complete(item, workerId, isError, JSON.toJSONString(result))) {
+            (isError ? failed : processed).increment();
+        } else {
+            log.warn("[AuditJobWorker] Lease on job {} item {} was lost, result discarded", item.getJobId(), item.getItemIndex());
+        }
+    }
+
+    /**
+     * Extend the leases of the items this replica holds, so a slow but healthy item is not
+     * claimed a second time while its first attempt still runs.
+     */
+    private void renewLeases() {
+        if (heldItems.isEmpty()) {
+            return;
+        }
+        try {
+            for (AuditJobQueueRepository.ClaimedItem item : auditJobQueueRepository.renewLeases(heldItems, leaseSeconds)) {
+                // Expired while the database was unreachable; its result will be discarded on completion
+                heldItems.remove(item);
+                log.warn("[AuditJobWorker] Lost lease on job {} item {} while it was running", item.getJobId(), item.getItemIndex());
+            }
+        } catch (Exception e) {
+            log.warn("[AuditJobWorker] Failed to renew item leases: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import com.audit.content.entity.AuditRecord;
+import com.audit.content.repository.AuditStatisticsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for audit records.
+ * Records are queued in memory and a single writer thread inserts them into audit_records
+ * in JDBC batches (rewritten into multi-row INSERTs by the driver). The queue is bounded:
+ * when it is full, callers wait briefly and then insert their own record synchronously, so
+ * a slow database slows audits down instead of losing records. Remaining records are
+ * flushed on graceful shutdown. Each flush also adds its counts to the audit_statistics
+ * rollup in the same transaction, and to the live Redis counters once committed.
+ */
+@Component
+public class AuditRecordWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditRecordWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_records (user_id, content_type, content_text, content_url, content_hash, " +
+            "audit_result, confidence, status, ai_result, rule_results, created_at, updated_at, content_blob) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditStatisticsRepository auditStatisticsRepository;
+
+    @Autowired
+    private AuditStatisticsCounters auditStatisticsCounters;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.records.writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${audit.records.writer.flush-size:500}")
+    private int flushSize;
+
+    @Value("${audit.records.writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${audit.records.writer.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<AuditRecord> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private DistributionSummary flushSizes;
+    private Counter written;
+    private Counter failed;
+    private Counter callerRuns;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("audit.records.writer.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        flushTimer = Timer.builder("audit.records.writer.flush").publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+        flushSizes = DistributionSummary.builder("audit.records.writer.flush.size").register(meterRegistry);
+        written = Counter.builder("audit.records.writer.records").tag("result", "written").register(meterRegistry);
+        failed = Counter.builder("audit.records.writer.records").tag("result", "failed").register(meterRegistry);
+        callerRuns = Counter.builder("audit.records.writer.caller.runs").register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::drainLoop, "audit-record-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queue a record for insertion. Blocks for at most offer-timeout-ms when the queue is
+     * full, then writes the record on the calling thread.
+     */
+    public void enqueue(AuditRecord record) {
+        LocalDateTime now = LocalDateTime.now();
+        record.setCreatedAt(now);
+        record.setUpdatedAt(now);
+
+        try {
+            if (running && queue.offer(record, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        callerRuns.increment();
+        List<AuditRecord> single = new ArrayList<>(1);
+        single.add(record);
+        flush(single);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Whatever the writer thread did not get to
+        List<AuditRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += flushSize) {
+            flush(remaining.subList(i, Math.min(remaining.size(), i + flushSize)));
+        }
+        log.info("[AuditRecordWriter] Shutdown complete, flushed {} remaining records", remaining.size());
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<AuditRecord> batch = new ArrayList<>(flushSize);
+        while (running) {
+            try {
+                AuditRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it is full or the interval since the first record has passed
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < flushSize) {
+                    queue.drainTo(batch, flushSize - batch.size());
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (batch.size() >= flushSize || remainingNanos <= 0) {
+                        break;
+                    }
+                    AuditRecord next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shutdown, the current batch is flushed below and the rest by shutdown()
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<AuditRecord> batch) {
+        flushSizes.record(batch.size());
+        try {
+            List<AuditStatisticsRepository.DailyCounts> deltas = AuditStatisticsRepository.countRecords(batch);
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                insertBatch(batch);
+                auditStatisticsRepository.increment(deltas);
+            }));
+            written.increment(batch.size());
+            // Only committed records are counted, so the live counters never run ahead of the table
+            auditStatisticsCounters.increment(deltas);
+        } catch (Exception e) {
+            log.error("[AuditRecordWriter] Batch insert of {} records failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (AuditRecord record : batch) {
+                try {
+                    List<AuditStatisticsRepository.DailyCounts> deltas =
+                            AuditStatisticsRepository.countRecords(Collections.singletonList(record));
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, record));
+                        auditStatisticsRepository.increment(deltas);
+                    });
+                    written.increment();
+                    auditStatisticsCounters.increment(deltas);
+                } catch (Exception rowError) {
+                    failed.increment();
+                    log.error("[AuditRecordWriter] Dropping audit record for user {} hash {}: {}",
+                            record.getUserId(), record.getContentHash(), rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private void insertBatch(List<AuditRecord> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bind(ps, batch.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    private static void bind(PreparedStatement ps, AuditRecord record) throws SQLException {
+        ps.setLong(1, record.getUserId());
+        ps.setString(2, record.getContentType().name());
+        ps.setString(3, record.getContentText());
+        ps.setString(4, record.getContentUrl());
+        ps.setString(5, record.getContentHash());
+        ps.setObject(6, toJson(record.getAuditResult()), Types.OTHER);
+        ps.setBigDecimal(7, record.getConfidence());
+        ps.setString(8, record.getStatus().name());
+        ps.setObject(9, toJson(record.getAiResult()), Types.OTHER);
+        ps.setObject(10, record.getRuleResults() != null ? JSON.toJSONString(record.getRuleResults()) : null, Types.OTHER);
+        ps.setTimestamp(11, Timestamp.valueOf(record.getCreatedAt()));
+        ps.setTimestamp(12, Timestamp.valueOf(record.getUpdatedAt()));
+        ps.setString(13, record.getContentBlob());
+    }
+
+    private static String toJson(Map<String, Object> value) {
+        return value != null ? JSON.toJSONString(value) : null;
+    }
+}
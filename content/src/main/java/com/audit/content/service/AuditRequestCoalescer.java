@@ -0,0 +1,260 @@
+package com.audit.content.service;
+
+import com.audit.content.dto.AuditResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing for verdict cache misses.
+ * Concurrent callers for the same cache key share one in-flight audit. With cluster mode
+ * enabled, a short Redis lease makes replicas wait for each other's result instead of
+ * calling the AI service for the same key at the same time. The lease is renewed while its
+ * audit runs, however long that queues in the {@link AiCallScheduler}. A caller waits for a
+ * shared audit as long as its own would have taken: its lane's max-wait plus call-timeout-ms.
+ */
+@Component
+public class AuditRequestCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditRequestCoalescer.class);
+
+    private static final String LEASE_PREFIX = "audit:lease:";
+
+    // Only the lease owner may release it
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private VerdictCache verdictCache;
+
+    @Autowired
+    private AiCallScheduler aiCallScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.coalesce.call-timeout-ms:${audit.ai.micro-batch.await-timeout-ms:125000}}")
+    private long callTimeoutMs;
+
+    @Value("${audit.coalesce.cluster.enabled:true}")
+    private boolean clusterEnabled;
+
+    @Value("${audit.coalesce.cluster.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${audit.coalesce.cluster.poll-interval-ms:50}")
+    private long pollIntervalMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, CompletableFuture<AuditResult>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> heldLeases = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService renewer;
+
+    private Counter localCoalesced;
+    private Counter remoteCoalesced;
+
+    @PostConstruct
+    public void init() {
+        localCoalesced = Counter.builder("audit.coalesce.shared").tag("scope", "local").register(meterRegistry);
+        remoteCoalesced = Counter.builder("audit.coalesce.shared").tag("scope", "cluster").register(meterRegistry);
+        if (clusterEnabled) {
+            long renewIntervalMs = Math.max(1, leaseMs / 3);
+            renewer = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("coalesce-lease-"));
+            renewer.scheduleWithFixedDelay(this::renewLeases, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the loader for the given cache key, or join an audit that is already in flight for it.
+     * The loader is expected to populate the verdict cache itself.
+     */
+    public AuditResult execute(String cacheKey, Supplier<AuditResult> loader) {
+        CompletableFuture<AuditResult> future = new CompletableFuture<>();
+        CompletableFuture<AuditResult> existing = inFlight.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            localCoalesced.increment();
+            return await(cacheKey, existing);
+        }
+
+        try {
+            AuditResult result = clusterEnabled ? loadWithLease(cacheKey, loader) : loader.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, future);
+        }
+    }
+
+    /**
+     * Wait for another caller's audit, bounded by this caller's own timeout.
+     */
+    private AuditResult await(String cacheKey, CompletableFuture<AuditResult> future) {
+        try {
+            return future.get(waitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out waiting for in-flight audit of " + cacheKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for in-flight audit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("In-flight audit failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Take the cluster lease for this key and run the loader, or wait for the replica
+     * that holds it to publish its verdict. If the holder goes away without a result
+     * (lease expired), this caller takes over.
+     */
+    private AuditResult loadWithLease(String cacheKey, Supplier<AuditResult> loader) {
+        String leaseKey = LEASE_PREFIX + cacheKey;
+        long deadline = System.currentTimeMillis() + waitTimeoutMs();
+        boolean waited = false;
+
+        while (true) {
+            Boolean acquired;
+            try {
+                acquired = stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, nodeId, leaseMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // Redis trouble must not block audits, we only lose cross-replica coalescing
+                log.warn("[Coalescer] Lease acquisition failed for {}: {}", cacheKey, e.getMessage());
+                return loader.get();
+            }
+
+            if (Boolean.TRUE.equals(acquired)) {
+                if (waited) {
+                    // The previous holder may have finished just before its lease went away
+                    AuditResult cached = verdictCache.get(cacheKey);
+                    if (cached != null) {
+                        release(leaseKey);
+                        remoteCoalesced.increment();
+                        return cached;
+                    }
+                }
+                heldLeases.add(leaseKey);
+                try {
+                    return loader.get();
+                } finally {
+                    heldLeases.remove(leaseKey);
+                    // Replicas waiting on the lease must find the verdict once it is gone
+                    try {
+                        verdictCache.flush(cacheKey);
+                    } finally {
+                        release(leaseKey);
+                    }
+                }
+            }
+
+            waited = true;
+            AuditResult cached = pollForResult(cacheKey, leaseKey, deadline);
+            if (cached != null) {
+                remoteCoalesced.increment();
+                return cached;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new RuntimeException("Timed out waiting for in-flight audit of " + cacheKey + " on another replica");
+            }
+        }
+    }
+
+    /**
+     * Poll the verdict cache while another replica holds the lease.
+     * Returns null once the lease is gone without a result, or the deadline passes.
+     */
+    private AuditResult pollForResult(String cacheKey, String leaseKey, long deadline) {
+        while (System.currentTimeMillis() < deadline) {
+            AuditResult cached = verdictCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(leaseKey))) {
+                return verdictCache.get(cacheKey);
+            }
+            try {
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for in-flight audit", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * As long as the calling thread's own audit could take: queued in its lane, then the call itself.
+     */
+    private long waitTimeoutMs() {
+        return aiCallScheduler.maxWaitMs() + callTimeoutMs;
+    }
+
+    /**
+     * Extend the leases of the audits running on this replica, so a long scheduler queue does not
+     * let another replica take over the same key.
+     */
+    private void renewLeases() {
+        for (String leaseKey : heldLeases) {
+            try {
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(leaseKey),
+                        nodeId, String.valueOf(leaseMs));
+                if (renewed == null || renewed == 0) {
+                    // Expired while Redis was unreachable and taken by another replica, nothing left to renew
+                    heldLeases.remove(leaseKey);
+                    log.warn("[Coalescer] Lost lease {} while its audit was running", leaseKey);
+                }
+            } catch (Exception e) {
+                log.warn("[Coalescer] Failed to renew lease {}: {}", leaseKey, e.getMessage());
+            }
+        }
+    }
+
+    private void release(String leaseKey) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(leaseKey), nodeId);
+        } catch (Exception e) {
+            log.warn("[Coalescer] Failed to release lease {}: {}", leaseKey, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.audit.content.service;
+
+import com.audit.content.dto.AuditStatistics;
+import com.audit.content.dto.TrendData;
+import com.audit.content.repository.AuditStatisticsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Real-time per-user audit counters in Redis.
+ * Each user has a hash of all-time totals plus one short-lived hash per day for the trend chart.
+ * Counters are incremented by a Lua script once audit records are committed and adjusted on
+ * manual review, so the statistics endpoint reads a handful of hashes in one round trip.
+ * Users whose counters changed are kept in a sorted set; once a user has been idle for a
+ * while, a reconciler recomputes their numbers from audit_records and overwrites the hashes,
+ * which corrects any drift from lost increments or Redis restarts.
+ */
+@Component
+@Lazy(false)
+public class AuditStatisticsCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditStatisticsCounters.class);
+
+    private static final String USER_PREFIX = "audit:stats:user:";
+    private static final String DIRTY_KEY = "audit:stats:dirty";
+    private static final String RECONCILE_LOCK_KEY = "audit:stats:reconcile:lock";
+
+    // Marks a user hash as complete; hashes without it were only partially built by increments
+    private static final String FIELD_INIT = "init";
+    private static final List<String> FIELDS = Arrays.asList("total", "pass", "reject", "review", "text", "image");
+
+    private static final int TREND_DAYS = 7;
+    private static final long DAY_TTL_SECONDS = TimeUnit.DAYS.toSeconds(TREND_DAYS + 1);
+
+    // KEYS: user hash, day hash, dirty set. ARGV: user id, now, day TTL, touch day hash, then field/delta pairs
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "for i = 5, #ARGV, 2 do " +
+            "  local delta = tonumber(ARGV[i + 1]) " +
+            "  if delta ~= 0 then " +
+            "    redis.call('HINCRBY', KEYS[1], ARGV[i], delta) " +
+            "    if ARGV[4] == '1' then redis.call('HINCRBY', KEYS[2], ARGV[i], delta) end " +
+            "  end " +
+            "end " +
+            "if ARGV[4] == '1' then redis.call('EXPIRE', KEYS[2], ARGV[3]) end " +
+            "redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    // Only forget a dirty user if nothing touched their counters since the reconciler read them
+    private static final RedisScript<Long> CLEAR_DIRTY_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[1]) " +
+            "if score and tonumber(score) <= tonumber(ARGV[2]) then return redis.call('ZREM', KEYS[1], ARGV[1]) end " +
+            "return 0",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private AuditStatisticsRepository auditStatisticsRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.stats.reconcile.enabled:true}")
+    private boolean reconcileEnabled;
+
+    @Value("${audit.stats.reconcile.interval-seconds:60}")
+    private long reconcileIntervalSeconds;
+
+    @Value("${audit.stats.reconcile.idle-seconds:30}")
+    private long idleSeconds;
+
+    @Value("${audit.stats.reconcile.batch-size:200}")
+    private int reconcileBatchSize;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private ScheduledExecutorService reconciler;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter reconciled;
+    private Counter drifted;
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("audit.stats.counters.reads").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("audit.stats.counters.reads").tag("result", "miss").register(meterRegistry);
+        reconciled = Counter.builder("audit.stats.counters.reconciled").register(meterRegistry);
+        drifted = Counter.builder("audit.stats.counters.drift").register(meterRegistry);
+
+        if (reconcileEnabled) {
+            reconciler = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("audit-stats-reconciler-"));
+            reconciler.scheduleWithFixedDelay(this::reconcileSafely,
+                    reconcileIntervalSeconds, reconcileIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    /**
+     * Apply per-user, per-day deltas. Failures are logged and left to the reconciler.
+     */
+    public void increment(List<AuditStatisticsRepository.DailyCounts> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String now = String.valueOf(System.currentTimeMillis());
+        LocalDate oldestTrendDay = LocalDate.now().minusDays(TREND_DAYS - 1);
+        try {
+            for (AuditStatisticsRepository.DailyCounts delta : deltas) {
+                // Reviews of old records only change the totals, their day has left the trend window
+                boolean touchDay = !delta.getDate().isBefore(oldestTrendDay);
+                List<String> args = new ArrayList<>(16);
+                args.add(delta.getUserId().toString());
+                args.add(now);
+                args.add(String.valueOf(DAY_TTL_SECONDS));
+                args.add(touchDay ? "1" : "0");
+                long[] values = values(delta);
+                for (int i = 0; i < FIELDS.size(); i++) {
+                    args.add(FIELDS.get(i));
+                    args.add(String.valueOf(values[i]));
+                }
+                stringRedisTemplate.execute(INCREMENT_SCRIPT,
+                        Arrays.asList(userKey(delta.getUserId()), dayKey(delta.getUserId(), delta.getDate()), DIRTY_KEY),
+                        args.toArray());
+            }
+        } catch (DataAccessException e) {
+            log.warn("[AuditStatisticsCounters] Counter update failed, left to the reconciler: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Statistics for a user straight from the counters, or null if they are not loaded
+     * (new user, evicted or Redis unavailable).
+     */
+    public AuditStatistics read(Long userId) {
+        List<LocalDate> days = trendDays();
+        List<Object> replies;
+        try {
+            replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                redis.hGetAll(userKey(userId));
+                for (LocalDate day : days) {
+                    redis.hGetAll(dayKey(userId, day));
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("[AuditStatisticsCounters] Counter read failed for user {}: {}", userId, e.getMessage());
+            misses.increment();
+            return null;
+        }
+
+        Map<String, String> totals = asMap(replies.get(0));
+        if (!totals.containsKey(FIELD_INIT)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+
+        AuditStatistics statistics = new AuditStatistics();
+        statistics.setTotalCount(field(totals, "total"));
+        statistics.setPassCount(field(totals, "pass"));
+        statistics.setRejectCount(field(totals, "reject"));
+        statistics.setReviewCount(field(totals, "review"));
+        statistics.setTextCount(field(totals, "text"));
+        statistics.setImageCount(field(totals, "image"));
+
+        List<TrendData> trendData = new ArrayList<>(days.size());
+        for (int i = 0; i < days.size(); i++) {
+            Map<String, String> day = asMap(replies.get(i + 1));
+            trendData.add(new TrendData(days.get(i).toString(), field(day, "pass"), field(day, "reject"), field(day, "review")));
+        }
+        statistics.setTrendData(trendData);
+        return statistics;
+    }
+
+    /**
+     * A user's all-time record count from the counters, or null if they are not loaded.
+     */
+    public Long readTotal(Long userId) {
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(userKey(userId), Arrays.asList(FIELD_INIT, "total"));
+            if (values.get(0) == null) {
+                return null;
+            }
+            return values.get(1) != null ? Long.valueOf(values.get(1).toString()) : 0L;
+        } catch (DataAccessException e) {
+            log.warn("[AuditStatisticsCounters] Counter read failed for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Overwrite a user's counters with the given daily rows. With markDirty, the user is
+     * checked again by the reconciler, for loads that may race with concurrent increments.
+     */
+    public void replace(Long userId, List<AuditStatisticsRepository.DailyCounts> days, boolean markDirty) {
+        Map<String, String> totals = new HashMap<>();
+        long[] sums = new long[FIELDS.size()];
+        Map<LocalDate, AuditStatisticsRepository.DailyCounts> byDate = new HashMap<>();
+        for (AuditStatisticsRepository.DailyCounts day : days) {
+            long[] values = values(day);
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += values[i];
+            }
+            byDate.put(day.getDate(), day);
+        }
+        for (int i = 0; i < sums.length; i++) {
+            totals.put(FIELDS.get(i), String.valueOf(sums[i]));
+        }
+        totals.put(FIELD_INIT, "1");
+
+        try {
+            stringRedisTemplate.execute(new SessionCallback<List<Object>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public List<Object> execute(RedisOperations operations) throws DataAccessException {
+                    operations.multi();
+                    operations.delete(userKey(userId));
+                    operations.opsForHash().putAll(userKey(userId), totals);
+                    for (LocalDate date : trendDays()) {
+                        String dayKey = dayKey(userId, date);
+                        operations.delete(dayKey);
+                        AuditStatisticsRepository.DailyCounts day = byDate.get(date);
+                        if (day != null) {
+                            operations.opsForHash().putAll(dayKey, toHash(day));
+                            operations.expire(dayKey, Duration.ofSeconds(DAY_TTL_SECONDS));
+                        }
+                    }
+                    if (markDirty) {
+                        operations.opsForZSet().add(DIRTY_KEY, userId.toString(), System.currentTimeMillis());
+                    }
+                    return operations.exec();
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("[AuditStatisticsCounters] Counter load failed for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute the counters of users that changed and have since been idle for idle-seconds.
+     * One replica at a time does this, guarded by a short Redis lock.
+     */
+    public int reconcile() {
+        long lockMs = TimeUnit.SECONDS.toMillis(Math.max(reconcileIntervalSeconds, 10));
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RECONCILE_LOCK_KEY, nodeId, Duration.ofMillis(lockMs));
+        if (!Boolean.TRUE.equals(locked)) {
+            return 0;
+        }
+
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleSeconds);
+        Set<String> users = stringRedisTemplate.opsForZSet().rangeByScore(DIRTY_KEY, 0, cutoff, 0, reconcileBatchSize);
+        if (users == null || users.isEmpty()) {
+            return 0;
+        }
+
+        int count = 0;
+        for (String user : users) {
+            Long userId = Long.valueOf(user);
+            Object before = stringRedisTemplate.opsForHash().get(userKey(userId), "total");
+
+            // Correct the rollup from audit_records first, then publish it to the counters
+            auditStatisticsRepository.rebuildForUser(userId);
+            List<AuditStatisticsRepository.DailyCounts> days = auditStatisticsRepository.findByUserId(userId);
+            long total = sum(days, 0);
+            if (before != null && Long.parseLong(before.toString()) != total) {
+                drifted.increment();
+                log.info("[AuditStatisticsCounters] Corrected counters of user {}: total {} -> {}", userId, before, total);
+            }
+            replace(userId, days, false);
+            stringRedisTemplate.execute(CLEAR_DIRTY_SCRIPT, Collections.singletonList(DIRTY_KEY), user, String.valueOf(cutoff));
+            count++;
+        }
+        reconciled.increment(count);
+        return count;
+    }
+
+    private void reconcileSafely() {
+        try {
+            int count = reconcile();
+            if (count > 0) {
+                log.debug("[AuditStatisticsCounters] Reconciled counters of {} users", count);
+            }
+        } catch (Exception e) {
+            log.error("[AuditStatisticsCounters] Reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private static long[] values(AuditStatisticsRepository.DailyCounts counts) {
+        return new long[] {counts.getTotal(), counts.getPass(), counts.getReject(),
+                counts.getReview(), counts.getText(), counts.getImage()};
+    }
+
+    private static long sum(List<AuditStatisticsRepository.DailyCounts> days, int fieldIndex) {
+        long total = 0;
+        for (AuditStatisticsRepository.DailyCounts day : days) {
+            total += values(day)[fieldIndex];
+        }
+        return total;
+    }
+
+    private static Map<String, String> toHash(AuditStatisticsRepository.DailyCounts counts) {
+        Map<String, String> hash = new HashMap<>();
+        long[] values = values(counts);
+        for (int i = 0; i < FIELDS.size(); i++) {
+            hash.put(FIELDS.get(i), String.valueOf(values[i]));
+        }
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> asMap(Object reply) {
+        return reply instanceof Map ? (Map<String, String>) reply : Collections.emptyMap();
+    }
+
+    private static long field(Map<String, String> hash, String name) {
+        String value = hash.get(name);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    private static List<LocalDate> trendDays() {
+        List<LocalDate> days = new ArrayList<>(TREND_DAYS);
+        LocalDate today = LocalDate.now();
+        for (int i = TREND_DAYS - 1; i >= 0; i--) {
+            days.add(today.minusDays(i));
+        }
+        return days;
+    }
+
+    private static String userKey(Long userId) {
+        return USER_PREFIX + userId;
+    }
+
+    private static String dayKey(Long userId, LocalDate date) {
+        return USER_PREFIX + userId + ":day:" + date;
+    }
+}
@@ -0,0 +1,182 @@
+package com.audit.content.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Runs batch audit items concurrently on a dedicated, node-wide worker pool.
+ * The pool size is the global cap for batch work on this node, so large batches can never
+ * take more than that many concurrent AI calls away from interactive single-item audits
+ * (which run on the request threads). Each request is additionally limited to its own
+ * parallelism so that concurrent batches share the pool.
+ */
+@Component
+public class BatchAuditExecutor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.batch.node-parallelism:16}")
+    private int nodeParallelism;
+
+    @Value("${audit.batch.request-parallelism:8}")
+    private int defaultRequestParallelism;
+
+    private ThreadPoolExecutor workers;
+    
+    // Feeds streaming batches into the worker pool without holding a request thread
+    private ExecutorService streamDispatchers;
+
+    @PostConstruct
+    public void init() {
+        workers = new ThreadPoolExecutor(nodeParallelism, nodeParallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("batch-audit-"));
+        Gauge.builder("audit.batch.workers.active", workers, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("audit.batch.workers.queued", workers, e -> e.getQueue().size()).register(meterRegistry);
+        streamDispatchers = Executors.newCachedThreadPool(namedThreads("batch-stream-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamDispatchers.shutdownNow();
+        workers.shutdown();
+    }
+
+    /**
+     * Apply the task to every item with bounded concurrency and return the results in input order.
+     * The task is expected to isolate its own failures; the caller blocks until all items are done.
+     *
+     * @param requestedParallelism per-request limit asked for by the client, may be null
+     */
+    public <T, R> List<R> executeOrdered(List<T> items, Integer requestedParallelism, Function<T, R> task) {
+        if (items == null || items.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Semaphore permits = new Semaphore(resolveParallelism(requestedParallelism));
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            permits.acquireUninterruptibly();
+            CompletableFuture<R> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> task.apply(item), workers);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            future.whenComplete((result, error) -> permits.release());
+            futures.add(future);
+        }
+
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * Streaming variant of {@link #executeOrdered}: each result is handed to onResult together with its
+     * input index as soon as it completes, in completion order. Returns immediately; the returned future
+     * completes once every started item has been reported. When cancelled reports true, no further items
+     * are started and results of items still running are discarded.
+     */
+    public <T, R> CompletableFuture<Void> executeStreaming(List<T> items, Integer requestedParallelism, Function<T, R> task,
+                                                           BiConsumer<Integer, R> onResult, BooleanSupplier cancelled) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (items == null || items.isEmpty()) {
+            done.complete(null);
+            return done;
+        }
+
+        Semaphore permits = new Semaphore(resolveParallelism(requestedParallelism));
+        streamDispatchers.execute(() -> {
+            List<CompletableFuture<Void>> started = new ArrayList<>(items.size());
+            try {
+                for (int i = 0; i < items.size() && !cancelled.getAsBoolean(); i++) {
+                    // Wake up regularly so a cancellation does not wait for a slow item to free a permit
+                    while (!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        if (cancelled.getAsBoolean()) {
+                            break;
+                        }
+                    }
+                    if (cancelled.getAsBoolean()) {
+                        break;
+                    }
+
+                    int index = i;
+                    T item = items.get(i);
+                    CompletableFuture<Void> future;
+                    try {
+                        future = CompletableFuture.supplyAsync(() -> task.apply(item), workers)
+                                .thenAccept(result -> {
+                                    if (!cancelled.getAsBoolean()) {
+                                        onResult.accept(index, result);
+                                    }
+                                });
+                    } catch (RuntimeException e) {
+                        permits.release();
+                        throw e;
+                    }
+                    future.whenComplete((result, error) -> permits.release());
+                    started.add(future);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                return;
+            }
+
+            CompletableFuture.allOf(started.toArray(new CompletableFuture[0]))
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            done.completeExceptionally(error);
+                        } else {
+                            done.complete(null);
+                        }
+                    });
+        });
+        return done;
+    }
+
+    /**
+     * Effective per-request parallelism: the client's request capped by the configured limits
+     */
+    public int resolveParallelism(Integer requestedParallelism) {
+        int parallelism = defaultRequestParallelism;
+        if (requestedParallelism != null && requestedParallelism > 0) {
+            parallelism = Math.min(requestedParallelism, defaultRequestParallelism);
+        }
+        return Math.max(1, Math.min(parallelism, nodeParallelism));
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
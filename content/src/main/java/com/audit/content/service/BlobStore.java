@@ -0,0 +1,328 @@
+package com.audit.content.service;
+
+import com.audit.content.repository.AuditRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for payloads that are too large to keep inline in audit_records:
+ * image bytes and long texts. A blob is a file named by the SHA-256 of its bytes under two
+ * levels of shard directories (ab/cd/abcd...), so storing the same payload twice writes it once,
+ * and records only keep the hash (content_blob). Reads memory-map the file instead of copying it
+ * onto the heap. Records keep their payload for retention-days: after that the reference is
+ * dropped (texts keep their preview, images only their URL), and blobs are garbage collected
+ * once no audit record references them any more. Blobs younger than the grace period are never
+ * collected, which covers records still waiting in the write-behind buffer.
+ * Replicas must share the store through a common volume, so it is off unless one is mounted.
+ */
+@Component
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final int GC_CHUNK = 500;
+
+    @Autowired
+    private AuditRecordRepository auditRecordRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.blobs.enabled:false}")
+    private boolean enabled;
+
+    @Value("${audit.blobs.dir:./data/blobs}")
+    private String dir;
+
+    @Value("${audit.blobs.text-threshold-bytes:4096}")
+    private int textThresholdBytes;
+
+    @Value("${audit.blobs.preview-chars:500}")
+    private int previewChars;
+
+    @Value("${audit.blobs.gc.enabled:true}")
+    private boolean gcEnabled;
+
+    @Value("${audit.blobs.gc.interval-minutes:60}")
+    private long gcIntervalMinutes;
+
+    @Value("${audit.blobs.gc.grace-hours:24}")
+    private long gcGraceHours;
+
+    @Value("${audit.blobs.retention-days:30}")
+    private long retentionDays;
+
+    private Path root;
+    private volatile boolean available;
+    private ScheduledExecutorService gcTimer;
+
+    private Counter stored;
+    private Counter deduplicated;
+    private Counter bytesWritten;
+    private Counter missing;
+    private Counter collected;
+    private Counter released;
+
+    @PostConstruct
+    public void init() {
+        stored = Counter.builder("audit.blobs.writes").tag("result", "stored").register(meterRegistry);
+        deduplicated = Counter.builder("audit.blobs.writes").tag("result", "deduplicated").register(meterRegistry);
+        bytesWritten = Counter.builder("audit.blobs.written").baseUnit("bytes").register(meterRegistry);
+        missing = Counter.builder("audit.blobs.missing").register(meterRegistry);
+        collected = Counter.builder("audit.blobs.gc.deleted").register(meterRegistry);
+        released = Counter.builder("audit.blobs.retention.released").register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(dir).toAbsolutePath();
+        try {
+            Files.createDirectories(root);
+            available = true;
+        } catch (IOException e) {
+            // Payloads then simply stay inline
+            log.error("[BlobStore] Cannot use blob directory {}, keeping payloads inline: {}", root, e.getMessage());
+            return;
+        }
+        if (gcEnabled) {
+            gcTimer = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("blob-gc-"));
+            gcTimer.scheduleWithFixedDelay(this::collectGarbageSafely, gcIntervalMinutes, gcIntervalMinutes, TimeUnit.MINUTES);
+        }
+        log.info("[BlobStore] Storing payloads in {}", root);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (gcTimer != null) {
+            gcTimer.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether a text is long enough to be kept in the blob store instead of inline.
+     */
+    public boolean isLargeText(String text) {
+        // A char takes at most 3 bytes in UTF-8, so shorter strings cannot be over the threshold
+        return available && text != null && text.length() * 3L > textThresholdBytes
+                && text.getBytes(StandardCharsets.UTF_8).length > textThresholdBytes;
+    }
+
+    /**
+     * The start of a text, kept inline next to the blob reference for listings.
+     */
+    public String preview(String text) {
+        if (text.length() <= previewChars) {
+            return text;
+        }
+        int end = previewChars;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Store a payload and return its hash, or null if the store is unavailable. Never overwrites
+     * an existing blob; storing one that exists only marks it as recently used.
+     */
+    public String put(byte[] data) {
+        if (!available || data == null) {
+            return null;
+        }
+        String hash = DigestUtils.sha256Hex(data);
+        Path path = pathOf(hash);
+        try {
+            if (Files.exists(path)) {
+                // Keeps the blob out of a GC sweep that has not yet seen the record about to reference it
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                deduplicated.increment();
+                return hash;
+            }
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), hash, ".tmp");
+            try {
+                Files.write(temp, data);
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Stored concurrently by another request or replica
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            stored.increment();
+            bytesWritten.increment(data.length);
+            return hash;
+        } catch (IOException e) {
+            log.warn("[BlobStore] Failed to store blob {}: {}", hash, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A read-only view of a blob mapped straight from the page cache, or null if it does not exist.
+     */
+    public ByteBuffer read(String hash) {
+        if (root == null || !isHash(hash)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(pathOf(hash), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            missing.increment();
+            return null;
+        } catch (IOException e) {
+            log.warn("[BlobStore] Failed to read blob {}: {}", hash, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A stored text, decoded straight from the mapped file, or null if it does not exist.
+     */
+    public String readText(String hash) {
+        ByteBuffer buffer = read(hash);
+        return buffer != null ? StandardCharsets.UTF_8.decode(buffer).toString() : null;
+    }
+
+    /**
+     * Drop the blob references of records past retention, then delete blobs older than the
+     * grace period that no audit record references.
+     *
+     * @return the number of deleted blobs
+     */
+    public int collectGarbage() {
+        if (!available) {
+            return 0;
+        }
+        releaseExpired();
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(gcGraceHours);
+        int deleted = 0;
+        List<Path> candidates = new ArrayList<>(GC_CHUNK);
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp") && lastModified(path) <= cutoff) {
+                    // Left behind by a write that was interrupted
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                if (!isHash(name) || lastModified(path) > cutoff) {
+                    continue;
+                }
+                candidates.add(path);
+                if (candidates.size() == GC_CHUNK) {
+                    deleted += deleteUnreferenced(candidates, cutoff);
+                    candidates.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[BlobStore] GC sweep of {} failed: {}", root, e.getMessage());
+        }
+        deleted += deleteUnreferenced(candidates, cutoff);
+        collected.increment(deleted);
+        if (deleted > 0) {
+            log.info("[BlobStore] GC deleted {} unreferenced blobs", deleted);
+        }
+        return deleted;
+    }
+
+    private void releaseExpired() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        int count = auditRecordRepository.releaseBlobsCreatedBefore(LocalDateTime.now().minusDays(retentionDays));
+        released.increment(count);
+        if (count > 0) {
+            log.info("[BlobStore] Released the blobs of {} records older than {} days", count, retentionDays);
+        }
+    }
+
+    private int deleteUnreferenced(List<Path> candidates, long cutoff) {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        List<String> hashes = new ArrayList<>(candidates.size());
+        for (Path path : candidates) {
+            hashes.add(path.getFileName().toString());
+        }
+        Set<String> referenced = new HashSet<>(auditRecordRepository.findReferencedBlobs(hashes));
+        int deleted = 0;
+        for (Path path : candidates) {
+            // Checked again: storing a duplicate since the walk marks the blob as used
+            if (referenced.contains(path.getFileName().toString()) || lastModified(path) > cutoff) {
+                continue;
+            }
+            try {
+                if (Files.deleteIfExists(path)) {
+                    deleted++;
+                }
+            } catch (IOException e) {
+                log.warn("[BlobStore] Failed to delete blob {}: {}", path, e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    private void collectGarbageSafely() {
+        try {
+            collectGarbage();
+        } catch (RuntimeException e) {
+            log.error("[BlobStore] GC failed", e);
+        }
+    }
+
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            // Gone already
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static boolean isHash(String name) {
+        if (name == null || name.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
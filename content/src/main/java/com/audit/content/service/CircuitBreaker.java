@@ -0,0 +1,154 @@
+package com.audit.content.service;
+
+/**
+ * Count-based circuit breaker.
+ * While CLOSED, the outcome of the last window-size calls is kept; once at least minimum-calls
+ * are recorded and the failure rate reaches the threshold the breaker OPENs and rejects every
+ * call for open-millis. It then goes HALF_OPEN and lets half-open-probes calls through: if they
+ * all succeed it closes again, any failure opens it for another open-millis. Only the outcomes
+ * of those probes decide, not of calls that were already running when the breaker went HALF_OPEN.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    /**
+     * Admission of one call, handed back with its outcome.
+     */
+    public static final class Permit {
+
+        private static final Permit REGULAR = new Permit(0);
+
+        // The HALF_OPEN period the call probes, or 0 for a regular call
+        private final long probeOf;
+
+        private Permit(long probeOf) {
+            this.probeOf = probeOf;
+        }
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenProbes;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private long halfOpenPeriod;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openMillis, int halfOpenProbes) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = halfOpenProbes;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * Permission for a call, or null if it may not go ahead. In HALF_OPEN this takes one of the
+     * probe slots, so the permit must be returned through {@link #onResult(Permit, boolean)} or
+     * {@link #release(Permit)}.
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return null;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPeriod++;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                return null;
+            }
+            probesStarted++;
+            return new Permit(halfOpenPeriod);
+        }
+        return Permit.REGULAR;
+    }
+
+    /**
+     * Return a permit for a call that was not made.
+     */
+    public synchronized void release(Permit permit) {
+        if (isCurrentProbe(permit)) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized void onResult(Permit permit, boolean success) {
+        switch (state) {
+            case HALF_OPEN:
+                if (!isCurrentProbe(permit)) {
+                    // Started before the breaker opened, says nothing about the service now
+                    break;
+                }
+                if (!success) {
+                    open();
+                } else if (++probesSucceeded >= halfOpenProbes) {
+                    close();
+                }
+                break;
+            case CLOSED:
+                if (permit.probeOf != 0) {
+                    // A probe that finished after the others already closed the breaker
+                    break;
+                }
+                if (recorded == windowSize && outcomes[next]) {
+                    failures--;
+                }
+                outcomes[next] = !success;
+                if (!success) {
+                    failures++;
+                }
+                next = (next + 1) % windowSize;
+                recorded = Math.min(windowSize, recorded + 1);
+                if (recorded >= minimumCalls && failures * 100.0 / recorded >= failureRateThreshold) {
+                    open();
+                }
+                break;
+            default:
+                // Calls that started before the breaker opened
+                break;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Cheap check for callers that queue work before calling: false while OPEN and not yet due for probing.
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || System.currentTimeMillis() - openedAt >= openMillis;
+    }
+
+    private boolean isCurrentProbe(Permit permit) {
+        return state == State.HALF_OPEN && permit.probeOf == halfOpenPeriod;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,526 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, precompiled form of the active audit_rules.
+ * Every condition is turned into a predicate once: regexes are compiled, and the keywords of all
+ * keyword conditions go into one Aho-Corasick automaton, so a single pass over the text answers
+ * every keyword condition of every rule. Keywords match whole words unless a condition sets
+ * wholeWord to false; in scripts written without spaces (e.g. Chinese) they match anywhere. URL
+ * and phone number heuristics are extracted at most once per text and shared by the rules that
+ * use them. A rule matches when any of its conditions does. A rule with conditions that cannot be
+ * evaluated locally (model scores) is partial: its local match is reported but decides nothing,
+ * the verdict is left to the AI service.
+ */
+public final class CompiledRuleSet {
+
+    public static final String ACTION_REJECT = "REJECT";
+    public static final String ACTION_REVIEW = "REVIEW";
+    public static final String ACTION_WARN = "WARN";
+
+    private static final List<String> ACTION_STRENGTH = List.of(ACTION_WARN, ACTION_REVIEW, ACTION_REJECT);
+
+    private static final Pattern URL_PATTERN =
+            Pattern.compile("\\b(?:https?://|www\\.)([^\\s/?#<>\"':]+)[^\\s<>\"']*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PHONE_PATTERN =
+            Pattern.compile("(?<!\\d)(?:\\+\\d{1,3}[\\s.-]?)?(?:\\(\\d{3}\\)|\\d{3})[\\s.-]?\\d{3,4}[\\s.-]?\\d{4}(?!\\d)");
+
+    private static final CompiledRuleSet EMPTY = new CompiledRuleSet(
+            Collections.emptyMap(), SensitiveWordMatcher.empty(), new KeywordRef[0], 0, Collections.emptyList());
+
+    private final Map<String, Rule> rules;
+    private final SensitiveWordMatcher keywords;
+    private final KeywordRef[] keywordRefs;
+    private final int keywordConditions;
+    private final List<String> problems;
+
+    private CompiledRuleSet(Map<String, Rule> rules, SensitiveWordMatcher keywords, KeywordRef[] keywordRefs,
+                            int keywordConditions, List<String> problems) {
+        this.rules = rules;
+        this.keywords = keywords;
+        this.keywordRefs = keywordRefs;
+        this.keywordConditions = keywordConditions;
+        this.problems = problems;
+    }
+
+    public static CompiledRuleSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compile the given rules. A rule whose conditions cannot be parsed is left out and
+     * described in {@link #getProblems()}, it does not fail the whole set.
+     */
+    public static CompiledRuleSet compile(List<RuleDefinition> definitions) {
+        Map<String, Rule> rules = new LinkedHashMap<>();
+        List<SensitiveWordMatcher.Word> words = new ArrayList<>();
+        List<KeywordRef> refs = new ArrayList<>();
+        List<String> problems = new ArrayList<>();
+        int[] keywordConditions = {0};
+
+        for (RuleDefinition definition : definitions) {
+            int wordsBefore = words.size();
+            int conditionsBefore = keywordConditions[0];
+            try {
+                Rule rule = compileRule(definition, words, refs, keywordConditions, problems);
+                rules.put(rule.ruleId, rule);
+            } catch (RuntimeException e) {
+                // Undo any keywords the rule registered before failing
+                words.subList(wordsBefore, words.size()).clear();
+                refs.subList(wordsBefore, refs.size()).clear();
+                keywordConditions[0] = conditionsBefore;
+                problems.add(definition.ruleId + ": " + e.getMessage());
+            }
+        }
+
+        return new CompiledRuleSet(rules, SensitiveWordMatcher.build(words), refs.toArray(new KeywordRef[0]),
+                keywordConditions[0], problems);
+    }
+
+    private static Rule compileRule(RuleDefinition definition, List<SensitiveWordMatcher.Word> words,
+                                    List<KeywordRef> refs, int[] keywordConditions, List<String> problems) {
+        if (definition.ruleId == null || definition.ruleId.isEmpty()) {
+            throw new IllegalArgumentException("missing rule_id");
+        }
+        Object parsed = JSON.parse(definition.conditions);
+        JSONArray array;
+        if (parsed instanceof JSONArray) {
+            array = (JSONArray) parsed;
+        } else if (parsed instanceof JSONObject) {
+            array = new JSONArray();
+            array.add(parsed);
+        } else {
+            throw new IllegalArgumentException("conditions must be a JSON array");
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        boolean partial = false;
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject json = array.getJSONObject(i);
+            String type = json.getString("type");
+            if (type == null) {
+                throw new IllegalArgumentException("condition " + i + " has no type");
+            }
+            switch (type) {
+                case "keyword":
+                    conditions.add(keywordCondition(json, words, refs, keywordConditions));
+                    break;
+                case "regex":
+                    conditions.add(regexCondition(json));
+                    break;
+                case "length":
+                    conditions.add(lengthCondition(json));
+                    break;
+                case "url":
+                    conditions.add(urlCondition(json));
+                    break;
+                case "phone":
+                    conditions.add(phoneCondition(json));
+                    break;
+                default:
+                    // e.g. model_score, only the AI service can evaluate these
+                    partial = true;
+                    problems.add(definition.ruleId + ": condition type '" + type
+                            + "' is not evaluated locally, the rule does not decide without the AI service");
+            }
+        }
+
+        String action = definition.action != null ? definition.action.toUpperCase(Locale.ROOT) : ACTION_REVIEW;
+        if (!ACTION_STRENGTH.contains(action)) {
+            throw new IllegalArgumentException("unknown action " + definition.action);
+        }
+        String contentTypes = definition.contentTypes != null ? definition.contentTypes : "TEXT,IMAGE";
+        boolean text = false;
+        for (String contentType : contentTypes.split(",")) {
+            text |= "TEXT".equalsIgnoreCase(contentType.trim());
+        }
+        return new Rule(definition.ruleId, definition.category, definition.label, definition.severity,
+                action, text, partial, conditions);
+    }
+
+    private static Condition keywordCondition(JSONObject json, List<SensitiveWordMatcher.Word> words,
+                                              List<KeywordRef> refs, int[] keywordConditions) {
+        JSONArray keywordList = json.getJSONArray("keywords");
+        if (keywordList == null || keywordList.isEmpty()) {
+            throw new IllegalArgumentException("keyword condition without keywords");
+        }
+        boolean caseSensitive = json.getBooleanValue("caseSensitive");
+        boolean wholeWord = !Boolean.FALSE.equals(json.getBoolean("wholeWord"));
+        int condition = keywordConditions[0]++;
+        for (int i = 0; i < keywordList.size(); i++) {
+            String keyword = keywordList.getString(i);
+            if (keyword == null || keyword.isEmpty()) {
+                continue;
+            }
+            // The automaton matches case-insensitively, exact case is checked on each hit
+            words.add(new SensitiveWordMatcher.Word(keyword, "RULE", SensitiveWordMatcher.LEVEL_LOW));
+            refs.add(new KeywordRef(condition, keyword.length(), caseSensitive ? keyword : null,
+                    wholeWord && isWordChar(keyword.charAt(0)), wholeWord && isWordChar(keyword.charAt(keyword.length() - 1))));
+        }
+        return new Condition("keyword", scan -> scan.keywordHits[condition]);
+    }
+
+    private static Condition regexCondition(JSONObject json) {
+        String regex = json.getString("pattern");
+        if (regex == null || regex.isEmpty()) {
+            throw new IllegalArgumentException("regex condition without pattern");
+        }
+        int flags = json.getBooleanValue("caseSensitive") ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        Pattern pattern = Pattern.compile(regex, flags);
+        return new Condition("regex", scan -> pattern.matcher(scan.text).find());
+    }
+
+    private static Condition lengthCondition(JSONObject json) {
+        Integer min = json.containsKey("gte") ? json.getInteger("gte") : json.getInteger("min");
+        Integer max = json.containsKey("lte") ? json.getInteger("lte") : json.getInteger("max");
+        if (min == null && max == null) {
+            throw new IllegalArgumentException("length condition without gte/lte");
+        }
+        return new Condition("length", scan -> {
+            int length = scan.codePoints();
+            return (min == null || length >= min) && (max == null || length <= max);
+        });
+    }
+
+    private static Condition urlCondition(JSONObject json) {
+        int min = json.containsKey("gte") ? json.getIntValue("gte") : 1;
+        JSONArray domainList = json.getJSONArray("domains");
+        List<String> domains = new ArrayList<>();
+        if (domainList != null) {
+            for (int i = 0; i < domainList.size(); i++) {
+                domains.add(domainList.getString(i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return new Condition("url", scan -> {
+            int count = 0;
+            for (String host : scan.urlHosts()) {
+                if (domains.isEmpty() || matchesDomain(host, domains)) {
+                    count++;
+                }
+            }
+            return count >= min;
+        });
+    }
+
+    private static Condition phoneCondition(JSONObject json) {
+        int min = json.containsKey("gte") ? json.getIntValue("gte") : 1;
+        return new Condition("phone", scan -> scan.phoneNumbers() >= min);
+    }
+
+    /**
+     * Letters and digits of scripts that separate words with spaces; keyword edges in other
+     * scripts need no word boundary.
+     */
+    private static boolean isWordChar(char c) {
+        if (!Character.isLetterOrDigit(c)) {
+            return false;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script != Character.UnicodeScript.HAN && script != Character.UnicodeScript.HIRAGANA
+                && script != Character.UnicodeScript.KATAKANA && script != Character.UnicodeScript.THAI;
+    }
+
+    private static boolean matchesDomain(String host, List<String> domains) {
+        for (String domain : domains) {
+            if (host.equals(domain) || host.endsWith("." + domain)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate the given rules against a text. Unknown IDs and rules that do not apply to
+     * text are ignored.
+     */
+    public Evaluation evaluate(Collection<String> ruleIds, String text) {
+        List<Rule> selected = new ArrayList<>();
+        for (String ruleId : new LinkedHashSet<>(ruleIds)) {
+            Rule rule = rules.get(ruleId);
+            if (rule != null && rule.text) {
+                selected.add(rule);
+            }
+        }
+        if (selected.isEmpty() || text == null) {
+            return Evaluation.NONE;
+        }
+
+        long start = System.nanoTime();
+        Scan scan = new Scan(text, keywordConditions);
+        keywords.scan(text, (wordIndex, end) -> {
+            KeywordRef ref = keywordRefs[wordIndex];
+            int begin = end - ref.length;
+            if ((ref.exact == null || text.regionMatches(begin, ref.exact, 0, ref.length))
+                    && !(ref.boundaryBefore && begin > 0 && isWordChar(text.charAt(begin - 1)))
+                    && !(ref.boundaryAfter && end < text.length() && isWordChar(text.charAt(end)))) {
+                scan.keywordHits[ref.condition] = true;
+            }
+        });
+        long keywordNanos = System.nanoTime() - start;
+
+        List<RuleOutcome> outcomes = new ArrayList<>(selected.size());
+        for (Rule rule : selected) {
+            long ruleStart = System.nanoTime();
+            String matchedBy = null;
+            for (Condition condition : rule.conditions) {
+                if (condition.predicate.test(scan)) {
+                    matchedBy = condition.type;
+                    break;
+                }
+            }
+            outcomes.add(new RuleOutcome(rule, matchedBy, System.nanoTime() - ruleStart));
+        }
+        return new Evaluation(outcomes, keywordNanos);
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Rules that were left out and conditions that are not evaluated locally, for logging.
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * One row of audit_rules as stored, before compilation.
+     */
+    public static final class RuleDefinition {
+        private final String ruleId;
+        private final String category;
+        private final String label;
+        private final String severity;
+        private final String conditions;
+        private final String action;
+        private final String contentTypes;
+
+        public RuleDefinition(String ruleId, String category, String label, String severity,
+                              String conditions, String action, String contentTypes) {
+            this.ruleId = ruleId;
+            this.category = category;
+            this.label = label;
+            this.severity = severity;
+            this.conditions = conditions;
+            this.action = action;
+            this.contentTypes = contentTypes;
+        }
+    }
+
+    /**
+     * Result of evaluating one rule: the condition type that matched (null if none) and how
+     * long the rule took, excluding the shared keyword scan.
+     */
+    public static final class RuleOutcome {
+        private final Rule rule;
+        private final String matchedBy;
+        private final long nanos;
+
+        private RuleOutcome(Rule rule, String matchedBy, long nanos) {
+            this.rule = rule;
+            this.matchedBy = matchedBy;
+            this.nanos = nanos;
+        }
+
+        public String getRuleId() { return rule.ruleId; }
+        public String getCategory() { return rule.category; }
+        public String getLabel() { return rule.label; }
+        public String getSeverity() { return rule.severity; }
+        public String getAction() { return rule.action; }
+        public boolean isMatched() { return matchedBy != null; }
+        public boolean isPartial() { return rule.partial; }
+        // Matched, and the rule was evaluated completely, so its action applies
+        public boolean isDecisive() { return matchedBy != null && !rule.partial; }
+        public String getMatchedBy() { return matchedBy; }
+        public long getNanos() { return nanos; }
+    }
+
+    /**
+     * Outcome of all rules evaluated for one text.
+     */
+    public static final class Evaluation {
+        public static final Evaluation NONE = new Evaluation(Collections.emptyList(), 0);
+
+        private final List<RuleOutcome> outcomes;
+        private final long keywordScanNanos;
+
+        private Evaluation(List<RuleOutcome> outcomes, long keywordScanNanos) {
+            this.outcomes = outcomes;
+            this.keywordScanNanos = keywordScanNanos;
+        }
+
+        public List<RuleOutcome> getOutcomes() {
+            return outcomes;
+        }
+
+        public long getKeywordScanNanos() {
+            return keywordScanNanos;
+        }
+
+        /**
+         * The strongest action among the decisive rules (REJECT, then REVIEW, then WARN), or null.
+         */
+        public String getDecision() {
+            int strongest = -1;
+            for (RuleOutcome outcome : outcomes) {
+                if (outcome.isDecisive()) {
+                    strongest = Math.max(strongest, ACTION_STRENGTH.indexOf(outcome.getAction()));
+                }
+            }
+            return strongest >= 0 ? ACTION_STRENGTH.get(strongest) : null;
+        }
+
+        /**
+         * Categories of the decisive rules, in rule order without duplicates.
+         */
+        public List<String> getCategories() {
+            List<String> categories = new ArrayList<>();
+            for (RuleOutcome outcome : outcomes) {
+                if (outcome.isDecisive() && outcome.getCategory() != null && !categories.contains(outcome.getCategory())) {
+                    categories.add(outcome.getCategory());
+                }
+            }
+            return categories;
+        }
+
+        /**
+         * The matched rules in the shape stored in audit_records.rule_results.
+         */
+        public List<Map<String, Object>> toRuleResults() {
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (RuleOutcome outcome : outcomes) {
+                if (!outcome.isMatched()) {
+                    continue;
+                }
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("ruleId", outcome.getRuleId());
+                result.put("category", outcome.getCategory());
+                result.put("label", outcome.getLabel());
+                result.put("severity", outcome.getSeverity());
+                result.put("action", outcome.getAction());
+                result.put("matchedBy", outcome.getMatchedBy());
+                if (outcome.isPartial()) {
+                    result.put("partial", true);
+                }
+                result.put("elapsedMicros", outcome.getNanos() / 1_000);
+                results.add(result);
+            }
+            return results;
+        }
+    }
+
+    private static final class Rule {
+        private final String ruleId;
+        private final String category;
+        private final String label;
+        private final String severity;
+        private final String action;
+        private final boolean text;
+        // Has conditions that are not evaluated locally
+        private final boolean partial;
+        private final List<Condition> conditions;
+
+        private Rule(String ruleId, String category, String label, String severity, String action,
+                     boolean text, boolean partial, List<Condition> conditions) {
+            this.ruleId = ruleId;
+            this.category = category;
+            this.label = label;
+            this.severity = severity;
+            this.action = action;
+            this.text = text;
+            this.partial = partial;
+            this.conditions = conditions;
+        }
+    }
+
+    private static final class Condition {
+        private final String type;
+        private final Predicate<Scan> predicate;
+
+        private Condition(String type, Predicate<Scan> predicate) {
+            this.type = type;
+            this.predicate = predicate;
+        }
+    }
+
+    private static final class KeywordRef {
+        private final int condition;
+        private final int length;
+        // Original keyword for case-sensitive conditions, null otherwise
+        private final String exact;
+        // Whether the keyword must not be preceded / followed by a word character
+        private final boolean boundaryBefore;
+        private final boolean boundaryAfter;
+
+        private KeywordRef(int condition, int length, String exact, boolean boundaryBefore, boolean boundaryAfter) {
+            this.condition = condition;
+            this.length = length;
+            this.exact = exact;
+            this.boundaryBefore = boundaryBefore;
+            this.boundaryAfter = boundaryAfter;
+        }
+    }
+
+    /**
+     * Per-text state shared by all rules: keyword hits from the automaton pass and lazily
+     * extracted heuristics.
+     */
+    private static final class Scan {
+        private final String text;
+        private final boolean[] keywordHits;
+        private int codePoints = -1;
+        private List<String> urlHosts;
+        private int phoneNumbers = -1;
+
+        private Scan(String text, int keywordConditions) {
+            this.text = text;
+            this.keywordHits = new boolean[keywordConditions];
+        }
+
+        private int codePoints() {
+            if (codePoints < 0) {
+                codePoints = text.codePointCount(0, text.length());
+            }
+            return codePoints;
+        }
+
+        private List<String> urlHosts() {
+            if (urlHosts == null) {
+                urlHosts = new ArrayList<>();
+                Matcher matcher = URL_PATTERN.matcher(text);
+                while (matcher.find()) {
+                    urlHosts.add(matcher.group(1).toLowerCase(Locale.ROOT));
+                }
+            }
+            return urlHosts;
+        }
+
+        private int phoneNumbers() {
+            if (phoneNumbers < 0) {
+                int count = 0;
+                Matcher matcher = PHONE_PATTERN.matcher(text);
+                while (matcher.find()) {
+                    count++;
+                }
+                phoneNumbers = count;
+            }
+            return phoneNumbers;
+        }
+    }
+}
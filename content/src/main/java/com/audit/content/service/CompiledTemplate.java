@@ -0,0 +1,93 @@
+package com.audit.content.service;
+
+import com.audit.content.dto.TemplateDefinition;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, ready-to-use form of an audit template. The config map is the snake_case template
+ * configuration the AI service expects; it is built once per template version and shared by every
+ * audit that references the template, so its fingerprint is computed once as well.
+ */
+public final class CompiledTemplate {
+
+    private final String templateId;
+    private final String version;
+    private final Long createdBy;
+    private final boolean active;
+    private final LocalDateTime updatedAt;
+    private final List<String> rules;
+    private final Map<String, Object> decisionLogic;
+    private final Map<String, Object> aiPromptTemplate;
+    private final Map<String, Object> config;
+    private final String fingerprint;
+
+    @SuppressWarnings("unchecked")
+    private CompiledTemplate(TemplateDefinition definition, TemplateFingerprinter fingerprinter) {
+        this.templateId = definition.getTemplateId();
+        this.version = definition.getVersion();
+        this.createdBy = definition.getCreatedBy();
+        this.active = !Boolean.FALSE.equals(definition.getIsActive());
+        this.updatedAt = definition.getUpdatedAt();
+        this.rules = (List<String>) freeze(definition.getRules() != null ? definition.getRules() : Collections.emptyList());
+        this.decisionLogic = (Map<String, Object>) freeze(definition.getDecisionLogic() != null ? definition.getDecisionLogic() : Collections.emptyMap());
+        this.aiPromptTemplate = (Map<String, Object>) freeze(definition.getAiPromptTemplate() != null ? definition.getAiPromptTemplate() : Collections.emptyMap());
+
+        // Same field names the frontend used when it sent the template inline
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("id", definition.getId());
+        config.put("template_id", templateId);
+        config.put("name", definition.getName());
+        config.put("version", version);
+        config.put("description", definition.getDescription());
+        config.put("content_type", definition.getContentType());
+        config.put("industry", definition.getIndustry());
+        config.put("is_active", definition.getIsActive());
+        config.put("is_default", definition.getIsDefault());
+        config.put("created_by", createdBy);
+        config.put("rules", rules);
+        config.put("decision_logic", decisionLogic);
+        config.put("ai_prompt_template", aiPromptTemplate);
+        config.put("metadata", freeze(definition.getMetadata() != null ? definition.getMetadata() : Collections.emptyMap()));
+        this.config = Collections.unmodifiableMap(config);
+        this.fingerprint = fingerprinter.fingerprint(this.config);
+    }
+
+    public static CompiledTemplate compile(TemplateDefinition definition, TemplateFingerprinter fingerprinter) {
+        return new CompiledTemplate(definition, fingerprinter);
+    }
+
+    public String getTemplateId() { return templateId; }
+    public String getVersion() { return version; }
+    public Long getCreatedBy() { return createdBy; }
+    public boolean isActive() { return active; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public List<String> getRules() { return rules; }
+    public Map<String, Object> getDecisionLogic() { return decisionLogic; }
+    public Map<String, Object> getAiPromptTemplate() { return aiPromptTemplate; }
+    public Map<String, Object> getConfig() { return config; }
+    public String getFingerprint() { return fingerprint; }
+
+    private static Object freeze(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(String.valueOf(entry.getKey()), freeze(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                copy.add(freeze(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,118 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import com.audit.content.client.TemplateServiceClient;
+import com.audit.content.dto.ApiResponse;
+import com.audit.content.dto.TemplateDefinition;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-replica cache of compiled templates for audits that reference a template by ID.
+ * A template is fetched from the template service and compiled once; the template service
+ * announces updates and deletions on Redis pub/sub, which drops the cached copy on every replica.
+ * Entries also expire after a while, in case a notification was missed.
+ */
+@Component
+public class CompiledTemplateCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledTemplateCache.class);
+
+    // Published by the template service (TemplateChangePublisher)
+    public static final String INVALIDATION_CHANNEL = "audit:template:invalidate";
+
+    @Autowired
+    private TemplateServiceClient templateServiceClient;
+
+    @Autowired
+    private TemplateFingerprinter templateFingerprinter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.templates.cache.max-size:1000}")
+    private long maxSize;
+
+    @Value("${audit.templates.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<String, CompiledTemplate> templates;
+
+    @PostConstruct
+    public void init() {
+        templates = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, templates, "compiled-templates");
+    }
+
+    /**
+     * The compiled template for a user's audit. If a version is requested and the cached copy is
+     * at another version, the template is fetched again before the request is rejected.
+     */
+    public CompiledTemplate resolve(String userInfo, String templateId, String version) {
+        CompiledTemplate template = templates.get(templateId, id -> load(userInfo, id));
+        if (version != null && !version.equals(template.getVersion())) {
+            templates.invalidate(templateId);
+            template = templates.get(templateId, id -> load(userInfo, id));
+            if (!version.equals(template.getVersion())) {
+                throw new RuntimeException("Template " + templateId + " is at version " + template.getVersion()
+                        + ", not " + version);
+            }
+        }
+
+        // Cached copies are shared between users, so ownership is checked on every use
+        @SuppressWarnings("unchecked")
+        Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
+        Object userId = userMap.get("id");
+        if (userId == null || template.getCreatedBy() == null || !template.getCreatedBy().toString().equals(userId.toString())) {
+            throw new RuntimeException("Access denied to template " + templateId);
+        }
+        if (!template.isActive()) {
+            throw new RuntimeException("Template " + templateId + " is not active");
+        }
+        return template;
+    }
+
+    public void invalidate(String templateId) {
+        templates.invalidate(templateId);
+    }
+
+    public long localSize() {
+        return templates.estimatedSize();
+    }
+
+    private CompiledTemplate load(String userInfo, String templateId) {
+        ApiResponse<TemplateDefinition> response = templateServiceClient.getTemplate(userInfo, templateId);
+        if (response == null || response.getCode() != 200 || response.getData() == null) {
+            throw new RuntimeException("Failed to load template " + templateId + ": "
+                    + (response != null ? response.getMessage() : "no response"));
+        }
+        CompiledTemplate template = CompiledTemplate.compile(response.getData(), templateFingerprinter);
+        log.debug("[CompiledTemplateCache] Compiled template {} version {}", templateId, template.getVersion());
+        return template;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String templateId = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.info("[CompiledTemplateCache] Template {} changed, dropping compiled copy", templateId);
+        templates.invalidate(templateId);
+    }
+}
@@ -4,37 +4,51 @@ import com.alibaba.fastjson.JSON;
 import com.audit.content.client.AiServiceClient;
 import com.audit.content.dto.*;
 import com.audit.content.entity.AuditRecord;
+import com.audit.content.repository.AuditHistoryRepository;
 import com.audit.content.repository.AuditRecordRepository;
+import com.audit.content.repository.AuditStatisticsRepository;
+import feign.FeignException;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 
 @Service
 public class ContentAuditService {
     
-    @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private static final Logger log = LoggerFactory.getLogger(ContentAuditService.class);
+    
+    // How long to stay on base64 JSON after the AI service turned out not to know the binary image endpoint
+    private static final long BINARY_IMAGE_ENDPOINT_RETRY_MS = 60_000;
+    
+    private static final int HISTORY_MAX_PAGE_SIZE = 100;
     
     @Autowired
     private AiServiceClient aiServiceClient;
@@ -42,10 +56,82 @@ public class ContentAuditService {
     @Autowired
     private AuditRecordRepository auditRecordRepository;
     
+    @Autowired
+    private AuditStatisticsRepository auditStatisticsRepository;
+    
+    @Autowired
+    private AuditStatisticsCounters auditStatisticsCounters;
+    
+    @Autowired
+    private AuditHistoryRepository auditHistoryRepository;
+    
+    @Autowired
+    private TemplateFingerprinter templateFingerprinter;
+    
+    @Autowired
+    private CompiledTemplateCache compiledTemplateCache;
+    
+    @Autowired
+    private SensitiveWordPrefilter sensitiveWordPrefilter;
+    
+    @Autowired
+    private RuleEngine ruleEngine;
+    
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+    
+    @Autowired
+    private AiCallGuard aiCallGuard;
+    
+    @Autowired
+    private AiCallScheduler aiCallScheduler;
+    
+    @Autowired
+    private ImageIngest imageIngest;
+    
+    @Autowired
+    private PerceptualImageIndex perceptualImageIndex;
+    
+    @Autowired
+    private BlobStore blobStore;
+    
+    @Autowired
+    private VerdictCache verdictCache;
+    
+    @Autowired
+    private AuditRequestCoalescer auditRequestCoalescer;
+    
+    @Autowired
+    private BatchAuditExecutor batchAuditExecutor;
+    
+    @Autowired
+    private AiTextMicroBatcher aiTextMicroBatcher;
+    
+    @Autowired
+    private AuditRecordWriter auditRecordWriter;
+    
+    @Autowired
+    private StudyCallbackBatcher studyCallbackBatcher;
+    
+    @Value("${audit.images.binary-upload:true}")
+    private boolean binaryImageUpload;
+    
+    private volatile long binaryImageEndpointRetryAt;
+    
     /**
      * Audit text content with template configuration and force refresh option
      */
     public AuditResult auditText(String userInfo, String content, Map<String, Object> templateConfig, Boolean forceRefresh) {
+        return auditText(userInfo, content, templateConfig, forceRefresh, null);
+    }
+    
+    /**
+     * @param prefetched verdicts of a batch looked up in advance, by cache key (null values are known
+     *                   misses); keys not in it are looked up individually. New verdicts of a batch are
+     *                   written to Redis in bulk.
+     */
+    private AuditResult auditText(String userInfo, String content, Map<String, Object> templateConfig, Boolean forceRefresh,
+                                  Map<String, AuditResult> prefetched) {
         @SuppressWarnings("unchecked")
         Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
         
@@ -59,11 +145,26 @@ public class ContentAuditService {
         }
         Long userId = Long.valueOf(userIdObj.toString());
         
-        // 1. Calculate content hash (include template config and timestamp in cache key for force refresh)
-        String cacheKey = "audit:text:" + DigestUtils.sha256Hex(content);
-        if (templateConfig != null) {
-            cacheKey += ":" + DigestUtils.sha256Hex(JSON.toJSONString(templateConfig));
+        // Texts with high-level sensitive words are rejected without the cache or the AI service
+        SensitiveWordMatcher.Match wordMatch = sensitiveWordPrefilter.scan(content);
+        AuditResult prefilterResult = sensitiveWordPrefilter.rejectResult(content, wordMatch);
+        if (prefilterResult != null) {
+            saveAuditRecord(userId, content, null, prefilterResult, null);
+            return prefilterResult;
+        }
+        
+        // Rules referenced by the template: a REJECT rule decides alone, REVIEW/WARN rules cap the AI verdict
+        CompiledRuleSet.Evaluation ruleEvaluation = ruleEngine.evaluate(templateConfig, content);
+        AuditResult ruleResult = ruleEngine.rejectResult(content, ruleEvaluation);
+        if (ruleResult != null) {
+            saveAuditRecord(userId, content, null, ruleResult, null);
+            return ruleResult;
         }
+        List<String> localCategories = mergeCategories(wordMatch.getCategories(), ruleEvaluation.getCategories());
+        
+        // 1. Calculate content hash (include template config and timestamp in cache key for force refresh)
+        String templateFingerprint = templateConfig != null ? templateFingerprinter.fingerprint(templateConfig) : null;
+        String cacheKey = textCacheKey(content, templateFingerprint);
         
         // Add timestamp to cache key when force refresh is enabled to ensure fresh results
         if (forceRefresh != null && forceRefresh) {
@@ -77,13 +178,71 @@ public class ContentAuditService {
         System.out.println("========================");
         
         if (forceRefresh == null || !forceRefresh) {
-            AuditResult cachedResult = (AuditResult) redisTemplate.opsForValue().get(cacheKey);
+            // A known miss may have been audited since by an earlier item of the same batch
+            AuditResult cachedResult = prefetched != null && prefetched.containsKey(cacheKey)
+                    ? (prefetched.get(cacheKey) != null ? prefetched.get(cacheKey) : verdictCache.getLocal(cacheKey))
+                    : verdictCache.get(cacheKey);
             if (cachedResult != null) {
                 System.out.println("Returning cached result");
-                return cachedResult;
+                return withLocalChecks(cachedResult, localCategories, ruleEvaluation);
+            }
+            
+            // Small variations of a recently audited text reuse its verdict, marked as derived
+            AuditResult derivedResult = nearDuplicateIndex.find(content, templateFingerprint);
+            if (derivedResult != null) {
+                derivedResult = withLocalChecks(derivedResult, localCategories, ruleEvaluation);
+                saveAuditRecord(userId, content, null, derivedResult, null);
+                return derivedResult;
             }
         }
         
+        // Concurrent misses for the same key share one AI call
+        String auditCacheKey = cacheKey;
+        AuditResult aiResult = auditRequestCoalescer.execute(auditCacheKey,
+                () -> callAiAndCacheText(userId, content, templateFingerprint, templateConfig, auditCacheKey, localCategories,
+                        ruleEvaluation, prefetched != null));
+        return withLocalChecks(aiResult, localCategories, ruleEvaluation);
+    }
+    
+    /**
+     * A copy of an AI verdict with this request's local checks on top: the categories of sensitive
+     * words and matched rules, and the cap of REVIEW/WARN rules. The cache holds the plain AI verdict
+     * and the checks are applied on every return, so reloaded word lists and rules also apply to
+     * texts that are already cached.
+     */
+    private AuditResult withLocalChecks(AuditResult verdict, List<String> localCategories,
+                                        CompiledRuleSet.Evaluation ruleEvaluation) {
+        AuditResult result = verdict.copy();
+        result.setCategories(mergeCategories(result.getCategories(), localCategories));
+        ruleEngine.applyToVerdict(result, ruleEvaluation);
+        return result;
+    }
+    
+    private static String textCacheKey(String content, String templateFingerprint) {
+        String cacheKey = "audit:text:" + DigestUtils.sha256Hex(content);
+        return templateFingerprint != null ? cacheKey + ":" + templateFingerprint : cacheKey;
+    }
+    
+    /**
+     * The template configuration for an audit: the compiled copy of a referenced template,
+     * or the inline config when no template ID is given.
+     */
+    public Map<String, Object> resolveTemplateConfig(String userInfo, Map<String, Object> templateConfig,
+                                                     String templateId, String templateVersion) {
+        if (templateId == null || templateId.isEmpty()) {
+            return templateConfig;
+        }
+        return compiledTemplateCache.resolve(userInfo, templateId, templateVersion).getConfig();
+    }
+    
+    /**
+     * Call the AI model for a text cache miss, then cache the plain AI verdict and record it with
+     * the local checks applied. Returns the plain verdict, shared with coalesced callers.
+     */
+    private AuditResult callAiAndCacheText(Long userId, String content, String templateFingerprint,
+                                           Map<String, Object> templateConfig, String cacheKey,
+                                           List<String> localCategories, CompiledRuleSet.Evaluation ruleEvaluation,
+                                           boolean batch) {
         // 3. Call AI model with template configuration
         System.out.println("=== SERVICE DEBUG ===");
         System.out.println("templateConfig received: " + (templateConfig != null));
@@ -110,7 +269,18 @@ public class ContentAuditService {
         
         System.out.println("aiRequest.templateConfig: " + (aiRequest.getTemplateConfig() != null));
         
-        AiAuditResponse aiResponse = aiServiceClient.auditText(aiRequest);
+        AiAuditResponse aiResponse;
+        try {
+            aiResponse = aiCallScheduler.call(userId, "text", aiTextMicroBatcher::capacity,
+                    () -> aiTextMicroBatcher.audit(aiRequest));
+        } catch (AiCallGuard.UnavailableException e) {
+            AuditResult degraded = degradedResult(DigestUtils.sha256Hex(content), "TEXT", e, Collections.emptyList());
+            // Batch items get no REVIEW record, they are retried or failed, see auditBatchItem
+            if (!AiCallScheduler.isBatchLane()) {
+                saveAuditRecord(userId, content, null, withLocalChecks(degraded, localCategories, ruleEvaluation), null);
+            }
+            return degraded;
+        }
         
         // 4. Build audit result
         AuditResult result = new AuditResult();
@@ -127,18 +297,57 @@ public class ContentAuditService {
         } else {
             result.setStatus("REVIEW");
         }
-        
         result.setTimestamp(System.currentTimeMillis());
         
         // 5. Cache result (24 hours)
-        redisTemplate.opsForValue().set(cacheKey, result, 24, TimeUnit.HOURS);
+        if (batch) {
+            verdictCache.putDeferred(cacheKey, result);
+        } else {
+            verdictCache.put(cacheKey, result);
+        }
+        nearDuplicateIndex.record(content, templateFingerprint, cacheKey, result);
         
         // 6. Asynchronously record audit log
-        CompletableFuture.runAsync(() -> saveAuditRecord(userId, content, null, result, aiResponse));
+        saveAuditRecord(userId, content, null, withLocalChecks(result, localCategories, ruleEvaluation), aiResponse);
         
         return result;
     }
     
+    /**
+     * REVIEW verdict for when the AI service could not be called. Not cached, so the content
+     * gets a real verdict once the service recovers.
+     */
+    private static AuditResult degradedResult(String contentHash, String contentType,
+                                              AiCallGuard.UnavailableException cause, List<String> categories) {
+        AuditResult result = new AuditResult();
+        result.setContentHash(contentHash);
+        result.setContentType(contentType);
+        result.setIsViolation(false);
+        result.setConfidence(0.0);
+        result.setReason(cause.getMessage() + ", held for manual review");
+        result.setCategories(categories);
+        result.setStatus("REVIEW");
+        result.setDegraded(true);
+        result.setTimestamp(System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * AI categories plus those found locally (sensitive words, matched rules), without duplicates
+     */
+    private static List<String> mergeCategories(List<String> aiCategories, List<String> localCategories) {
+        if (localCategories.isEmpty()) {
+            return aiCategories;
+        }
+        List<String> merged = aiCategories != null ? new ArrayList<>(aiCategories) : new ArrayList<>();
+        for (String category : localCategories) {
+            if (!merged.contains(category)) {
+                merged.add(category);
+            }
+        }
+        return merged;
+    }
+    
     /**
      * Audit text content without template configuration (backward compatibility)
      */
@@ -147,6 +356,20 @@ public class ContentAuditService {
     }
     
     public AuditResult auditImage(String userInfo, String imageUrl, String imageBase64) {
+        Long userId = userIdOf(userInfo);
+        
+        // 1. Decode or download the image once; the cache key is the hash of its bytes
+        return auditImage(userId, imageIngest.fromRequest(imageUrl, imageBase64));
+    }
+    
+    /**
+     * Audit an image uploaded as raw bytes
+     */
+    public AuditResult auditImage(String userInfo, byte[] image) {
+        return auditImage(userIdOf(userInfo), imageIngest.fromBytes(image, null));
+    }
+    
+    private Long userIdOf(String userInfo) {
         @SuppressWarnings("unchecked")
         Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
         
@@ -158,29 +381,50 @@ public class ContentAuditService {
         if (userIdObj == null) {
             throw new RuntimeException("Missing userId in user info. Please clear browser storage and login again. User info: " + userInfo);
         }
-        Long userId = Long.valueOf(userIdObj.toString());
-        
-        // 1. Calculate content hash
-        String content = imageUrl != null ? imageUrl : imageBase64;
-        String contentHash = DigestUtils.sha256Hex(content);
-        String cacheKey = "audit:image:" + contentHash;
+        return Long.valueOf(userIdObj.toString());
+    }
+    
+    private AuditResult auditImage(Long userId, ImageIngest.IngestedImage image) {
+        String cacheKey = "audit:image:" + image.getContentHash();
         
         // 2. Check cache
-        AuditResult cachedResult = (AuditResult) redisTemplate.opsForValue().get(cacheKey);
+        AuditResult cachedResult = verdictCache.get(cacheKey);
         if (cachedResult != null) {
             return cachedResult;
         }
         
-        // 3. Call AI model
-        AiImageAuditRequest aiRequest = new AiImageAuditRequest();
-        aiRequest.setImageUrl(imageUrl);
-        aiRequest.setImageBase64(imageBase64);
+        // The same picture re-encoded or resized reuses a confident verdict
+        AuditResult similarResult = perceptualImageIndex.find(image);
+        if (similarResult != null) {
+            saveAuditRecord(userId, null, image.getSourceUrl(), storablePayload(image), similarResult, null);
+            return similarResult;
+        }
         
-        AiAuditResponse aiResponse = aiServiceClient.auditImage(aiRequest);
+        // Concurrent misses for the same key share one AI call
+        return auditRequestCoalescer.execute(cacheKey,
+                () -> callAiAndCacheImage(userId, image, cacheKey));
+    }
+    
+    /**
+     * Call the AI model for an image cache miss, then cache and record the verdict
+     */
+    private AuditResult callAiAndCacheImage(Long userId, ImageIngest.IngestedImage image, String cacheKey) {
+        // 3. Call AI model
+        AiAuditResponse aiResponse;
+        try {
+            aiResponse = aiCallScheduler.call(userId, "image", () -> aiCallGuard.getLimit("image"),
+                    () -> aiCallGuard.call("image", () -> sendImage(image)));
+        } catch (AiCallGuard.UnavailableException e) {
+            AuditResult degraded = degradedResult(image.getContentHash(), "IMAGE", e, Collections.emptyList());
+            if (!AiCallScheduler.isBatchLane()) {
+                saveAuditRecord(userId, null, image.getSourceUrl(), storablePayload(image), degraded, null);
+            }
+            return degraded;
+        }
         
         // 4. Build audit result
         AuditResult result = new AuditResult();
-        result.setContentHash(contentHash);
+        result.setContentHash(image.getContentHash());
         result.setContentType("IMAGE");
         result.setIsViolation(aiResponse.getIsViolation() != null ? aiResponse.getIsViolation() : false);
         result.setConfidence(aiResponse.getConfidence());
@@ -197,47 +441,197 @@ public class ContentAuditService {
         result.setTimestamp(System.currentTimeMillis());
         
         // 5. Cache result (24 hours)
-        redisTemplate.opsForValue().set(cacheKey, result, 24, TimeUnit.HOURS);
+        verdictCache.put(cacheKey, result);
+        perceptualImageIndex.record(image, cacheKey, result);
         
         // 6. Asynchronously record audit log
-        CompletableFuture.runAsync(() -> saveAuditRecord(userId, null, imageUrl, result, aiResponse));
+        saveAuditRecord(userId, null, image.getSourceUrl(), storablePayload(image), result, aiResponse);
         
         return result;
     }
     
+    /**
+     * The bytes to keep with the record: only what decoded as an image is stored and served back
+     */
+    private static byte[] storablePayload(ImageIngest.IngestedImage image) {
+        return image.getPerceptualHash() != null ? image.getBytes() : null;
+    }
+    
+    /**
+     * Send the image bytes as a binary body, falling back to base64 JSON for AI services without
+     * the binary endpoint; a URL the ingest stage could not download is passed on as is.
+     */
+    private AiAuditResponse sendImage(ImageIngest.IngestedImage image) {
+        AiImageAuditRequest aiRequest = new AiImageAuditRequest();
+        if (image.getBytes() == null) {
+            aiRequest.setImageUrl(image.getSourceUrl());
+            return aiServiceClient.auditImage(aiRequest);
+        }
+        if (binaryImageUpload && System.currentTimeMillis() >= binaryImageEndpointRetryAt) {
+            try {
+                return aiServiceClient.auditImageBinary(image.getBytes());
+            } catch (FeignException.NotFound e) {
+                log.warn("[ContentAuditService] AI service has no binary image endpoint, using base64 for {}ms",
+                        BINARY_IMAGE_ENDPOINT_RETRY_MS);
+                binaryImageEndpointRetryAt = System.currentTimeMillis() + BINARY_IMAGE_ENDPOINT_RETRY_MS;
+            }
+        }
+        aiRequest.setImageBase64(Base64.getEncoder().encodeToString(image.getBytes()));
+        return aiServiceClient.auditImage(aiRequest);
+    }
+    
     public List<AuditResult> auditBatch(String userInfo, BatchAuditRequest request) {
-        List<AuditResult> results = new ArrayList<>();
+        // Items with the same template share its fingerprint instead of hashing it each
+        templateFingerprinter.shareTemplates(request.getItems());
+        Map<String, AuditResult> prefetched = prefetchTextVerdicts(userInfo, request.getItems());
         
-        for (BatchAuditRequest.AuditItem item : request.getItems()) {
+        // Items run concurrently on the batch worker pool; results keep the input order
+        List<AuditResult> results = batchAuditExecutor.executeOrdered(request.getItems(), request.getParallelism(),
+                item -> auditBatchItem(userInfo, item, prefetched, false));
+        
+        // Don't leave the last verdicts and study records waiting for their flush timers
+        verdictCache.flush();
+        studyCallbackBatcher.flushAll();
+        return results;
+    }
+    
+    /**
+     * Streaming batch audit: onResult is called with the item index as soon as each item completes.
+     * Returns without waiting; items are no longer started once cancelled reports true.
+     */
+    public CompletableFuture<Void> auditBatchStream(String userInfo, BatchAuditRequest request,
+                                                    BiConsumer<Integer, AuditResult> onResult, BooleanSupplier cancelled) {
+        templateFingerprinter.shareTemplates(request.getItems());
+        Map<String, AuditResult> prefetched = prefetchTextVerdicts(userInfo, request.getItems());
+        return batchAuditExecutor.executeStreaming(request.getItems(), request.getParallelism(),
+                        item -> auditBatchItem(userInfo, item, prefetched, false), onResult, cancelled)
+                .whenComplete((result, error) -> {
+                    verdictCache.flush();
+                    studyCallbackBatcher.flushAll();
+                });
+    }
+    
+    /**
+     * Look up the cached verdicts of all text items of a batch with one Redis round trip, instead
+     * of one per item. Image keys depend on the downloaded bytes and are still looked up per item.
+     */
+    private Map<String, AuditResult> prefetchTextVerdicts(String userInfo, List<BatchAuditRequest.AuditItem> items) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (BatchAuditRequest.AuditItem item : items) {
+            if (!"TEXT".equals(item.getType()) || item.getContent() == null) {
+                continue;
+            }
             try {
-                AuditResult result;
+                Map<String, Object> templateConfig = resolveTemplateConfig(userInfo, item.getTemplateConfig(),
+                        item.getTemplateId(), item.getTemplateVersion());
+                String templateFingerprint = templateConfig != null ? templateFingerprinter.fingerprint(templateConfig) : null;
+                keys.add(textCacheKey(item.getContent(), templateFingerprint));
+            } catch (RuntimeException e) {
+                // The item reports the failure itself when it runs
+            }
+        }
+        if (keys.isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return verdictCache.getAll(keys);
+        } catch (RuntimeException e) {
+            log.warn("[ContentAuditService] Batch cache lookup of {} keys failed, looking up per item: {}", keys.size(), e.getMessage());
+            return new HashMap<>();
+        }
+    }
+    
+    /**
+     * Audit a single batch item, turning any failure into an ERROR result for that item only.
+     * Also used by the audit job workers.
+     *
+     * @param canRetry whether the caller retries the item later if the AI service is unavailable; the
+     *                 ERROR result is then marked degraded and the study record is left alone
+     */
+    AuditResult auditBatchItem(String userInfo, BatchAuditRequest.AuditItem item, boolean canRetry) {
+        return auditBatchItem(userInfo, item, null, canRetry);
+    }
+    
+    private AuditResult auditBatchItem(String userInfo, BatchAuditRequest.AuditItem item, Map<String, AuditResult> prefetched,
+                                       boolean canRetry) {
+        try {
+            // AI calls of batch, job and study items queue behind interactive audits
+            AuditResult result = AiCallScheduler.inBatchLane(() -> {
                 if ("TEXT".equals(item.getType())) {
                     // Pass templateConfig to auditText method
-                    result = auditText(userInfo, item.getContent(), item.getTemplateConfig(), false);
-                } else {
-                    result = auditImage(userInfo, item.getContent(), null);
+                    Map<String, Object> templateConfig = resolveTemplateConfig(userInfo, item.getTemplateConfig(),
+                            item.getTemplateId(), item.getTemplateVersion());
+                    return auditText(userInfo, item.getContent(), templateConfig, false, prefetched);
                 }
-                
-                // If this is a Study-related audit, update the Study record
-                if (item.getStudyId() != null && item.getRecordId() != null) {
-                    updateStudyRecord(item.getStudyId(), item.getRecordId(), result);
-                }
-                
-                results.add(result);
-            } catch (Exception e) {
+                return auditImage(userInfo, item.getContent(), null);
+            });
+            
+            // A degraded REVIEW is no verdict; as the final state of a batch item or study record it would never be revisited
+            if (Boolean.TRUE.equals(result.getDegraded())) {
                 AuditResult errorResult = new AuditResult();
                 errorResult.setStatus("ERROR");
-                errorResult.setReason("Audit failed: " + e.getMessage());
-                results.add(errorResult);
-                
-                // If this is a Study-related audit, also update the Study record status to error
-                if (item.getStudyId() != null && item.getRecordId() != null) {
-                    updateStudyRecordError(item.getStudyId(), item.getRecordId(), e.getMessage());
+                errorResult.setReason("Audit failed: AI service unavailable");
+                if (canRetry) {
+                    errorResult.setDegraded(true);
+                } else if (item.getStudyId() != null && item.getRecordId() != null) {
+                    updateStudyRecordError(item.getStudyId(), item.getRecordId(), "AI service unavailable");
                 }
+                return errorResult;
+            }
+            
+            // If this is a Study-related audit, update the Study record
+            if (item.getStudyId() != null && item.getRecordId() != null) {
+                updateStudyRecord(item.getStudyId(), item.getRecordId(), result);
+            }
+            
+            return result;
+        } catch (Exception e) {
+            AuditResult errorResult = new AuditResult();
+            errorResult.setStatus("ERROR");
+            errorResult.setReason("Audit failed: " + e.getMessage());
+            
+            // If this is a Study-related audit, also update the Study record status to error
+            if (item.getStudyId() != null && item.getRecordId() != null) {
+                updateStudyRecordError(item.getStudyId(), item.getRecordId(), e.getMessage());
             }
+            return errorResult;
         }
-        
-        return results;
+    }
+    
+    /**
+     * One of the user's own audit records
+     */
+    public AuditRecord getOwnRecord(String userInfo, Long recordId) {
+        Long userId = userIdOf(userInfo);
+        return auditRecordRepository.findById(recordId)
+                .filter(record -> userId.equals(record.getUserId()))
+                .orElseThrow(() -> new RuntimeException("Audit record not found"));
+    }
+    
+    /**
+     * The full text or image of a record, mapped from the blob store or wrapped from the inline
+     * text, or null if the record has neither (e.g. an image audited by URL only)
+     */
+    public ByteBuffer getRecordContent(AuditRecord record) {
+        if (record.getContentType() == AuditRecord.ContentType.IMAGE && record.getContentBlob() == null) {
+            return null;
+        }
+        if (record.getContentBlob() != null) {
+            return blobStore.read(record.getContentBlob());
+        }
+        return record.getContentText() != null
+                ? ByteBuffer.wrap(record.getContentText().getBytes(StandardCharsets.UTF_8)) : null;
+    }
+    
+    /**
+     * The media type to serve record content as: UTF-8 text for texts, the sniffed image type for
+     * images, or null if an image blob does not look like an image and must not be served
+     */
+    public String getRecordContentType(AuditRecord record, ByteBuffer content) {
+        if (record.getContentType() == AuditRecord.ContentType.TEXT) {
+            return "text/plain;charset=UTF-8";
+        }
+        return ImageHash.mimeType(content);
     }
     
     public Page<AuditRecord> getHistory(String userInfo, int page, int size) {
@@ -257,12 +651,57 @@ public class ContentAuditService {
         return auditRecordRepository.findByUserId(userId, pageRequest);
     }
 
+    /**
+     * Cursor-paginated history, newest first. The cursor is the opaque nextCursor of the previous
+     * page (null for the first page); the total is only counted when includeTotal is set.
+     */
+    public AuditHistoryPage getHistoryPage(String userInfo, String cursor, int size, boolean includeTotal) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
+        Long userId = Long.valueOf(userMap.get("id").toString());
+        int limit = Math.max(1, Math.min(size, HISTORY_MAX_PAGE_SIZE));
+        
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                afterCreatedAt = LocalDateTime.parse(parts[0]);
+                afterId = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid history cursor");
+            }
+        }
+        
+        // One extra row tells whether another page follows
+        List<AuditHistoryItem> items = auditHistoryRepository.findPage(userId, afterCreatedAt, afterId, limit + 1);
+        AuditHistoryPage page = new AuditHistoryPage();
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items = items.subList(0, limit);
+            AuditHistoryItem last = items.get(limit - 1);
+            String token = last.getCreatedAt() + "|" + last.getId();
+            page.setNextCursor(Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+        }
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        
+        if (includeTotal) {
+            // The live counters already know the total, counting rows is the fallback
+            Long total = auditStatisticsCounters.readTotal(userId);
+            page.setTotalCount(total != null ? total : auditRecordRepository.countByUserId(userId));
+        }
+        return page;
+    }
+    
+    @Transactional
     public void reviewAudit(String userInfo, Long auditId, ReviewRequest request) {
         @SuppressWarnings("unchecked")
         Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
         Long reviewerId = Long.valueOf(userMap.get("id").toString());
         
-        AuditRecord record = auditRecordRepository.findById(auditId)
+        // Locked so that concurrent reviews cannot both move the record (and the statistics) out of REVIEW
+        AuditRecord record = auditRecordRepository.findByIdForUpdate(auditId)
                 .orElseThrow(() -> new RuntimeException("Audit record not found"));
         
         // Check permissions: can only review own content
@@ -284,6 +723,19 @@ public class ContentAuditService {
         record.setReviewedAt(LocalDateTime.now());
         
         auditRecordRepository.save(record);
+        
+        // Move the record from REVIEW to its new status in the daily rollup
+        AuditStatisticsRepository.DailyCounts delta =
+                new AuditStatisticsRepository.DailyCounts(record.getUserId(), record.getCreatedAt().toLocalDate());
+        delta.add(AuditRecord.AuditStatus.REVIEW, null, -1);
+        delta.add(record.getStatus(), null, 1);
+        auditStatisticsRepository.increment(Collections.singletonList(delta));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                auditStatisticsCounters.increment(Collections.singletonList(delta));
+            }
+        });
     }
     
     public AuditStatistics getStatistics(String userInfo) {
@@ -291,36 +743,62 @@ public class ContentAuditService {
         Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
         Long userId = Long.valueOf(userMap.get("id").toString());
         
+        // Live Redis counters first, the daily rollup when they are not loaded
+        AuditStatistics cached = auditStatisticsCounters.read(userId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // One row per day from the rollup instead of counting audit_records
+        List<AuditStatisticsRepository.DailyCounts> days = auditStatisticsRepository.findByUserId(userId);
+        if (days.isEmpty() && auditStatisticsRepository.rebuildForUser(userId) > 0) {
+            // Records from before the rollup existed
+            days = auditStatisticsRepository.findByUserId(userId);
+        }
+        // Records may be committed while this load runs, so the reconciler checks the user again
+        auditStatisticsCounters.replace(userId, days, true);
+        
         AuditStatistics statistics = new AuditStatistics();
-        statistics.setTotalCount(auditRecordRepository.countByUserId(userId));
-        statistics.setPassCount(auditRecordRepository.countByUserIdAndStatus(userId, AuditRecord.AuditStatus.PASS));
-        statistics.setRejectCount(auditRecordRepository.countByUserIdAndStatus(userId, AuditRecord.AuditStatus.REJECT));
-        statistics.setReviewCount(auditRecordRepository.countByUserIdAndStatus(userId, AuditRecord.AuditStatus.REVIEW));
-        statistics.setTextCount(auditRecordRepository.countByUserIdAndContentType(userId, AuditRecord.ContentType.TEXT));
-        statistics.setImageCount(auditRecordRepository.countByUserIdAndContentType(userId, AuditRecord.ContentType.IMAGE));
+        long total = 0, pass = 0, reject = 0, review = 0, text = 0, image = 0;
+        Map<LocalDate, AuditStatisticsRepository.DailyCounts> byDate = new HashMap<>();
+        for (AuditStatisticsRepository.DailyCounts day : days) {
+            total += day.getTotal();
+            pass += day.getPass();
+            reject += day.getReject();
+            review += day.getReview();
+            text += day.getText();
+            image += day.getImage();
+            byDate.put(day.getDate(), day);
+        }
+        statistics.setTotalCount(total);
+        statistics.setPassCount(pass);
+        statistics.setRejectCount(reject);
+        statistics.setReviewCount(review);
+        statistics.setTextCount(text);
+        statistics.setImageCount(image);
         
         // Generate trend data for the last 7 days
-        List<TrendData> trendData = generateTrendData(userId);
+        List<TrendData> trendData = generateTrendData(byDate);
         statistics.setTrendData(trendData);
         
         return statistics;
     }
     
-    private List<TrendData> generateTrendData(Long userId) {
+    private List<TrendData> generateTrendData(Map<LocalDate, AuditStatisticsRepository.DailyCounts> byDate) {
         List<TrendData> trendData = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         
         // Generate data for the last 7 days
         for (int i = 6; i >= 0; i--) {
-            LocalDateTime date = LocalDateTime.now().minusDays(i);
+            LocalDate date = LocalDate.now().minusDays(i);
             String dateStr = date.format(formatter);
             
-            // Query actual data from database for this date
-            Long pass = auditRecordRepository.countByUserIdAndStatusAndDate(userId, AuditRecord.AuditStatus.PASS, date);
-            Long reject = auditRecordRepository.countByUserIdAndStatusAndDate(userId, AuditRecord.AuditStatus.REJECT, date);
-            Long review = auditRecordRepository.countByUserIdAndStatusAndDate(userId, AuditRecord.AuditStatus.REVIEW, date);
-            
-            trendData.add(new TrendData(dateStr, pass, reject, review));
+            AuditStatisticsRepository.DailyCounts day = byDate.get(date);
+            if (day != null) {
+                trendData.add(new TrendData(dateStr, day.getPass(), day.getReject(), day.getReview()));
+            } else {
+                trendData.add(new TrendData(dateStr, 0L, 0L, 0L));
+            }
         }
         
         return trendData;
@@ -328,16 +806,37 @@ public class ContentAuditService {
     
     private void saveAuditRecord(Long userId, String contentText, String contentUrl, 
                                AuditResult result, AiAuditResponse aiResponse) {
+        saveAuditRecord(userId, contentText, contentUrl, null, result, aiResponse);
+    }
+    
+    /**
+     * @param payload image bytes to keep with the record, or null
+     */
+    private void saveAuditRecord(Long userId, String contentText, String contentUrl, byte[] payload,
+                               AuditResult result, AiAuditResponse aiResponse) {
         try {
             AuditRecord record = new AuditRecord();
             record.setUserId(userId);
             record.setContentType(AuditRecord.ContentType.valueOf(result.getContentType()));
+            // Images and long texts go to the blob store; the row keeps the hash and, for texts, a preview
+            if (payload != null) {
+                record.setContentBlob(blobStore.put(payload));
+            } else if (blobStore.isLargeText(contentText)) {
+                String contentBlob = blobStore.put(contentText.getBytes(StandardCharsets.UTF_8));
+                if (contentBlob != null) {
+                    record.setContentBlob(contentBlob);
+                    contentText = blobStore.preview(contentText);
+                }
+            }
             record.setContentText(contentText);
             record.setContentUrl(contentUrl);
             record.setContentHash(result.getContentHash());
             @SuppressWarnings("unchecked")
             Map<String, Object> auditResult = (Map<String, Object>) JSON.parseObject(JSON.toJSONString(result), Map.class);
+            // Kept in their own column
+            auditResult.remove("ruleResults");
             record.setAuditResult(auditResult);
+            record.setRuleResults(result.getRuleResults());
             record.setConfidence(new BigDecimal(result.getConfidence()));
             
             // Handle null status
@@ -352,7 +851,8 @@ public class ContentAuditService {
             Map<String, Object> aiResult = (Map<String, Object>) JSON.parseObject(JSON.toJSONString(aiResponse), Map.class);
             record.setAiResult(aiResult);
             
-            auditRecordRepository.save(record);
+            // Persisted asynchronously in batches
+            auditRecordWriter.enqueue(record);
         } catch (Exception e) {
             // Log the error, but do not affect the main flow
             e.printStackTrace();
@@ -372,28 +872,8 @@ public class ContentAuditService {
             updateRequest.put("aiResult", JSON.toJSONString(auditResult));
             updateRequest.put("reviewedAt", LocalDateTime.now().toString());
             
-            // Call Study Service to update record
-            // Use RestTemplate to call Study Service
-            RestTemplate restTemplate = new RestTemplate();
-            String url = "http://audit-study:8085/api/study/" + studyId + "/records/" + recordId + "/update-from-audit";
-            
-            System.out.println("DEBUG: Updating study record - Study ID: " + studyId + ", Record ID: " + recordId);
-            System.out.println("DEBUG: Update URL: " + url);
-            System.out.println("DEBUG: Update data: " + JSON.toJSONString(updateRequest));
-            
-            // Send PUT request to Study Service
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(updateRequest, headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PUT, entity, String.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
-                System.out.println("DEBUG: Successfully updated study record via HTTP call");
-            } else {
-                System.err.println("DEBUG: Failed to update study record, HTTP status: " + response.getStatusCode());
-            }
-            
+            // Sent to Study Service together with the other records of the same study
+            studyCallbackBatcher.enqueue(studyId, recordId, updateRequest);
         } catch (Exception e) {
             System.err.println("Failed to update study record: " + e.getMessage());
             e.printStackTrace();
@@ -411,27 +891,7 @@ public class ContentAuditService {
             updateRequest.put("aiResult", "{\"error\":\"" + errorMessage + "\"}");
             updateRequest.put("reviewedAt", LocalDateTime.now().toString());
             
-            // Call Study Service to update record
-            RestTemplate restTemplate = new RestTemplate();
-            String url = "http://audit-study:8085/api/study/" + studyId + "/records/" + recordId + "/update-from-audit";
-            
-            System.out.println("DEBUG: Updating study record with error - Study ID: " + studyId + ", Record ID: " + recordId);
-            System.out.println("DEBUG: Error URL: " + url);
-            System.out.println("DEBUG: Error data: " + JSON.toJSONString(updateRequest));
-            
-            // Send PUT request to Study Service
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(updateRequest, headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PUT, entity, String.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
-                System.out.println("DEBUG: Successfully updated study record with error via HTTP call");
-            } else {
-                System.err.println("DEBUG: Failed to update study record with error, HTTP status: " + response.getStatusCode());
-            }
-            
+            studyCallbackBatcher.enqueue(studyId, recordId, updateRequest);
         } catch (Exception e) {
             System.err.println("Failed to update study record with error: " + e.getMessage());
             e.printStackTrace();
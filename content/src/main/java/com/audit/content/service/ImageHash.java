@@ -0,0 +1,148 @@
+package com.audit.content.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * 64-bit difference hash (dHash) of an image for finding re-encoded, resized or recompressed
+ * copies. The image is shrunk to a 9x8 grid of average brightness and every bit says whether
+ * a cell is brighter than its right neighbour, so the hash follows the image's gradients rather
+ * than its bytes. Copies of the same picture usually end up a few bits apart; Hamming distance
+ * is {@link SimHash#distance(long, long)}.
+ */
+public final class ImageHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+
+    // Refuse to decode anything larger, whatever its file size
+    private static final long MAX_PIXELS = 100_000_000L;
+
+    private ImageHash() {
+    }
+
+    /**
+     * dHash of an encoded image (any format ImageIO reads), or null if it cannot be decoded.
+     */
+    public static Long dHash(byte[] encoded) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(encoded))) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    return null;
+                }
+                // A 9x8 grid needs only a few pixels per cell, so large images are decoded subsampled
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.min(width / (WIDTH * 8), height / (HEIGHT * 8)));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return dHash(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The MIME type of an encoded image as sniffed from its header by ImageIO, or null if no
+     * reader recognises it.
+     */
+    public static String mimeType(ByteBuffer encoded) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteBufferInputStream(encoded.duplicate()))) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            String[] types = readers.next().getOriginatingProvider().getMIMETypes();
+            return types != null && types.length > 0 ? types[0] : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[] sums = new double[WIDTH * HEIGHT];
+        int[] counts = new int[WIDTH * HEIGHT];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = (int) ((long) y * HEIGHT / height) * WIDTH;
+            for (int x = 0; x < width; x++) {
+                int cell = cellRow + (int) ((long) x * WIDTH / width);
+                sums[cell] += luminance(row[x]);
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        int bit = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++, bit++) {
+                int left = y * WIDTH + x;
+                if (mean(sums, counts, left) < mean(sums, counts, left + 1)) {
+                    hash |= 1L << bit;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static double luminance(int argb) {
+        double alpha = ((argb >>> 24) & 0xff) / 255.0;
+        double luma = 0.299 * ((argb >> 16) & 0xff) + 0.587 * ((argb >> 8) & 0xff) + 0.114 * (argb & 0xff);
+        // Transparent areas count as white
+        return luma * alpha + 255 * (1 - alpha);
+    }
+
+    private static double mean(double[] sums, int[] counts, int cell) {
+        // Cells left empty by images smaller than the grid count as black
+        return counts[cell] > 0 ? sums[cell] / counts[cell] : 0;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.audit.content.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * First stage of an image audit: turns the request into the image's bytes, once.
+ * Base64 payloads are decoded and URLs are downloaded through the shared pooled client, so
+ * the verdict is keyed by what the image is rather than by where it came from: identical
+ * images at different URLs share a verdict, and a changed image behind the same URL gets a
+ * new one. Each image also gets a perceptual {@link ImageHash} for finding near-identical
+ * copies. Only when a URL cannot be downloaded here is the URL itself hashed and passed on
+ * for the AI service to fetch.
+ * Downloads run inside the service network, so they only go to public addresses (checked when
+ * the host is resolved for the connection, not just up front), never follow redirects, and keep
+ * the body only if it is declared as an image and actually decodes as one. A URL refused for any
+ * of these reasons is rejected with an IllegalArgumentException rather than passed on, since the
+ * AI service would fetch it without those checks.
+ */
+@Component
+public class ImageIngest {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageIngest.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.images.max-bytes:10485760}")
+    private int maxBytes;
+
+    @Value("${audit.images.fetch-urls:true}")
+    private boolean fetchUrls;
+
+    // Hosts (or .domain suffixes) images may be downloaded from; empty allows any public host
+    @Value("${audit.images.fetch.allowed-hosts:}")
+    private String allowedHosts;
+
+    @Value("${audit.images.fetch.timeout-ms:5000}")
+    private int fetchTimeoutMs;
+
+    private List<String> allowedHostList;
+    private CloseableHttpClient downloadClient;
+
+    private Counter urlImages;
+    private Counter urlReferences;
+    private Counter inlineImages;
+    private Counter undecodable;
+    private Counter refused;
+    private DistributionSummary imageBytes;
+    private Timer hashing;
+
+    @PostConstruct
+    public void init() {
+        urlImages = Counter.builder("audit.image.ingest").tag("source", "url").register(meterRegistry);
+        urlReferences = Counter.builder("audit.image.ingest").tag("source", "url-reference").register(meterRegistry);
+        inlineImages = Counter.builder("audit.image.ingest").tag("source", "inline").register(meterRegistry);
+        undecodable = Counter.builder("audit.image.undecodable").register(meterRegistry);
+        imageBytes = DistributionSummary.builder("audit.image.bytes").baseUnit("bytes").register(meterRegistry);
+        hashing = Timer.builder("audit.image.hashing").register(meterRegistry);
+        refused = Counter.builder("audit.image.download.refused").register(meterRegistry);
+
+        allowedHostList = Arrays.stream(allowedHosts.split(","))
+                .map(host -> host.trim().toLowerCase(Locale.ROOT))
+                .filter(host -> !host.isEmpty())
+                .collect(Collectors.toList());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(fetchTimeoutMs)
+                .setSocketTimeout(fetchTimeoutMs)
+                .setConnectionRequestTimeout(fetchTimeoutMs)
+                .setRedirectsEnabled(false)
+                .build();
+        // Not the shared pool: this client must refuse internal addresses and redirects
+        downloadClient = HttpClients.custom()
+                .setDnsResolver(new PublicAddressResolver())
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .setDefaultRequestConfig(requestConfig)
+                .setMaxConnTotal(20)
+                .setMaxConnPerRoute(4)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (downloadClient != null) {
+            downloadClient.close();
+        }
+    }
+
+    /**
+     * Ingest the image of a JSON audit request: inline base64 (optionally a data: URI) wins over the URL.
+     *
+     * @throws IllegalArgumentException if the URL points at an internal host or redirects
+     */
+    public IngestedImage fromRequest(String imageUrl, String imageBase64) {
+        if (imageBase64 != null && !imageBase64.isEmpty()) {
+            return fromBytes(decodeBase64(imageBase64), imageUrl);
+        }
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            throw new RuntimeException("Either imageUrl or imageBase64 must be provided");
+        }
+        URI uri = checkUrl(imageUrl);
+        if (fetchUrls) {
+            byte[] bytes = download(uri, imageUrl);
+            Long perceptualHash = bytes != null ? ImageHash.dHash(bytes) : null;
+            if (perceptualHash != null) {
+                urlImages.increment();
+                imageBytes.record(bytes.length);
+                return new IngestedImage(bytes, imageUrl, DigestUtils.sha256Hex(bytes), perceptualHash);
+            }
+            if (bytes != null) {
+                // Not an image after all, the AI service gets the URL as before
+                undecodable.increment();
+            }
+        }
+        urlReferences.increment();
+        return new IngestedImage(null, imageUrl, DigestUtils.sha256Hex(imageUrl), null);
+    }
+
+    /**
+     * Ingest an image uploaded as raw bytes.
+     */
+    public IngestedImage fromBytes(byte[] bytes, String sourceUrl) {
+        if (bytes == null || bytes.length == 0) {
+            throw new RuntimeException("Image data is empty");
+        }
+        if (bytes.length > maxBytes) {
+            throw new RuntimeException("Image of " + bytes.length + " bytes exceeds the limit of " + maxBytes);
+        }
+        inlineImages.increment();
+        return hash(bytes, sourceUrl);
+    }
+
+    private IngestedImage hash(byte[] bytes, String sourceUrl) {
+        imageBytes.record(bytes.length);
+        return hashing.record(() -> {
+            Long perceptualHash = ImageHash.dHash(bytes);
+            if (perceptualHash == null) {
+                // The AI service decides what to make of it; it just is not matched perceptually
+                undecodable.increment();
+            }
+            return new IngestedImage(bytes, sourceUrl, DigestUtils.sha256Hex(bytes), perceptualHash);
+        });
+    }
+
+    private byte[] decodeBase64(String imageBase64) {
+        int start = 0;
+        if (imageBase64.startsWith("data:")) {
+            start = imageBase64.indexOf(',') + 1;
+        }
+        // Cheap size check before allocating: 4 base64 characters per 3 bytes
+        if ((long) (imageBase64.length() - start) * 3 / 4 > maxBytes) {
+            throw new RuntimeException("Image exceeds the limit of " + maxBytes + " bytes");
+        }
+        try {
+            return Base64.getMimeDecoder().decode(start == 0 ? imageBase64 : imageBase64.substring(start));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid base64 image data");
+        }
+    }
+
+    /**
+     * The URL if it is an http(s) URL of an allowed host, checked before anything fetches it.
+     */
+    private URI checkUrl(String imageUrl) {
+        URI uri;
+        try {
+            uri = URI.create(imageUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid image URL");
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())
+                || uri.getHost() == null || uri.getUserInfo() != null || !isAllowedHost(uri.getHost())) {
+            refused.increment();
+            throw new IllegalArgumentException("Image URL refused: only public http(s) hosts are allowed");
+        }
+        return uri;
+    }
+
+    /**
+     * The body behind a checked URL if it is declared as an image, or null if it cannot be
+     * fetched, is not an image or is too large.
+     *
+     * @throws IllegalArgumentException if the host resolves to a non-public address or the URL redirects
+     */
+    private byte[] download(URI uri, String imageUrl) {
+        try (CloseableHttpResponse response = downloadClient.execute(new HttpGet(uri))) {
+            HttpEntity entity = response.getEntity();
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= 300 && status < 400) {
+                refused.increment();
+                throw new IllegalArgumentException("Image URL refused: redirects are not followed");
+            }
+            if (status != 200 || entity == null) {
+                return null;
+            }
+            ContentType contentType = ContentType.get(entity);
+            if (contentType == null || !contentType.getMimeType().toLowerCase(Locale.ROOT).startsWith("image/")) {
+                return null;
+            }
+            if (entity.getContentLength() > maxBytes) {
+                return null;
+            }
+            return readLimited(entity.getContent());
+        } catch (NonPublicAddressException e) {
+            throw new IllegalArgumentException("Image URL refused: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.debug("[ImageIngest] Could not download {}, passing the URL on: {}", imageUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    // Service names of the compose network have no dot; anything else must match the allowlist, if any
+    private boolean isAllowedHost(String host) {
+        String name = host.toLowerCase(Locale.ROOT);
+        if (name.startsWith("[")) {
+            return allowedHostList.isEmpty();
+        }
+        if (!name.contains(".") || name.endsWith(".local") || name.endsWith(".internal")) {
+            return false;
+        }
+        if (allowedHostList.isEmpty()) {
+            return true;
+        }
+        for (String allowed : allowedHostList) {
+            if (allowed.startsWith(".") ? name.endsWith(allowed) : name.equals(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isPublicAddress(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isAnyLocalAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet6Address) {
+            // Unique local fc00::/7
+            return (bytes[0] & 0xFE) != 0xFC;
+        }
+        int first = bytes[0] & 0xFF;
+        int second = bytes[1] & 0xFF;
+        // 0/8, carrier-grade NAT 100.64/10, 198.18/15 benchmarking
+        return first != 0 && !(first == 100 && second >= 64 && second < 128) && !(first == 198 && (second == 18 || second == 19));
+    }
+
+    /**
+     * Resolves for the download client and refuses non-public addresses, so a host cannot pass a
+     * check and then resolve to an internal address for the connection.
+     */
+    private final class PublicAddressResolver implements DnsResolver {
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            for (InetAddress address : addresses) {
+                if (!isPublicAddress(address)) {
+                    refused.increment();
+                    throw new NonPublicAddressException(host);
+                }
+            }
+            return addresses;
+        }
+    }
+
+    private static final class NonPublicAddressException extends UnknownHostException {
+        private NonPublicAddressException(String host) {
+            super(host + " resolves to a non-public address");
+        }
+    }
+
+    private byte[] readLimited(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > maxBytes) {
+                throw new IOException("image exceeds " + maxBytes + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * An image ready for auditing. Bytes and perceptual hash are null when only the URL is known.
+     */
+    public static final class IngestedImage {
+        private final byte[] bytes;
+        private final String sourceUrl;
+        private final String contentHash;
+        private final Long perceptualHash;
+
+        private IngestedImage(byte[] bytes, String sourceUrl, String contentHash, Long perceptualHash) {
+            this.bytes = bytes;
+            this.sourceUrl = sourceUrl;
+            this.contentHash = contentHash;
+            this.perceptualHash = perceptualHash;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getSourceUrl() {
+            return sourceUrl;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public Long getPerceptualHash() {
+            return perceptualHash;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.audit.content.service;
+
+import com.audit.content.dto.AuditResult;
+import com.audit.content.repository.AuditRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reuse of recent confident text verdicts for near-duplicate texts.
+ * Every confident REJECT verdict (above min-confidence) is indexed by the SimHash of
+ * its text, in a local {@link SimHashIndex} and in Redis buckets shared by all replicas. The index
+ * points at the verdict's cache key, so invalidating a verdict also stops its reuse. A text
+ * within max-distance bits of an indexed one gets a copy of that verdict marked as derived,
+ * without an AI call. {@link #replay(int)} runs recent recorded verdicts through a fresh index to
+ * measure how often reuse would happen and how often it would disagree with the real verdict.
+ * PASS verdicts are only reused with reuse-pass: SimHash ignores digits and punctuation and a few
+ * edited trigrams, so an approved text with a different phone number or an appended URL would
+ * pass without an AI call.
+ */
+@Component
+public class NearDuplicateIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(NearDuplicateIndex.class);
+
+    private static final String KEY_PREFIX = "audit:neardup:";
+    private static final String NO_SCOPE = "-";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private VerdictCache verdictCache;
+
+    @Autowired
+    private AuditRecordRepository auditRecordRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.near-duplicate.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.near-duplicate.max-distance:3}")
+    private int maxDistance;
+
+    @Value("${audit.near-duplicate.min-confidence:0.95}")
+    private double minConfidence;
+
+    @Value("${audit.near-duplicate.reuse-pass:false}")
+    private boolean reusePass;
+
+    @Value("${audit.near-duplicate.min-length:20}")
+    private int minLength;
+
+    @Value("${audit.near-duplicate.max-entries:100000}")
+    private long maxEntries;
+
+    @Value("${audit.near-duplicate.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${audit.near-duplicate.redis.enabled:true}")
+    private boolean redisEnabled;
+
+    private SimHashIndex<String> local;
+
+    private Counter localHits;
+    private Counter redisHits;
+    private Counter misses;
+    private Counter staleHits;
+    private DistributionSummary hitDistance;
+
+    @PostConstruct
+    public void init() {
+        local = new SimHashIndex<>(maxDistance, maxEntries, Duration.ofHours(ttlHours));
+        localHits = Counter.builder("audit.near-duplicate.lookups").tag("result", "local-hit").register(meterRegistry);
+        redisHits = Counter.builder("audit.near-duplicate.lookups").tag("result", "redis-hit").register(meterRegistry);
+        misses = Counter.builder("audit.near-duplicate.lookups").tag("result", "miss").register(meterRegistry);
+        staleHits = Counter.builder("audit.near-duplicate.lookups").tag("result", "stale").register(meterRegistry);
+        hitDistance = DistributionSummary.builder("audit.near-duplicate.distance").register(meterRegistry);
+        Gauge.builder("audit.near-duplicate.entries", this, index -> index.local.size()).register(meterRegistry);
+    }
+
+    /**
+     * A derived copy of the verdict of a near-identical text audited under the same template,
+     * or null if there is none.
+     *
+     * @param scope the template fingerprint, or null without a template
+     */
+    public AuditResult find(String content, String scope) {
+        if (!enabled || content == null) {
+            return null;
+        }
+        String normalized = SimHash.normalize(content);
+        if (normalized.length() < minLength) {
+            return null;
+        }
+        long simhash = SimHash.of(normalized);
+        String scopeTag = scopeTag(scope);
+
+        SimHashIndex.Hit<String> hit = local.find(simhash, scopeTag);
+        boolean fromRedis = false;
+        if (hit == null && redisEnabled) {
+            hit = findInRedis(simhash, scopeTag);
+            fromRedis = hit != null;
+        }
+        if (hit == null) {
+            misses.increment();
+            return null;
+        }
+
+        AuditResult source = verdictCache.get(hit.getValue());
+        if (source == null) {
+            // The verdict expired or was invalidated since it was indexed
+            staleHits.increment();
+            return null;
+        }
+        if (!reusable(source.getStatus(), source.getConfidence())) {
+            // Indexed by a replica that reuses PASS verdicts
+            misses.increment();
+            return null;
+        }
+        if (fromRedis) {
+            local.put(simhash, scopeTag, hit.getValue());
+            redisHits.increment();
+        } else {
+            localHits.increment();
+        }
+        hitDistance.record(hit.getDistance());
+        return derive(content, source);
+    }
+
+    /**
+     * Index a fresh AI verdict stored in the verdict cache under cacheKey, if it is confident enough to reuse.
+     */
+    public void record(String content, String scope, String cacheKey, AuditResult result) {
+        if (!enabled || !reusable(result.getStatus(), result.getConfidence()) || Boolean.TRUE.equals(result.getDerived())) {
+            return;
+        }
+        String normalized = SimHash.normalize(content);
+        if (normalized.length() < minLength) {
+            return;
+        }
+        long simhash = SimHash.of(normalized);
+        String scopeTag = scopeTag(scope);
+        local.put(simhash, scopeTag, cacheKey);
+        if (!redisEnabled) {
+            return;
+        }
+
+        String[] keys = local.bucketKeys(simhash, scopeTag);
+        String value = Long.toHexString(simhash) + "|" + cacheKey;
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (String key : keys) {
+                    redis.setEx(KEY_PREFIX + key, ttlSeconds, value);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            // The local index still has it; other replicas just miss this one
+            log.warn("[NearDuplicateIndex] Failed to index verdict {} in Redis: {}", cacheKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Replay the most recent AI text verdicts (oldest first) through an empty index with the
+     * current settings. A reuse is false when the verdict it would have reused differs from the
+     * verdict the text actually got.
+     */
+    public Map<String, Object> replay(int limit) {
+        List<Object[]> rows = new ArrayList<>(auditRecordRepository.findRecentAiTextVerdicts(limit));
+        Collections.reverse(rows);
+
+        SimHashIndex<String> index = new SimHashIndex<>(maxDistance, Math.max(1, rows.size()), Duration.ofDays(365));
+        long lookups = 0;
+        long hits = 0;
+        long falseReuses = 0;
+        for (Object[] row : rows) {
+            // Long texts are kept in the blob store, the row only has their start
+            String text = row[3] != null ? blobStore.readText((String) row[3]) : null;
+            String normalized = SimHash.normalize(text != null ? text : (String) row[0]);
+            String status = (String) row[1];
+            Double confidence = row[2] != null ? ((BigDecimal) row[2]).doubleValue() : null;
+            if (normalized.length() < minLength) {
+                continue;
+            }
+            long simhash = SimHash.of(normalized);
+            lookups++;
+            SimHashIndex.Hit<String> hit = index.find(simhash, NO_SCOPE);
+            if (hit != null) {
+                hits++;
+                if (!hit.getValue().equals(status)) {
+                    falseReuses++;
+                }
+            } else if (reusable(status, confidence)) {
+                index.put(simhash, NO_SCOPE, status);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("records", rows.size());
+        report.put("lookups", lookups);
+        report.put("hits", hits);
+        report.put("hitRate", lookups > 0 ? (double) hits / lookups : 0.0);
+        report.put("falseReuses", falseReuses);
+        report.put("falseReuseRate", hits > 0 ? (double) falseReuses / hits : 0.0);
+        report.put("maxDistance", maxDistance);
+        report.put("minConfidence", minConfidence);
+        report.put("reusePass", reusePass);
+        log.info("[NearDuplicateIndex] Replay: {}", report);
+        return report;
+    }
+
+    public long localSize() {
+        return local.size();
+    }
+
+    private SimHashIndex.Hit<String> findInRedis(long simhash, String scopeTag) {
+        String[] keys = local.bucketKeys(simhash, scopeTag);
+        List<String> values;
+        try {
+            values = stringRedisTemplate.opsForValue().multiGet(Arrays.stream(keys).map(key -> KEY_PREFIX + key).toList());
+        } catch (DataAccessException e) {
+            log.warn("[NearDuplicateIndex] Redis lookup failed: {}", e.getMessage());
+            return null;
+        }
+        SimHashIndex.Hit<String> best = null;
+        if (values == null) {
+            return null;
+        }
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            int separator = value.indexOf('|');
+            int distance = SimHash.distance(simhash, Long.parseUnsignedLong(value.substring(0, separator), 16));
+            if (distance <= maxDistance && (best == null || distance < best.getDistance())) {
+                best = new SimHashIndex.Hit<>(value.substring(separator + 1), distance);
+            }
+        }
+        return best;
+    }
+
+    private boolean reusable(String status, Double confidence) {
+        return ("REJECT".equals(status) || reusePass && "PASS".equals(status)) && confidence != null && confidence >= minConfidence;
+    }
+
+    private static String scopeTag(String scope) {
+        // The first 64 bits of the template fingerprint are plenty to keep templates apart
+        return scope == null || scope.isEmpty() ? NO_SCOPE : scope.substring(0, Math.min(16, scope.length()));
+    }
+
+    private static AuditResult derive(String content, AuditResult source) {
+        AuditResult result = new AuditResult();
+        result.setContentHash(DigestUtils.sha256Hex(content));
+        result.setContentType(source.getContentType());
+        result.setIsViolation(source.getIsViolation());
+        result.setConfidence(source.getConfidence());
+        result.setReason(source.getReason());
+        result.setCategories(source.getCategories());
+        result.setStatus(source.getStatus());
+        result.setDerived(true);
+        result.setDerivedFrom(source.getContentHash());
+        result.setTimestamp(System.currentTimeMillis());
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+package com.audit.content.service;
+
+import com.audit.content.dto.AuditResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reuse of recent confident image verdicts for perceptually identical images.
+ * The image counterpart of {@link NearDuplicateIndex}: confident REJECT verdicts are indexed by the
+ * {@link ImageHash} of their image, locally and in Redis buckets shared by all replicas, pointing
+ * at the verdict's cache key. An image whose hash is within max-distance bits of an indexed one
+ * (the same picture re-encoded, resized or recompressed) gets a copy of that verdict marked as
+ * derived, without an AI call. PASS verdicts are only reused with reuse-pass: a QR code, phone
+ * number or watermark added to a corner barely changes the hash of an approved image.
+ */
+@Component
+public class PerceptualImageIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PerceptualImageIndex.class);
+
+    private static final String KEY_PREFIX = "audit:imghash:";
+    private static final String SCOPE = "img";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private VerdictCache verdictCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.images.perceptual.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.images.perceptual.max-distance:4}")
+    private int maxDistance;
+
+    @Value("${audit.images.perceptual.min-confidence:0.95}")
+    private double minConfidence;
+
+    @Value("${audit.images.perceptual.reuse-pass:false}")
+    private boolean reusePass;
+
+    @Value("${audit.images.perceptual.max-entries:100000}")
+    private long maxEntries;
+
+    @Value("${audit.images.perceptual.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${audit.images.perceptual.redis.enabled:true}")
+    private boolean redisEnabled;
+
+    private SimHashIndex<String> local;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter staleHits;
+    private DistributionSummary hitDistance;
+
+    @PostConstruct
+    public void init() {
+        local = new SimHashIndex<>(maxDistance, maxEntries, Duration.ofHours(ttlHours));
+        hits = Counter.builder("audit.image.perceptual.lookups").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("audit.image.perceptual.lookups").tag("result", "miss").register(meterRegistry);
+        staleHits = Counter.builder("audit.image.perceptual.lookups").tag("result", "stale").register(meterRegistry);
+        hitDistance = DistributionSummary.builder("audit.image.perceptual.distance").register(meterRegistry);
+        Gauge.builder("audit.image.perceptual.entries", this, index -> index.local.size()).register(meterRegistry);
+    }
+
+    /**
+     * A derived copy of the verdict of a perceptually identical image, or null if there is none.
+     */
+    public AuditResult find(ImageIngest.IngestedImage image) {
+        if (!enabled || image.getPerceptualHash() == null) {
+            return null;
+        }
+        long hash = image.getPerceptualHash();
+        SimHashIndex.Hit<String> hit = local.find(hash, SCOPE);
+        if (hit == null && redisEnabled) {
+            hit = findInRedis(hash);
+            if (hit != null) {
+                local.put(hash, SCOPE, hit.getValue());
+            }
+        }
+        if (hit == null) {
+            misses.increment();
+            return null;
+        }
+
+        AuditResult source = verdictCache.get(hit.getValue());
+        if (source == null) {
+            staleHits.increment();
+            return null;
+        }
+        if (!reusable(source)) {
+            // Indexed by a replica that reuses PASS verdicts
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        hitDistance.record(hit.getDistance());
+        return derive(image, source);
+    }
+
+    /**
+     * Index a fresh AI verdict stored in the verdict cache under cacheKey, if it is confident enough to reuse.
+     */
+    public void record(ImageIngest.IngestedImage image, String cacheKey, AuditResult result) {
+        if (!enabled || image.getPerceptualHash() == null || Boolean.TRUE.equals(result.getDerived()) || !reusable(result)) {
+            return;
+        }
+        long hash = image.getPerceptualHash();
+        local.put(hash, SCOPE, cacheKey);
+        if (!redisEnabled) {
+            return;
+        }
+
+        String[] keys = local.bucketKeys(hash, SCOPE);
+        String value = Long.toHexString(hash) + "|" + cacheKey;
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (String key : keys) {
+                    redis.setEx(KEY_PREFIX + key, ttlSeconds, value);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("[PerceptualImageIndex] Failed to index verdict {} in Redis: {}", cacheKey, e.getMessage());
+        }
+    }
+
+    private boolean reusable(AuditResult result) {
+        return ("REJECT".equals(result.getStatus()) || reusePass && "PASS".equals(result.getStatus()))
+                && result.getConfidence() != null && result.getConfidence() >= minConfidence;
+    }
+
+    private SimHashIndex.Hit<String> findInRedis(long hash) {
+        List<String> values;
+        try {
+            values = stringRedisTemplate.opsForValue().multiGet(
+                    Arrays.stream(local.bucketKeys(hash, SCOPE)).map(key -> KEY_PREFIX + key).toList());
+        } catch (DataAccessException e) {
+            log.warn("[PerceptualImageIndex] Redis lookup failed: {}", e.getMessage());
+            return null;
+        }
+        if (values == null) {
+            return null;
+        }
+        SimHashIndex.Hit<String> best = null;
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            int separator = value.indexOf('|');
+            int distance = SimHash.distance(hash, Long.parseUnsignedLong(value.substring(0, separator), 16));
+            if (distance <= maxDistance && (best == null || distance < best.getDistance())) {
+                best = new SimHashIndex.Hit<>(value.substring(separator + 1), distance);
+            }
+        }
+        return best;
+    }
+
+    private static AuditResult derive(ImageIngest.IngestedImage image, AuditResult source) {
+        AuditResult result = new AuditResult();
+        result.setContentHash(image.getContentHash());
+        result.setContentType(source.getContentType());
+        result.setIsViolation(source.getIsViolation());
+        result.setConfidence(source.getConfidence());
+        result.setReason(source.getReason());
+        result.setCategories(source.getCategories());
+        result.setStatus(source.getStatus());
+        result.setDerived(true);
+        result.setDerivedFrom(source.getContentHash());
+        result.setTimestamp(System.currentTimeMillis());
+        return result;
+    }
+}
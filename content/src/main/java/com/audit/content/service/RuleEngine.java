@@ -0,0 +1,215 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import com.audit.content.dto.AuditResult;
+import com.audit.content.repository.AuditRuleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local evaluation of the audit_rules referenced by a template.
+ * Rules are compiled from the table into a {@link CompiledRuleSet} and swapped when the table
+ * changes. A matched REJECT rule rejects the text without calling the AI service; matched REVIEW
+ * and WARN rules keep the AI call but never let its verdict be a plain PASS. Each evaluated rule
+ * is timed under audit.rules.evaluation, tagged with its rule ID.
+ */
+@Component
+public class RuleEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleEngine.class);
+
+    @Autowired
+    private AuditRuleRepository auditRuleRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.rules.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.rules.reload-interval-seconds:30}")
+    private long reloadIntervalSeconds;
+
+    private volatile CompiledRuleSet rules = CompiledRuleSet.empty();
+    private volatile String loadedSignature;
+    private ScheduledExecutorService reloader;
+
+    private final Map<String, Timer> ruleTimers = new ConcurrentHashMap<>();
+    private Timer keywordScanTimer;
+    private Counter rejected;
+    private Counter downgraded;
+
+    @PostConstruct
+    public void init() {
+        keywordScanTimer = Timer.builder("audit.rules.keyword.scan").register(meterRegistry);
+        rejected = Counter.builder("audit.rules.decisions").tag("action", "reject").register(meterRegistry);
+        downgraded = Counter.builder("audit.rules.decisions").tag("action", "downgrade").register(meterRegistry);
+        Gauge.builder("audit.rules.loaded", this, engine -> engine.rules.size()).register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+
+        reloadSafely();
+        reloader = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("audit-rule-reload-"));
+        reloader.scheduleWithFixedDelay(this::reloadSafely, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * Evaluate the rules the template references against a text;
+     * {@link CompiledRuleSet.Evaluation#NONE} without a template or when disabled.
+     */
+    public CompiledRuleSet.Evaluation evaluate(Map<String, Object> templateConfig, String content) {
+        if (!enabled || templateConfig == null) {
+            return CompiledRuleSet.Evaluation.NONE;
+        }
+        List<String> ruleIds = ruleIds(templateConfig.get("rules"));
+        if (ruleIds.isEmpty()) {
+            return CompiledRuleSet.Evaluation.NONE;
+        }
+
+        CompiledRuleSet.Evaluation evaluation = rules.evaluate(ruleIds, content);
+        if (!evaluation.getOutcomes().isEmpty()) {
+            keywordScanTimer.record(evaluation.getKeywordScanNanos(), TimeUnit.NANOSECONDS);
+            for (CompiledRuleSet.RuleOutcome outcome : evaluation.getOutcomes()) {
+                ruleTimers.computeIfAbsent(outcome.getRuleId(), ruleId -> Timer.builder("audit.rules.evaluation")
+                        .tag("rule", ruleId)
+                        .register(meterRegistry))
+                        .record(outcome.getNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        return evaluation;
+    }
+
+    /**
+     * The REJECT verdict when a REJECT rule matched, or null if the text still needs the AI service.
+     */
+    public AuditResult rejectResult(String content, CompiledRuleSet.Evaluation evaluation) {
+        if (!CompiledRuleSet.ACTION_REJECT.equals(evaluation.getDecision())) {
+            return null;
+        }
+        rejected.increment();
+
+        List<String> labels = new ArrayList<>();
+        for (CompiledRuleSet.RuleOutcome outcome : evaluation.getOutcomes()) {
+            if (outcome.isDecisive() && CompiledRuleSet.ACTION_REJECT.equals(outcome.getAction())) {
+                labels.add(outcome.getLabel() != null ? outcome.getLabel() : outcome.getRuleId());
+            }
+        }
+
+        AuditResult result = new AuditResult();
+        result.setContentHash(DigestUtils.sha256Hex(content));
+        result.setContentType("TEXT");
+        result.setIsViolation(true);
+        result.setConfidence(1.0);
+        result.setCategories(evaluation.getCategories());
+        result.setReason("Matched audit rules: " + String.join(", ", labels));
+        result.setStatus("REJECT");
+        result.setRuleResults(evaluation.toRuleResults());
+        result.setTimestamp(System.currentTimeMillis());
+        return result;
+    }
+
+    /**
+     * Attach the matched rules to an AI verdict, turning a PASS into REVIEW when a REVIEW or
+     * WARN rule matched.
+     */
+    public void applyToVerdict(AuditResult result, CompiledRuleSet.Evaluation evaluation) {
+        String decision = evaluation.getDecision();
+        if (decision == null) {
+            return;
+        }
+        result.setRuleResults(evaluation.toRuleResults());
+        if ("PASS".equals(result.getStatus())) {
+            downgraded.increment();
+            result.setStatus("REVIEW");
+            result.setReason((result.getReason() != null ? result.getReason() + " " : "")
+                    + "(" + decision + " rules matched: " + String.join(", ", evaluation.getCategories()) + ")");
+        }
+    }
+
+    /**
+     * Recompile the rules if audit_rules changed since the last load.
+     *
+     * @return true if new rules were loaded
+     */
+    public boolean reload() {
+        String signature = auditRuleRepository.signature();
+        if (Objects.equals(signature, loadedSignature)) {
+            return false;
+        }
+        CompiledRuleSet compiled = CompiledRuleSet.compile(auditRuleRepository.findActive());
+        for (String problem : compiled.getProblems()) {
+            log.warn("[RuleEngine] {}", problem);
+        }
+        rules = compiled;
+        loadedSignature = signature;
+        log.info("[RuleEngine] Loaded {} audit rules", compiled.size());
+        return true;
+    }
+
+    private void reloadSafely() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // Keep the current rules, the next poll tries again
+            log.error("[RuleEngine] Failed to load audit rules: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rule IDs from a template's rules field: a list of IDs (or of rule objects with an ID),
+     * or the same as a JSON string.
+     */
+    private static List<String> ruleIds(Object rules) {
+        if (rules instanceof String) {
+            try {
+                rules = JSON.parse((String) rules);
+            } catch (Exception e) {
+                return Collections.emptyList();
+            }
+        }
+        if (!(rules instanceof Collection)) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>();
+        for (Object rule : (Collection<?>) rules) {
+            Object id = rule instanceof Map ? firstNonNull(((Map<?, ?>) rule).get("ruleId"), ((Map<?, ?>) rule).get("rule_id")) : rule;
+            if (id != null) {
+                ids.add(id.toString());
+            }
+        }
+        return ids;
+    }
+
+    private static Object firstNonNull(Object first, Object second) {
+        return first != null ? first : second;
+    }
+}
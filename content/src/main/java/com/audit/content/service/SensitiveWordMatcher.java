@@ -0,0 +1,359 @@
+package com.audit.content.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable Aho-Corasick automaton over the sensitive word list.
+ * States, transitions and outputs live in flat primitive arrays: root transitions are a direct
+ * lookup table, other states keep their outgoing characters sorted for a binary search. Each
+ * state carries the merged output of its suffix chain (category bitmask, highest level, word
+ * count), so a scan is one pass over the text that allocates nothing unless something matched.
+ * Matching is case-insensitive and, like the old keyword check, on substrings. Callers that need
+ * to know which words matched (the rule engine's keyword conditions) use the visitor scan.
+ */
+public final class SensitiveWordMatcher {
+
+    public static final int LEVEL_LOW = 0;
+    public static final int LEVEL_MEDIUM = 1;
+    public static final int LEVEL_HIGH = 2;
+
+    private static final String[] LEVEL_NAMES = {"LOW", "MEDIUM", "HIGH"};
+    private static final int MAX_CATEGORIES = 32;
+
+    private final int[] rootNext;
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    private final int[] outCategories;
+    private final int[] outLevel;
+    private final int[] outCount;
+    private final int[] wordStart;
+    private final int[] wordIds;
+    private final int[] dictLink;
+    private final String[] categoryNames;
+    private final int wordCount;
+
+    private SensitiveWordMatcher(int[] rootNext, int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] fail,
+                                 int[] outCategories, int[] outLevel, int[] outCount, int[] wordStart, int[] wordIds,
+                                 int[] dictLink, String[] categoryNames, int wordCount) {
+        this.rootNext = rootNext;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outCategories = outCategories;
+        this.outLevel = outLevel;
+        this.outCount = outCount;
+        this.wordStart = wordStart;
+        this.wordIds = wordIds;
+        this.dictLink = dictLink;
+        this.categoryNames = categoryNames;
+        this.wordCount = wordCount;
+    }
+
+    public static SensitiveWordMatcher empty() {
+        return build(Collections.emptyList());
+    }
+
+    /**
+     * Compile the given words. Duplicates (case-insensitive) are merged, keeping every category
+     * and the highest level.
+     */
+    public static SensitiveWordMatcher build(List<Word> words) {
+        // Trie with per-state child maps; only used while building
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> ownCategories = new ArrayList<>();
+        List<Integer> ownLevel = new ArrayList<>();
+        List<List<Integer>> ownWords = new ArrayList<>();
+        children.add(new HashMap<>());
+        ownCategories.add(0);
+        ownLevel.add(-1);
+        ownWords.add(null);
+
+        List<String> categories = new ArrayList<>();
+        int distinctWords = 0;
+        for (int index = 0; index < words.size(); index++) {
+            Word word = words.get(index);
+            if (word.text == null || word.text.isEmpty()) {
+                continue;
+            }
+            int category = categories.indexOf(word.category);
+            if (category < 0) {
+                if (categories.size() == MAX_CATEGORIES) {
+                    throw new IllegalArgumentException("More than " + MAX_CATEGORIES + " sensitive word categories");
+                }
+                categories.add(word.category);
+                category = categories.size() - 1;
+            }
+
+            int state = 0;
+            for (int i = 0; i < word.text.length(); i++) {
+                char c = Character.toLowerCase(word.text.charAt(i));
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(c, next);
+                    children.add(new HashMap<>());
+                    ownCategories.add(0);
+                    ownLevel.add(-1);
+                    ownWords.add(null);
+                }
+                state = next;
+            }
+            if (ownLevel.get(state) < 0) {
+                distinctWords++;
+            }
+            ownCategories.set(state, ownCategories.get(state) | (1 << category));
+            ownLevel.set(state, Math.max(ownLevel.get(state), word.level));
+            if (ownWords.get(state) == null) {
+                ownWords.set(state, new ArrayList<>(1));
+            }
+            ownWords.get(state).add(index);
+        }
+
+        // Flatten transitions
+        int states = children.size();
+        int[] rootNext = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(rootNext, -1);
+        int[] edgeStart = new int[states + 1];
+        int edges = 0;
+        for (int s = 0; s < states; s++) {
+            edgeStart[s] = edges;
+            edges += children.get(s).size();
+        }
+        edgeStart[states] = edges;
+        char[] edgeChars = new char[edges];
+        int[] edgeTargets = new int[edges];
+        for (int s = 0; s < states; s++) {
+            List<Map.Entry<Character, Integer>> sorted = new ArrayList<>(children.get(s).entrySet());
+            sorted.sort(Map.Entry.comparingByKey());
+            int offset = edgeStart[s];
+            for (Map.Entry<Character, Integer> edge : sorted) {
+                edgeChars[offset] = edge.getKey();
+                edgeTargets[offset] = edge.getValue();
+                offset++;
+                if (s == 0) {
+                    rootNext[edge.getKey()] = edge.getValue();
+                }
+            }
+        }
+
+        // Input words ending in each state
+        int[] wordStart = new int[states + 1];
+        int totalWords = 0;
+        for (int s = 0; s < states; s++) {
+            wordStart[s] = totalWords;
+            totalWords += ownWords.get(s) != null ? ownWords.get(s).size() : 0;
+        }
+        wordStart[states] = totalWords;
+        int[] wordIds = new int[totalWords];
+        for (int s = 0; s < states; s++) {
+            if (ownWords.get(s) != null) {
+                for (int i = 0; i < ownWords.get(s).size(); i++) {
+                    wordIds[wordStart[s] + i] = ownWords.get(s).get(i);
+                }
+            }
+        }
+
+        // Failure links and merged outputs, breadth first so a state's fail target is done before it
+        int[] fail = new int[states];
+        int[] outCategories = new int[states];
+        int[] outLevel = new int[states];
+        int[] outCount = new int[states];
+        // Nearest proper suffix state that ends a word, 0 if none
+        int[] dictLink = new int[states];
+        outLevel[0] = -1;
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            int child = edgeTargets[e];
+            fail[child] = 0;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            int f = fail[s];
+            boolean terminal = ownLevel.get(s) >= 0;
+            outCategories[s] = ownCategories.get(s) | outCategories[f];
+            outLevel[s] = Math.max(ownLevel.get(s), outLevel[f]);
+            outCount[s] = (terminal ? 1 : 0) + outCount[f];
+            dictLink[s] = f != 0 && ownLevel.get(f) >= 0 ? f : dictLink[f];
+
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                char c = edgeChars[e];
+                int child = edgeTargets[e];
+                int target = f;
+                int next;
+                while ((next = step(target, c, rootNext, edgeStart, edgeChars, edgeTargets)) < 0 && target != 0) {
+                    target = fail[target];
+                }
+                fail[child] = next >= 0 && next != child ? next : 0;
+                queue[tail++] = child;
+            }
+        }
+
+        return new SensitiveWordMatcher(rootNext, edgeStart, edgeChars, edgeTargets, fail,
+                outCategories, outLevel, outCount, wordStart, wordIds, dictLink, categories.toArray(new String[0]), distinctWords);
+    }
+
+    /**
+     * Scan the text. Returns {@link Match#NONE} when no word occurs.
+     */
+    public Match scan(CharSequence text) {
+        if (text == null || wordCount == 0) {
+            return Match.NONE;
+        }
+        int state = 0;
+        int categories = 0;
+        int level = -1;
+        int hits = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = step(state, c, rootNext, edgeStart, edgeChars, edgeTargets)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next >= 0 ? next : 0;
+            if (outCount[state] > 0) {
+                categories |= outCategories[state];
+                level = Math.max(level, outLevel[state]);
+                hits += outCount[state];
+            }
+        }
+        return hits == 0 ? Match.NONE : new Match(categoryNames, categories, level, hits);
+    }
+
+    /**
+     * Scan the text and report every occurrence: the index of the word in the list the matcher was
+     * built from, and the text index just past its end.
+     */
+    public void scan(CharSequence text, WordVisitor visitor) {
+        if (text == null || wordCount == 0) {
+            return;
+        }
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = step(state, c, rootNext, edgeStart, edgeChars, edgeTargets)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next >= 0 ? next : 0;
+            if (outCount[state] == 0) {
+                continue;
+            }
+            for (int t = wordStart[state] < wordStart[state + 1] ? state : dictLink[state]; t != 0; t = dictLink[t]) {
+                for (int w = wordStart[t]; w < wordStart[t + 1]; w++) {
+                    visitor.found(wordIds[w], i + 1);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return wordCount;
+    }
+
+    private static int step(int state, char c, int[] rootNext, int[] edgeStart, char[] edgeChars, int[] edgeTargets) {
+        if (state == 0) {
+            return rootNext[c];
+        }
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Level name to level constant; unknown or missing levels count as MEDIUM, like the column default.
+     */
+    public static int parseLevel(String level) {
+        if (level != null) {
+            for (int i = 0; i < LEVEL_NAMES.length; i++) {
+                if (LEVEL_NAMES[i].equalsIgnoreCase(level.trim())) {
+                    return i;
+                }
+            }
+        }
+        return LEVEL_MEDIUM;
+    }
+
+    @FunctionalInterface
+    public interface WordVisitor {
+        void found(int wordIndex, int end);
+    }
+
+    public static final class Word {
+        private final String text;
+        private final String category;
+        private final int level;
+
+        public Word(String text, String category, int level) {
+            this.text = text;
+            this.category = category;
+            this.level = level;
+        }
+    }
+
+    /**
+     * Summary of the words found in one text: their categories, the highest level and how many occurred.
+     */
+    public static final class Match {
+        public static final Match NONE = new Match(new String[0], 0, -1, 0);
+
+        private final String[] categoryNames;
+        private final int categoryMask;
+        private final int level;
+        private final int hits;
+
+        private Match(String[] categoryNames, int categoryMask, int level, int hits) {
+            this.categoryNames = categoryNames;
+            this.categoryMask = categoryMask;
+            this.level = level;
+            this.hits = hits;
+        }
+
+        public boolean isEmpty() {
+            return hits == 0;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public String getLevelName() {
+            return level >= 0 ? LEVEL_NAMES[level] : null;
+        }
+
+        public int getHits() {
+            return hits;
+        }
+
+        public List<String> getCategories() {
+            List<String> names = new ArrayList<>(Integer.bitCount(categoryMask));
+            for (int i = 0; i < categoryNames.length; i++) {
+                if ((categoryMask & (1 << i)) != 0) {
+                    names.add(categoryNames[i]);
+                }
+            }
+            return names;
+        }
+    }
+}
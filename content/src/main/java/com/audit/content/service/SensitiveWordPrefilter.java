@@ -0,0 +1,137 @@
+package com.audit.content.service;
+
+import com.audit.content.dto.AuditResult;
+import com.audit.content.repository.SensitiveWordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensitive word prefilter for text audits, compiled from the sensitive_words table.
+ * Texts containing a word at or above the reject level are rejected without calling the AI
+ * service; lower-level hits only add their categories to the AI verdict. The table is polled
+ * for changes and a new automaton is swapped in when its contents differ.
+ */
+@Component
+public class SensitiveWordPrefilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SensitiveWordPrefilter.class);
+
+    @Autowired
+    private SensitiveWordRepository sensitiveWordRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.prefilter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.prefilter.reject-level:HIGH}")
+    private String rejectLevel;
+
+    @Value("${audit.prefilter.reload-interval-seconds:30}")
+    private long reloadIntervalSeconds;
+
+    private volatile SensitiveWordMatcher matcher = SensitiveWordMatcher.empty();
+    private volatile String loadedSignature;
+    private int rejectAt;
+    private ScheduledExecutorService reloader;
+
+    private Counter rejected;
+    private Counter tagged;
+
+    @PostConstruct
+    public void init() {
+        rejectAt = SensitiveWordMatcher.parseLevel(rejectLevel);
+        rejected = Counter.builder("audit.prefilter.matches").tag("action", "reject").register(meterRegistry);
+        tagged = Counter.builder("audit.prefilter.matches").tag("action", "tag").register(meterRegistry);
+        Gauge.builder("audit.prefilter.words", this, prefilter -> prefilter.matcher.size()).register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+
+        reloadSafely();
+        reloader = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("sensitive-word-reload-"));
+        reloader.scheduleWithFixedDelay(this::reloadSafely, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * Words found in the text; {@link SensitiveWordMatcher.Match#NONE} when disabled.
+     */
+    public SensitiveWordMatcher.Match scan(String content) {
+        return enabled ? matcher.scan(content) : SensitiveWordMatcher.Match.NONE;
+    }
+
+    /**
+     * The REJECT verdict for a match at or above the reject level, or null if the text
+     * still needs the AI service.
+     */
+    public AuditResult rejectResult(String content, SensitiveWordMatcher.Match match) {
+        if (match.isEmpty()) {
+            return null;
+        }
+        if (match.getLevel() < rejectAt) {
+            tagged.increment();
+            return null;
+        }
+        rejected.increment();
+
+        AuditResult result = new AuditResult();
+        result.setContentHash(DigestUtils.sha256Hex(content));
+        result.setContentType("TEXT");
+        result.setIsViolation(true);
+        result.setConfidence(1.0);
+        result.setCategories(match.getCategories());
+        result.setReason("Contains " + match.getLevelName() + " level sensitive words: " + String.join(", ", match.getCategories()));
+        result.setStatus("REJECT");
+        result.setTimestamp(System.currentTimeMillis());
+        return result;
+    }
+
+    /**
+     * Rebuild the automaton if sensitive_words changed since the last load.
+     *
+     * @return true if a new word list was loaded
+     */
+    public boolean reload() {
+        String signature = sensitiveWordRepository.signature();
+        if (Objects.equals(signature, loadedSignature)) {
+            return false;
+        }
+        List<SensitiveWordMatcher.Word> words = sensitiveWordRepository.findAll();
+        matcher = SensitiveWordMatcher.build(words);
+        loadedSignature = signature;
+        log.info("[SensitiveWordPrefilter] Loaded {} sensitive words", matcher.size());
+        return true;
+    }
+
+    private void reloadSafely() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // Keep the current automaton, the next poll tries again
+            log.error("[SensitiveWordPrefilter] Failed to load sensitive words: {}", e.getMessage());
+        }
+    }
+}
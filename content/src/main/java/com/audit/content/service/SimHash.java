@@ -0,0 +1,82 @@
+package com.audit.content.service;
+
+import java.text.Normalizer;
+
+/**
+ * 64-bit SimHash of a text for near-duplicate detection.
+ * The text is normalized first (NFKC, lower case, every digit mapped to 0, anything that is not
+ * a letter or digit dropped) so that changed emoji, punctuation, whitespace or phone number
+ * digits do not change the input at all. The features are the character trigrams of the
+ * normalized text, which also works for languages without spaces between words. Texts that
+ * differ in a few trigrams end up a few bits apart.
+ */
+public final class SimHash {
+
+    private static final int SHINGLE = 3;
+
+    private SimHash() {
+    }
+
+    public static String normalize(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        StringBuilder normalized = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isDigit(codePoint)) {
+                normalized.append('0');
+            } else if (Character.isLetter(codePoint)) {
+                normalized.appendCodePoint(Character.toLowerCase(codePoint));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * SimHash of an already normalized text.
+     */
+    public static long of(String normalized) {
+        int[] weights = new int[64];
+        if (normalized.length() <= SHINGLE) {
+            add(weights, hash(normalized, 0, normalized.length()));
+        } else {
+            for (int i = 0; i + SHINGLE <= normalized.length(); i++) {
+                add(weights, hash(normalized, i, i + SHINGLE));
+            }
+        }
+        long simhash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simhash |= 1L << bit;
+            }
+        }
+        return simhash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static void add(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((hash >>> bit) & 1) != 0 ? 1 : -1;
+        }
+    }
+
+    /**
+     * FNV-1a over the chars, finished with the MurmurHash3 mixer so every bit depends on every char.
+     */
+    private static long hash(String text, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,109 @@
+package com.audit.content.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * In-memory LSH index of 64-bit similarity hashes ({@link SimHash} of texts, {@link ImageHash}
+ * of images) for finding values stored under a near-identical input.
+ * The 64 bits are cut into maxDistance + 1 bands; two hashes at most maxDistance bits apart
+ * must agree on at least one whole band, so looking up the bucket of every band finds all such
+ * candidates without scanning. Each bucket keeps the newest entry only, and buckets are bounded
+ * and expire. Hashes are only compared within the same scope (e.g. the template fingerprint).
+ */
+public final class SimHashIndex<V> {
+
+    private final int maxDistance;
+    private final int bands;
+    private final Cache<String, Entry<V>> buckets;
+
+    public SimHashIndex(int maxDistance, long maxEntries, Duration ttl) {
+        if (maxDistance < 0 || maxDistance > 15) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and 15");
+        }
+        this.maxDistance = maxDistance;
+        this.bands = maxDistance + 1;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxEntries * bands)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * The closest stored entry within maxDistance bits in the same scope, or null.
+     */
+    public Hit<V> find(long simhash, String scope) {
+        Hit<V> best = null;
+        for (String key : bucketKeys(simhash, scope)) {
+            Entry<V> entry = buckets.getIfPresent(key);
+            if (entry == null) {
+                continue;
+            }
+            int distance = SimHash.distance(simhash, entry.simhash);
+            if (distance <= maxDistance && (best == null || distance < best.distance)) {
+                best = new Hit<>(entry.value, distance);
+            }
+        }
+        return best;
+    }
+
+    public void put(long simhash, String scope, V value) {
+        Entry<V> entry = new Entry<>(simhash, value);
+        for (String key : bucketKeys(simhash, scope)) {
+            buckets.put(key, entry);
+        }
+    }
+
+    /**
+     * One key per band: scope, band number and the band's bits. Also used as the Redis key suffix.
+     */
+    public String[] bucketKeys(long simhash, String scope) {
+        String[] keys = new String[bands];
+        int width = 64 / bands;
+        for (int band = 0; band < bands; band++) {
+            int offset = band * width;
+            int bits = band == bands - 1 ? 64 - offset : width;
+            long value = bits == 64 ? simhash : (simhash >>> offset) & ((1L << bits) - 1);
+            keys[band] = scope + ":" + band + ":" + Long.toHexString(value);
+        }
+        return keys;
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    public long size() {
+        return buckets.estimatedSize() / bands;
+    }
+
+    private static final class Entry<V> {
+        private final long simhash;
+        private final V value;
+
+        private Entry(long simhash, V value) {
+            this.simhash = simhash;
+            this.value = value;
+        }
+    }
+
+    public static final class Hit<V> {
+        private final V value;
+        private final int distance;
+
+        public Hit(V value, int distance) {
+            this.value = value;
+            this.distance = distance;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces study record callbacks per study and sends them to the study service in chunks
+ * through the bulk update-from-audit endpoint, instead of one PUT per record.
+ * A study's buffer is flushed when it reaches chunk-size, on a short timer, and explicitly
+ * at the end of a batch request. If a bulk call fails, its records are sent one by one.
+ */
+@Component
+public class StudyCallbackBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(StudyCallbackBatcher.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Value("${study.service.url:http://audit-study:8085}")
+    private String studyServiceUrl;
+
+    @Value("${audit.study-callback.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${audit.study-callback.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    private final ConcurrentHashMap<Long, List<Map<String, Object>>> buffers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService timer;
+    private Counter bulkCalls;
+    private Counter singleCalls;
+    private Counter failedRecords;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("study-callback-"));
+        timer.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        bulkCalls = Counter.builder("audit.study.callback.calls").tag("mode", "bulk").register(meterRegistry);
+        singleCalls = Counter.builder("audit.study.callback.calls").tag("mode", "single").register(meterRegistry);
+        failedRecords = Counter.builder("audit.study.callback.failed").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdown();
+        flushAll();
+    }
+
+    /**
+     * Buffer an update for one study record; same fields as the single-record update map.
+     */
+    public void enqueue(Long studyId, Long recordId, Map<String, Object> update) {
+        Map<String, Object> item = new HashMap<>(update);
+        item.put("recordId", recordId);
+
+        List<Map<String, Object>> chunk = null;
+        synchronized (this) {
+            List<Map<String, Object>> buffer = buffers.computeIfAbsent(studyId, id -> new ArrayList<>());
+            buffer.add(item);
+            if (buffer.size() >= chunkSize) {
+                chunk = buffers.remove(studyId);
+            }
+        }
+        if (chunk != null) {
+            send(studyId, chunk);
+        }
+    }
+
+    /**
+     * Send everything buffered so far, e.g. when a batch request completes.
+     */
+    public void flushAll() {
+        for (Long studyId : buffers.keySet()) {
+            List<Map<String, Object>> chunk;
+            synchronized (this) {
+                chunk = buffers.remove(studyId);
+            }
+            if (chunk != null && !chunk.isEmpty()) {
+                send(studyId, chunk);
+            }
+        }
+    }
+
+    private void send(Long studyId, List<Map<String, Object>> items) {
+        try {
+            Map<String, Object> body = new HashMap<>();
+            body.put("items", items);
+            String url = studyServiceUrl + "/api/study/" + studyId + "/records:update-from-audit";
+            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PUT, jsonEntity(body), String.class);
+            bulkCalls.increment();
+
+            // The study service reports failures in the body with HTTP 200
+            Map<?, ?> apiResponse = JSON.parseObject(response.getBody(), Map.class);
+            Object code = apiResponse != null ? apiResponse.get("code") : null;
+            if (code == null || !"200".equals(code.toString())) {
+                throw new RuntimeException("Bulk update rejected: " + response.getBody());
+            }
+            log.debug("[StudyCallbackBatcher] Updated {} records of study {}", items.size(), studyId);
+        } catch (Exception e) {
+            log.warn("[StudyCallbackBatcher] Bulk update of {} records for study {} failed, sending individually: {}",
+                    items.size(), studyId, e.getMessage());
+            for (Map<String, Object> item : items) {
+                sendSingle(studyId, item);
+            }
+        }
+    }
+
+    private void sendSingle(Long studyId, Map<String, Object> item) {
+        Map<String, Object> update = new HashMap<>(item);
+        Object recordId = update.remove("recordId");
+        try {
+            String url = studyServiceUrl + "/api/study/" + studyId + "/records/" + recordId + "/update-from-audit";
+            restTemplate.exchange(url, HttpMethod.PUT, jsonEntity(update), String.class);
+            singleCalls.increment();
+        } catch (Exception e) {
+            failedRecords.increment();
+            log.error("[StudyCallbackBatcher] Failed to update study {} record {}: {}", studyId, recordId, e.getMessage());
+        }
+    }
+
+    private static HttpEntity<Map<String, Object>> jsonEntity(Map<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+}
@@ -0,0 +1,127 @@
+package com.audit.content.service;
+
+import com.alibaba.fastjson.JSON;
+import com.audit.content.dto.BatchAuditRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stable fingerprints of template configurations for verdict cache keys.
+ * The config is serialized canonically (keys sorted at every level, numbers normalized so 1, 1.0
+ * and 1.00 are equal) before hashing, so logically identical templates share cache entries no
+ * matter how the client ordered them. Fingerprints are memoized per config instance; batch
+ * requests first make items with equal templates share one instance, so a template used by the
+ * whole batch is hashed once.
+ */
+@Component
+public class TemplateFingerprinter {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Weak keys compare by identity, entries go away with the request that carried the config
+    private Cache<Map<String, Object>, String> byInstance;
+
+    @PostConstruct
+    public void init() {
+        byInstance = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(10_000)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byInstance, "template-fingerprint");
+    }
+
+    /**
+     * SHA-256 of the canonical form of the config. The config must not be modified afterwards.
+     */
+    public String fingerprint(Map<String, Object> templateConfig) {
+        return byInstance.get(templateConfig, config -> {
+            StringBuilder canonical = new StringBuilder(256);
+            writeCanonical(config, canonical);
+            return DigestUtils.sha256Hex(canonical.toString());
+        });
+    }
+
+    /**
+     * Make batch items with equal template configs point at the same map instance.
+     */
+    public void shareTemplates(List<BatchAuditRequest.AuditItem> items) {
+        if (items == null || items.size() < 2) {
+            return;
+        }
+        Map<Map<String, Object>, Map<String, Object>> distinct = new HashMap<>();
+        for (BatchAuditRequest.AuditItem item : items) {
+            Map<String, Object> config = item.getTemplateConfig();
+            if (config != null) {
+                item.setTemplateConfig(distinct.computeIfAbsent(config, key -> key));
+            }
+        }
+    }
+
+    private static void writeCanonical(Object value, StringBuilder out) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(JSON.toJSONString(entry.getKey())).append(':');
+                writeCanonical(entry.getValue(), out);
+            }
+            out.append('}');
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            Collection<?> elements = value instanceof Collection
+                    ? (Collection<?>) value : Arrays.asList((Object[]) value);
+            out.append('[');
+            boolean first = true;
+            for (Object element : elements) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeCanonical(element, out);
+            }
+            out.append(']');
+        } else if (value instanceof Number) {
+            out.append(normalize((Number) value));
+        } else if (value == null || value instanceof Boolean) {
+            out.append(value);
+        } else {
+            out.append(JSON.toJSONString(value.toString()));
+        }
+    }
+
+    private static String normalize(Number number) {
+        try {
+            BigDecimal decimal = number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+            if (decimal.signum() == 0) {
+                return "0";
+            }
+            return decimal.stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            // NaN and infinities
+            return number.toString();
+        }
+    }
+}
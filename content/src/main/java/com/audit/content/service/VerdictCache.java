@@ -0,0 +1,348 @@
+package com.audit.content.service;
+
+import com.audit.content.dto.AuditResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier verdict cache: a bounded in-process L1 in front of the shared Redis L2.
+ * L1 entries never outlive the 24h Redis entry they were loaded from, and
+ * invalidations are broadcast over Redis pub/sub so every replica drops its copy.
+ * Batches look up all their keys with one MGET ({@link #getAll}) and write their new verdicts
+ * through a short write-behind buffer that goes out as one pipeline of SETs with expiry
+ * ({@link #putDeferred}); single audits keep the plain GET and SET. A deferred verdict whose
+ * audit holds a cluster lease is written on its own before the lease is released.
+ */
+@Component
+public class VerdictCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(VerdictCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "audit:cache:invalidate";
+    public static final long REDIS_TTL_HOURS = 24;
+
+    private static final String INVALIDATE_ALL = "*";
+    private static final long REDIS_TTL_MILLIS = TimeUnit.HOURS.toMillis(REDIS_TTL_HOURS);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.cache.l1.max-weight-bytes:67108864}")
+    private long maxWeightBytes;
+
+    @Value("${audit.cache.l1.max-ttl-seconds:600}")
+    private long maxTtlSeconds;
+
+    @Value("${audit.cache.write-behind.max-entries:500}")
+    private int writeBehindMaxEntries;
+
+    @Value("${audit.cache.write-behind.flush-interval-ms:20}")
+    private long writeBehindFlushIntervalMs;
+
+    private Cache<String, Entry> l1;
+    private Counter l2Hits;
+    private Counter l2Misses;
+    private Counter l2Gets;
+    private Counter l2MultiGets;
+    private Counter l2Sets;
+    private Counter l2Pipelines;
+
+    // Verdicts waiting for the next pipelined write, by key
+    private Map<String, AuditResult> pendingWrites = new LinkedHashMap<>();
+    private ScheduledExecutorService writeTimer;
+
+    @PostConstruct
+    public void init() {
+        l1 = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, Entry entry) -> entry.weight)
+                .expireAfter(new AlignedExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "verdict-l1");
+        l2Hits = Counter.builder("audit.cache.l2.requests").tag("result", "hit").register(meterRegistry);
+        l2Misses = Counter.builder("audit.cache.l2.requests").tag("result", "miss").register(meterRegistry);
+        // Redis round trips by command
+        l2Gets = Counter.builder("audit.cache.l2.round-trips").tag("command", "get").register(meterRegistry);
+        l2MultiGets = Counter.builder("audit.cache.l2.round-trips").tag("command", "mget").register(meterRegistry);
+        l2Sets = Counter.builder("audit.cache.l2.round-trips").tag("command", "set").register(meterRegistry);
+        l2Pipelines = Counter.builder("audit.cache.l2.round-trips").tag("command", "set-pipeline").register(meterRegistry);
+        writeTimer = Executors.newSingleThreadScheduledExecutor(BatchAuditExecutor.namedThreads("verdict-write-"));
+        writeTimer.scheduleWithFixedDelay(this::flush, writeBehindFlushIntervalMs, writeBehindFlushIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeTimer.shutdown();
+        flush();
+    }
+
+    /**
+     * Look up a verdict, checking L1 first and falling back to Redis.
+     */
+    public AuditResult get(String key) {
+        Entry entry = l1.getIfPresent(key);
+        if (entry != null) {
+            return entry.result;
+        }
+
+        l2Gets.increment();
+        AuditResult result = (AuditResult) redisTemplate.opsForValue().get(key);
+        return loaded(key, result);
+    }
+
+    /**
+     * Look up a verdict in L1 only.
+     */
+    public AuditResult getLocal(String key) {
+        Entry entry = l1.getIfPresent(key);
+        return entry != null ? entry.result : null;
+    }
+
+    /**
+     * Look up many verdicts at once: L1 first, then the rest with a single MGET.
+     *
+     * @return every requested key, mapped to null where neither tier has a verdict
+     */
+    public Map<String, AuditResult> getAll(Collection<String> keys) {
+        Map<String, AuditResult> results = new HashMap<>(keys.size() * 2);
+        List<String> remote = new ArrayList<>();
+        for (String key : keys) {
+            Entry entry = l1.getIfPresent(key);
+            if (entry != null) {
+                results.put(key, entry.result);
+            } else if (!results.containsKey(key)) {
+                results.put(key, null);
+                remote.add(key);
+            }
+        }
+        if (remote.isEmpty()) {
+            return results;
+        }
+
+        l2MultiGets.increment();
+        List<Object> values = redisTemplate.opsForValue().multiGet(remote);
+        for (int i = 0; i < remote.size(); i++) {
+            Object value = values != null ? values.get(i) : null;
+            results.put(remote.get(i), loaded(remote.get(i), (AuditResult) value));
+        }
+        return results;
+    }
+
+    private AuditResult loaded(String key, AuditResult result) {
+        if (result == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+
+        // The Redis entry was written together with the result timestamp, so that is our expiry anchor
+        long writtenAt = result.getTimestamp() != null ? result.getTimestamp() : System.currentTimeMillis();
+        l1.put(key, new Entry(key, result, writtenAt + REDIS_TTL_MILLIS));
+        return result;
+    }
+
+    /**
+     * Store a verdict in both tiers (24 hours).
+     */
+    public void put(String key, AuditResult result) {
+        l2Sets.increment();
+        redisTemplate.opsForValue().set(key, result, REDIS_TTL_HOURS, TimeUnit.HOURS);
+        l1.put(key, new Entry(key, result, System.currentTimeMillis() + REDIS_TTL_MILLIS));
+    }
+
+    /**
+     * Store a verdict in L1 now and in Redis with the next pipelined write, which happens when
+     * max-entries verdicts are waiting, every flush-interval-ms, or on {@link #flush()}. Until
+     * then other replicas do not see the verdict.
+     */
+    public void putDeferred(String key, AuditResult result) {
+        l1.put(key, new Entry(key, result, System.currentTimeMillis() + REDIS_TTL_MILLIS));
+        Map<String, AuditResult> full = null;
+        synchronized (this) {
+            pendingWrites.put(key, result);
+            if (pendingWrites.size() >= writeBehindMaxEntries) {
+                full = pendingWrites;
+                pendingWrites = new LinkedHashMap<>();
+            }
+        }
+        if (full != null) {
+            writeQuietly(full);
+        }
+    }
+
+    /**
+     * Write all deferred verdicts to Redis now, e.g. when a batch request completes.
+     */
+    public void flush() {
+        Map<String, AuditResult> writes;
+        synchronized (this) {
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+            writes = pendingWrites;
+            pendingWrites = new LinkedHashMap<>();
+        }
+        writeQuietly(writes);
+    }
+
+    /**
+     * Write one deferred verdict to Redis now if it is still waiting, e.g. before other replicas
+     * are told that its audit has finished.
+     */
+    public void flush(String key) {
+        AuditResult pending;
+        synchronized (this) {
+            pending = pendingWrites.remove(key);
+        }
+        if (pending != null) {
+            l2Sets.increment();
+            redisTemplate.opsForValue().set(key, pending, REDIS_TTL_HOURS, TimeUnit.HOURS);
+        }
+    }
+
+    // One pipeline of SET key value EX ttl, so each write is atomic with its expiry
+    @SuppressWarnings("unchecked")
+    private void writeQuietly(Map<String, AuditResult> writes) {
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Expiration ttl = Expiration.from(REDIS_TTL_HOURS, TimeUnit.HOURS);
+        l2Pipelines.increment();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<String, AuditResult> write : writes.entrySet()) {
+                    connection.stringCommands().set(write.getKey().getBytes(StandardCharsets.UTF_8),
+                            valueSerializer.serialize(write.getValue()), ttl, RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // The verdicts stay in L1; Redis only loses them as a shared cache
+            log.warn("[VerdictCache] Deferred write of {} verdicts to Redis failed: {}", writes.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Remove a verdict from Redis and from the L1 of every replica.
+     */
+    public void invalidate(String key) {
+        synchronized (this) {
+            // Not to be resurrected by a deferred write
+            pendingWrites.remove(key);
+        }
+        redisTemplate.delete(key);
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, key);
+    }
+
+    /**
+     * Drop the L1 of every replica. Redis entries are left to expire on their own.
+     */
+    public void invalidateAllLocal() {
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, INVALIDATE_ALL);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object payload = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (payload == null) {
+            return;
+        }
+        String key = payload.toString();
+        if (INVALIDATE_ALL.equals(key)) {
+            log.info("[VerdictCache] Invalidating all L1 entries");
+            l1.invalidateAll();
+        } else {
+            log.debug("[VerdictCache] Invalidating L1 entry {}", key);
+            l1.invalidate(key);
+        }
+    }
+
+    public long localSize() {
+        return l1.estimatedSize();
+    }
+
+    private static final class Entry {
+        private final AuditResult result;
+        private final long expiresAtMillis;
+        private final int weight;
+
+        private Entry(String key, AuditResult result, long expiresAtMillis) {
+            this.result = result;
+            this.expiresAtMillis = expiresAtMillis;
+            this.weight = estimateWeight(key, result);
+        }
+
+        /**
+         * Rough retained size in bytes: object headers plus two bytes per string char.
+         */
+        private static int estimateWeight(String key, AuditResult result) {
+            int weight = 160 + key.length() * 2;
+            if (result.getReason() != null) {
+                weight += result.getReason().length() * 2;
+            }
+            if (result.getContentHash() != null) {
+                weight += result.getContentHash().length() * 2;
+            }
+            List<String> categories = result.getCategories();
+            if (categories != null) {
+                for (String category : categories) {
+                    weight += 48 + (category != null ? category.length() * 2 : 0);
+                }
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * Expire each L1 entry at the earlier of its Redis expiry and the configured L1 max TTL.
+     */
+    private final class AlignedExpiry implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            long untilRedisExpiry = TimeUnit.MILLISECONDS.toNanos(entry.expiresAtMillis - System.currentTimeMillis());
+            return Math.max(0, Math.min(untilRedisExpiry, TimeUnit.SECONDS.toNanos(maxTtlSeconds)));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.audit.content.config;
+
+import com.audit.content.dto.AuditResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares bytes per entry and encode/decode time of the binary AuditResult codec against the
+ * Jackson serializer it replaces, on a mix of verdicts shaped like the ones the audit pipeline
+ * caches. Kept with the test sources so it is compiled but never shipped. Run after
+ * mvn test-compile with:
+ * <pre>
+ * mvn -q dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) com.audit.content.config.AuditResultCodecBenchmark [entries] [rounds]
+ * </pre>
+ */
+public class AuditResultCodecBenchmark {
+
+    private static final String[] STATUSES = {"PASS", "REJECT", "REVIEW"};
+    private static final String[] CATEGORIES = {"advertising", "legitimate_business", "spam", "scam", "edge_case", "PORN", "VIOLENCE"};
+    private static final String[] REASONS = {
+            "Content is a legitimate business promotion without misleading claims.",
+            "Detected spam related content",
+            "The text promises guaranteed returns on an investment and asks the reader to transfer money to a "
+                    + "private account before a deadline. This matches the typical pattern of advance fee fraud: urgency, "
+                    + "unrealistic rewards and an unverifiable counterparty. The contact details point to a messaging "
+                    + "account rather than a registered company, and the same wording appears in previously rejected "
+                    + "submissions. Recommend rejection and manual review of the submitting account."
+    };
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        List<AuditResult> results = sample(entries, new Random(42));
+
+        run("jackson", new GenericJackson2JsonRedisSerializer(), results, rounds);
+        run("binary", new AuditResultRedisSerializer(true, 256, new SimpleMeterRegistry()), results, rounds);
+        run("no-zip", new AuditResultRedisSerializer(true, Integer.MAX_VALUE, new SimpleMeterRegistry()), results, rounds);
+    }
+
+    private static void run(String name, RedisSerializer<Object> serializer, List<AuditResult> results, int rounds) {
+        List<byte[]> encoded = new ArrayList<>(results.size());
+        long totalBytes = 0;
+        for (AuditResult result : results) {
+            byte[] bytes = serializer.serialize(result);
+            encoded.add(bytes);
+            totalBytes += bytes.length;
+        }
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        long sink = 0;
+        // The first half of the rounds warms up the JIT and is not counted
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (AuditResult result : results) {
+                sink += serializer.serialize(result).length;
+            }
+            long afterEncode = System.nanoTime();
+            for (byte[] bytes : encoded) {
+                sink += ((AuditResult) serializer.deserialize(bytes)).getTimestamp();
+            }
+            long decoded = System.nanoTime();
+            if (round >= rounds / 2) {
+                encodeNanos += afterEncode - start;
+                decodeNanos += decoded - afterEncode;
+            }
+        }
+        long measured = (long) (rounds - rounds / 2) * results.size();
+        System.out.printf("%-8s %8.1f bytes/entry %10.1f ns encode %10.1f ns decode  (%d)%n",
+                name, (double) totalBytes / results.size(), (double) encodeNanos / measured,
+                (double) decodeNanos / measured, sink & 1);
+    }
+
+    private static List<AuditResult> sample(int count, Random random) {
+        List<AuditResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AuditResult result = new AuditResult();
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            result.setContentHash(hex.toString());
+            result.setContentType(random.nextInt(10) == 0 ? "IMAGE" : "TEXT");
+            result.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            result.setIsViolation(!"PASS".equals(result.getStatus()));
+            result.setConfidence(random.nextDouble());
+            result.setReason(REASONS[random.nextInt(REASONS.length)]);
+            result.setCategories(random.nextBoolean()
+                    ? Arrays.asList(CATEGORIES[random.nextInt(CATEGORIES.length)], CATEGORIES[random.nextInt(CATEGORIES.length)])
+                    : Collections.singletonList(CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            result.setTimestamp(1_700_000_000_000L + random.nextInt(86_400_000));
+            if (random.nextInt(20) == 0) {
+                result.setDerived(true);
+                result.setDerivedFrom("audit:text:" + hex);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -77,10 +77,31 @@ export default {
   auditImage: (imageUrl: string) =>
     api.post('/content/audit/image', { image_url: imageUrl }),
   
+  // Audit against a stored template by reference; the content service caches the compiled template
+  auditTextWithTemplate: (content: string, templateId: string, templateVersion?: string, forceRefresh?: boolean) =>
+    api.post('/content/audit/text', { content, template_id: templateId, template_version: templateVersion, force_refresh: forceRefresh }),
+
   auditBatch: (items: Array<{ type: string; content: string }>) =>
     api.post('/content/audit/batch', { items }),
 
+  // Asynchronous batch audit jobs (for anything beyond a handful of items)
+  submitAuditJob: (items: Array<{ type: string; content: string; studyId?: number; recordId?: number; templateConfig?: any; templateId?: string; templateVersion?: string }>) =>
+    api.post('/content/audit/jobs', { items }),
+
+  getAuditJob: (jobId: number) =>
+    api.get(`/content/audit/jobs/${jobId}`),
+
+  getAuditJobResults: (jobId: number, afterIndex = -1, limit = 100) =>
+    api.get(`/content/audit/jobs/${jobId}/results`, { params: { afterIndex, limit } }),
+
+  cancelAuditJob: (jobId: number) =>
+    api.delete(`/content/audit/jobs/${jobId}`),
+
+
 
+  // Cursor-paginated history: pass nextCursor from the previous page to continue
+  getHistoryPage: (cursor?: string, size = 20, withTotal = true) =>
+    api.get('/content/history/cursor', { params: { cursor, size, withTotal } }),
 
   // Statistics
   getStatistics: () =>
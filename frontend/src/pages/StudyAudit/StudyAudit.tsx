@@ -315,33 +315,6 @@ const StudyAudit: React.FC = () => {
         }
         const rawTemplate = templateResp.data.data;
         
-        // Convert field names to match AI Service expectations
-        const templateConfig = {
-          id: rawTemplate.id,
-          template_id: rawTemplate.templateId,
-          name: rawTemplate.name,
-          version: rawTemplate.version,
-          description: rawTemplate.description,
-          content_type: rawTemplate.contentType,
-          industry: rawTemplate.industry,
-          is_active: rawTemplate.isActive,
-          is_default: rawTemplate.isDefault,
-          created_by: rawTemplate.createdBy,
-          created_at: rawTemplate.createdAt,
-          updated_at: rawTemplate.updatedAt,
-          text_rule_count: rawTemplate.textRuleCount,
-          image_rule_count: rawTemplate.imageRuleCount,
-          video_rule_count: rawTemplate.videoRuleCount,
-          supported_content_types: rawTemplate.supportedContentTypes,
-          applicable_regions: rawTemplate.applicableRegions,
-          success_rate: rawTemplate.successRate,
-          rules: rawTemplate.rules,
-          decision_logic: rawTemplate.decisionLogic,
-          ai_prompt_template: rawTemplate.aiPromptTemplate,
-          metadata: rawTemplate.metadata
-        };
-
-        
         // Process records one by one, implement real-time progress updates
         let processedCount = 0;
         const results = { pass: 0, reject: 0, review: 0 };
@@ -354,7 +327,7 @@ const StudyAudit: React.FC = () => {
             setAiCurrentRecord(i + 1);
             
             // Use auditText interface, consistent with Golden Set
-            const response = await api.auditText(record.content, templateConfig, forceRefresh);
+            const response = await api.auditTextWithTemplate(record.content, rawTemplate.templateId, rawTemplate.version, forceRefresh);
             
             if (response?.data?.code === 200) {
               const aiResult = response.data.data;
@@ -467,33 +440,6 @@ const StudyAudit: React.FC = () => {
       }
       const rawTemplate = templateResp.data.data;
       
-      // Convert field names to match AI Service expectations
-      const templateConfig = {
-        id: rawTemplate.id,
-        template_id: rawTemplate.templateId,
-        name: rawTemplate.name,
-        version: rawTemplate.version,
-        description: rawTemplate.description,
-        content_type: rawTemplate.contentType,
-        industry: rawTemplate.industry,
-        is_active: rawTemplate.isActive,
-        is_default: rawTemplate.isDefault,
-        created_by: rawTemplate.createdBy,
-        created_at: rawTemplate.createdAt,
-        updated_at: rawTemplate.updatedAt,
-        text_rule_count: rawTemplate.textRuleCount,
-        image_rule_count: rawTemplate.imageRuleCount,
-        video_rule_count: rawTemplate.videoRuleCount,
-        supported_content_types: rawTemplate.supportedContentTypes,
-        applicable_regions: rawTemplate.applicableRegions,
-        success_rate: rawTemplate.successRate,
-        rules: rawTemplate.rules,
-        decision_logic: rawTemplate.decisionLogic,
-        ai_prompt_template: rawTemplate.aiPromptTemplate,
-        metadata: rawTemplate.metadata
-      };
-
-      
       // Process selected records one by one
       let processedCount = 0;
       const results = { pass: 0, reject: 0, review: 0 };
@@ -506,7 +452,7 @@ const StudyAudit: React.FC = () => {
           setAiCurrentRecord(i + 1);
           
           // Use auditText interface, consistent with Golden Set
-          const response = await api.auditText(record.content, templateConfig, forceRefresh);
+          const response = await api.auditTextWithTemplate(record.content, rawTemplate.templateId, rawTemplate.version, forceRefresh);
           
                       if (response?.data?.code === 200) {
               const aiResult = response.data.data;
@@ -23,6 +23,11 @@ import java.util.Map;
 @Component
 public class AuthFilter implements GlobalFilter, Ordered {
 
+    // Exchange attribute holding the authenticated user's info, for filters that run after this one
+    public static final String USER_INFO_ATTRIBUTE = AuthFilter.class.getName() + ".userInfo";
+
+    private static final String USER_INFO_HEADER = "X-User-Info";
+
     @Autowired
     private StringRedisTemplate redisTemplate;
 
@@ -34,14 +39,17 @@ public class AuthFilter implements GlobalFilter, Ordered {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
+        // Only this filter may set the user header, a client-supplied one would pass for any user
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> headers.remove(USER_INFO_HEADER))
+                .build();
         ServerHttpResponse response = exchange.getResponse();
         
         String path = request.getURI().getPath();
         
         // Skip URLs that don't require authentication
         if (SKIP_AUTH_URLS.stream().anyMatch(path::startsWith)) {
-            return chain.filter(exchange);
+            return chain.filter(exchange.mutate().request(request).build());
         }
         
         String token = request.getHeaders().getFirst("Authorization");
@@ -58,8 +66,9 @@ public class AuthFilter implements GlobalFilter, Ordered {
         
         // Add user information to request header
         ServerHttpRequest mutatedRequest = request.mutate()
-                .header("X-User-Info", userInfo)
+                .header(USER_INFO_HEADER, userInfo)
                 .build();
+        exchange.getAttributes().put(USER_INFO_ATTRIBUTE, userInfo);
                 
         return chain.filter(exchange.mutate().request(mutatedRequest).build());
     }
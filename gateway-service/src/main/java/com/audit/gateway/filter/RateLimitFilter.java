@@ -0,0 +1,386 @@
+package com.audit.gateway.filter;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user token bucket limits on routes, checked after {@link AuthFilter} has resolved the user.
+ * Rules map a path pattern to a bucket of capacity tokens refilled at refill-per-second; each
+ * user (or client address, before login) has its own bucket per rule, and the longest matching
+ * pattern wins. Requests over the limit get 429 with Retry-After. Rules come from
+ * gateway.rate-limit.rules and can be changed at runtime in the Redis hash
+ * gateway:rate-limit:rules (field: pattern, value: capacity/refill-per-second, "off" to drop
+ * a rule), which every replica polls. Behind a proxy every anonymous request (login, register)
+ * would come from the proxy's address and share one bucket, so for requests from
+ * gateway.rate-limit.trusted-proxies the client address is taken from X-Forwarded-For: the
+ * rightmost entry that is not itself a trusted proxy, since entries left of it can be forged.
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String RULES_KEY = "gateway:rate-limit:rules";
+
+    // IP literals only, so a forged header can never cause a DNS lookup
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9a-fA-F:.]+");
+
+    @Autowired
+    private TokenBucketLimiter tokenBucketLimiter;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gateway.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    // pattern=capacity/refill-per-second, comma separated
+    @Value("${gateway.rate-limit.rules:}")
+    private String configuredRules;
+
+    @Value("${gateway.rate-limit.reload-interval-seconds:10}")
+    private long reloadIntervalSeconds;
+
+    // Addresses or CIDR ranges whose X-Forwarded-For is believed, comma separated
+    @Value("${gateway.rate-limit.trusted-proxies:127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16}")
+    private String trustedProxies;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile List<Rule> rules = new ArrayList<>();
+    private Map<String, String> lastOverrides = new LinkedHashMap<>();
+    private ScheduledExecutorService reloader;
+    private List<Cidr> trustedProxyRanges;
+
+    @PostConstruct
+    public void init() {
+        trustedProxyRanges = new ArrayList<>();
+        for (String range : trustedProxies.split(",")) {
+            Cidr cidr = Cidr.parse(range.trim());
+            if (cidr != null) {
+                trustedProxyRanges.add(cidr);
+            } else if (!range.trim().isEmpty()) {
+                log.warn("[RateLimitFilter] Ignoring trusted proxy {}", range);
+            }
+        }
+        reload();
+        reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.scheduleWithFixedDelay(() -> {
+            reload();
+            tokenBucketLimiter.evictIdle();
+        }, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        String path = exchange.getRequest().getURI().getPath();
+        Rule rule = match(path);
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+        return tokenBucketLimiter.tryAcquire(rule, clientOf(exchange))
+                .flatMap(retryAfterMs -> {
+                    if (retryAfterMs == 0) {
+                        counter(rule, "admitted").increment();
+                        return chain.filter(exchange);
+                    }
+                    counter(rule, "rejected").increment();
+                    return tooManyRequests(exchange.getResponse(), retryAfterMs);
+                });
+    }
+
+    /**
+     * Re-read the rules: configuration first, overridden per pattern by the Redis hash.
+     */
+    void reload() {
+        try {
+            Map<String, String> overrides = new LinkedHashMap<>();
+            redisTemplate.opsForHash().entries(RULES_KEY)
+                    .forEach((pattern, spec) -> overrides.put(pattern.toString(), spec.toString()));
+            lastOverrides = overrides;
+        } catch (RuntimeException e) {
+            // Keep the overrides of the last successful reload
+            log.warn("[RateLimitFilter] Cannot read rule overrides from Redis: {}", e.getMessage());
+        }
+        Map<String, String> specs = new LinkedHashMap<>(parseSpecs(configuredRules));
+        specs.putAll(lastOverrides);
+
+        List<Rule> loaded = new ArrayList<>();
+        specs.forEach((pattern, spec) -> {
+            if ("off".equalsIgnoreCase(spec.trim())) {
+                return;
+            }
+            try {
+                String[] parts = spec.trim().split("/");
+                int capacity = Integer.parseInt(parts[0].trim());
+                double refill = Double.parseDouble(parts[1].trim());
+                if (capacity > 0 && refill > 0) {
+                    loaded.add(new Rule(pattern, capacity, refill));
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // Reported below
+            }
+            log.warn("[RateLimitFilter] Ignoring rate limit rule {}={}", pattern, spec);
+        });
+        // Longest pattern first, it is the most specific
+        loaded.sort(Comparator.comparingInt((Rule rule) -> rule.getPattern().length()).reversed());
+
+        if (!loaded.equals(rules)) {
+            rules = loaded;
+            tokenBucketLimiter.clearLocal();
+            log.info("[RateLimitFilter] Rate limit rules: {}", loaded);
+        }
+    }
+
+    private Rule match(String path) {
+        for (Rule rule : rules) {
+            if (pathMatcher.match(rule.getPattern(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> parseSpecs(String value) {
+        Map<String, String> specs = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator > 0) {
+                specs.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+            }
+        }
+        return specs;
+    }
+
+    private String clientOf(ServerWebExchange exchange) {
+        // Set by AuthFilter for authenticated requests only; the request header can come from the client
+        String userInfo = exchange.getAttribute(AuthFilter.USER_INFO_ATTRIBUTE);
+        if (userInfo != null) {
+            try {
+                JSONObject user = JSON.parseObject(userInfo);
+                Object id = user.get("id") != null ? user.get("id") : user.get("userId");
+                if (id != null) {
+                    return "user:" + id;
+                }
+            } catch (RuntimeException e) {
+                // Fall back to the address
+            }
+        }
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        InetAddress client = address != null ? address.getAddress() : null;
+        if (client != null && isTrustedProxy(client)) {
+            List<String> forwarded = exchange.getRequest().getHeaders().get("X-Forwarded-For");
+            if (forwarded != null) {
+                client = forwardedClient(String.join(",", forwarded), client);
+            }
+        }
+        return "ip:" + (client != null ? client.getHostAddress() : "unknown");
+    }
+
+    /**
+     * The rightmost X-Forwarded-For entry that is not a trusted proxy, or the last valid one if all
+     * are; the proxy itself if the header holds nothing usable.
+     */
+    private InetAddress forwardedClient(String header, InetAddress proxy) {
+        InetAddress client = proxy;
+        String[] hops = header.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            InetAddress hop = parseLiteral(hops[i].trim());
+            if (hop == null) {
+                // Anything left of a malformed entry cannot be trusted
+                break;
+            }
+            client = hop;
+            if (!isTrustedProxy(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrustedProxy(InetAddress address) {
+        for (Cidr range : trustedProxyRanges) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static InetAddress parseLiteral(String value) {
+        if (value.isEmpty() || !IP_LITERAL.matcher(value).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(value);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private Counter counter(Rule rule, String result) {
+        return counters.computeIfAbsent(rule.getPattern() + "|" + result, key -> Counter.builder("gateway.rate-limit.requests")
+                .tag("route", rule.getPattern())
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    private Mono<Void> tooManyRequests(ServerHttpResponse response, long retryAfterMs) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().add("Retry-After", String.valueOf(Math.max(1, (retryAfterMs + 999) / 1000)));
+        response.getHeaders().add("Content-Type", "application/json;charset=UTF-8");
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 429);
+        result.put("message", "Too many requests, retry later");
+        result.put("data", null);
+
+        String body = JSON.toJSONString(result);
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    @Override
+    public int getOrder() {
+        // After AuthFilter, which resolves the user
+        return -90;
+    }
+
+    private static final class Cidr {
+        private final byte[] network;
+        private final int prefixLength;
+
+        private Cidr(byte[] network, int prefixLength) {
+            this.network = network;
+            this.prefixLength = prefixLength;
+        }
+
+        static Cidr parse(String value) {
+            int slash = value.indexOf('/');
+            InetAddress address = parseLiteral(slash >= 0 ? value.substring(0, slash) : value);
+            if (address == null) {
+                return null;
+            }
+            byte[] bytes = address.getAddress();
+            try {
+                int prefix = slash >= 0 ? Integer.parseInt(value.substring(slash + 1)) : bytes.length * 8;
+                return prefix >= 0 && prefix <= bytes.length * 8 ? new Cidr(bytes, prefix) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int full = prefixLength / 8;
+            for (int i = 0; i < full; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int rest = prefixLength % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - rest) & 0xFF;
+            return (bytes[full] & mask) == (network[full] & mask);
+        }
+    }
+
+    public static final class Rule {
+        private final String pattern;
+        private final int capacity;
+        private final double refillPerSecond;
+
+        Rule(String pattern, int capacity, double refillPerSecond) {
+            this.pattern = pattern;
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Rule)) {
+                return false;
+            }
+            Rule other = (Rule) o;
+            return pattern.equals(other.pattern) && capacity == other.capacity && refillPerSecond == other.refillPerSecond;
+        }
+
+        @Override
+        public int hashCode() {
+            return pattern.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return pattern + "=" + capacity + "/" + refillPerSecond;
+        }
+    }
+}
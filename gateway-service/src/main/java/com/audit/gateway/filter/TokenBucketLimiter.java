@@ -0,0 +1,168 @@
+package com.audit.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token buckets shared by all gateway replicas.
+ * The authoritative bucket lives in Redis and is updated by one Lua script, so concurrent
+ * requests on different replicas cannot both take the last token. To keep Redis off the path of
+ * most requests, a replica takes up to lease-size tokens at a time and spends them locally for at
+ * most lease-ms (unused ones are simply lost, which errs on the strict side), and once Redis
+ * says a bucket is empty the replica rejects it locally until the bucket has refilled. If Redis
+ * is unreachable requests are admitted.
+ */
+@Component
+public class TokenBucketLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketLimiter.class);
+
+    private static final String KEY_PREFIX = "gateway:rate-limit:bucket:";
+
+    // KEYS[1] bucket; ARGV capacity, refill per second, now (ms), tokens wanted. Returns {granted, retry after ms}
+    private static final RedisScript<List> TAKE_TOKENS = RedisScript.of(
+            "local capacity = tonumber(ARGV[1])\n" +
+            "local rate = tonumber(ARGV[2]) / 1000\n" +
+            "local now = tonumber(ARGV[3])\n" +
+            "local wanted = tonumber(ARGV[4])\n" +
+            "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+            "local tokens = tonumber(state[1]) or capacity\n" +
+            "local ts = tonumber(state[2]) or now\n" +
+            "if now > ts then\n" +
+            "  tokens = math.min(capacity, tokens + (now - ts) * rate)\n" +
+            "  ts = now\n" +
+            "end\n" +
+            "local granted = math.min(wanted, math.floor(tokens))\n" +
+            "tokens = tokens - granted\n" +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))\n" +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)\n" +
+            "local retry = 0\n" +
+            "if granted == 0 then retry = math.ceil((1 - tokens) / rate) end\n" +
+            "return {granted, retry}\n",
+            List.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gateway.rate-limit.lease-size:5}")
+    private int leaseSize;
+
+    @Value("${gateway.rate-limit.lease-ms:1000}")
+    private long leaseMs;
+
+    private final Map<String, LocalBucket> local = new ConcurrentHashMap<>();
+
+    private Counter localDecisions;
+    private Counter redisDecisions;
+    private Counter redisErrors;
+
+    @PostConstruct
+    public void init() {
+        localDecisions = Counter.builder("gateway.rate-limit.decisions").tag("source", "local").register(meterRegistry);
+        redisDecisions = Counter.builder("gateway.rate-limit.decisions").tag("source", "redis").register(meterRegistry);
+        redisErrors = Counter.builder("gateway.rate-limit.decisions").tag("source", "redis-error").register(meterRegistry);
+    }
+
+    /**
+     * Take one token from the bucket of a rule and client.
+     *
+     * @return 0 if the request is admitted, otherwise the milliseconds until a token is available
+     */
+    public Mono<Long> tryAcquire(RateLimitFilter.Rule rule, String client) {
+        String key = rule.getPattern() + "|" + client;
+        LocalBucket bucket = local.computeIfAbsent(key, k -> new LocalBucket());
+        long now = System.currentTimeMillis();
+        long localDecision = bucket.tryLocal(now);
+        if (localDecision >= 0) {
+            localDecisions.increment();
+            return Mono.just(localDecision);
+        }
+
+        // A lease only pays off for buckets that hold many tokens; small ones are taken one by one
+        int wanted = Math.max(1, Math.min(leaseSize, rule.getCapacity() / 10));
+        List<String> keys = Collections.singletonList(KEY_PREFIX + key);
+        return reactiveStringRedisTemplate.execute(TAKE_TOKENS, keys, Arrays.asList(
+                        String.valueOf(rule.getCapacity()), String.valueOf(rule.getRefillPerSecond()),
+                        String.valueOf(now), String.valueOf(wanted)))
+                .next()
+                .map(result -> {
+                    redisDecisions.increment();
+                    long granted = Long.parseLong(String.valueOf(result.get(0)));
+                    long retryAfterMs = Long.parseLong(String.valueOf(result.get(1)));
+                    return bucket.onRedisResult(granted, retryAfterMs, now, leaseMs);
+                })
+                .onErrorResume(e -> {
+                    redisErrors.increment();
+                    log.warn("[TokenBucketLimiter] Redis unavailable, admitting request: {}", e.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * Forget local leases and blocks, e.g. after the rules changed.
+     */
+    public void clearLocal() {
+        local.clear();
+    }
+
+    /**
+     * Drop local state that no longer affects any decision.
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        local.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    private static final class LocalBucket {
+        private int leased;
+        private long leaseExpiresAt;
+        private long blockedUntil;
+
+        /**
+         * 0 to admit from the lease, the remaining block in ms to reject, -1 if Redis has to decide.
+         */
+        synchronized long tryLocal(long now) {
+            if (now < blockedUntil) {
+                return blockedUntil - now;
+            }
+            if (leased > 0 && now < leaseExpiresAt) {
+                leased--;
+                return 0;
+            }
+            return -1;
+        }
+
+        synchronized long onRedisResult(long granted, long retryAfterMs, long now, long leaseMs) {
+            if (granted == 0) {
+                blockedUntil = now + retryAfterMs;
+                return Math.max(1, retryAfterMs);
+            }
+            // One token is for this request, the rest is leased
+            leased = (int) granted - 1;
+            leaseExpiresAt = now + leaseMs;
+            return 0;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now >= blockedUntil && (leased == 0 || now >= leaseExpiresAt);
+        }
+    }
+}
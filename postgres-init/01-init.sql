@@ -23,6 +23,7 @@ CREATE TABLE IF NOT EXISTS audit_records (
     content_text TEXT,
     content_url VARCHAR(500),
     content_hash VARCHAR(64) NOT NULL,
+    content_blob VARCHAR(64), -- Blob store hash of the full text or image; content_text is then a preview
     audit_result JSONB NOT NULL,
     confidence DECIMAL(5,4),
     status VARCHAR(20) NOT NULL CHECK (status IN ('PASS', 'REJECT', 'REVIEW')),
@@ -38,6 +39,38 @@ CREATE TABLE IF NOT EXISTS audit_records (
     FOREIGN KEY (reviewer_id) REFERENCES users(id)
 );
 
+-- Asynchronous audit jobs (content service job API)
+CREATE TABLE IF NOT EXISTS audit_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    user_info TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'CANCELLED')),
+    total_items INTEGER NOT NULL,
+    processed_items INTEGER NOT NULL DEFAULT 0,
+    failed_items INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
+-- Audit job queue: one row per item, claimed by workers with FOR UPDATE SKIP LOCKED
+CREATE TABLE IF NOT EXISTS audit_job_items (
+    id BIGSERIAL PRIMARY KEY,
+    job_id BIGINT NOT NULL,
+    item_index INTEGER NOT NULL,
+    item JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'RUNNING', 'DONE', 'ERROR', 'CANCELLED')),
+    result JSONB,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    locked_by VARCHAR(100),
+    locked_until TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (job_id, item_index),
+    FOREIGN KEY (job_id) REFERENCES audit_jobs(id) ON DELETE CASCADE
+);
+
 -- Audit rules table
 CREATE TABLE IF NOT EXISTS audit_rules (
     id BIGSERIAL PRIMARY KEY,
@@ -116,9 +149,10 @@ CREATE TABLE IF NOT EXISTS sensitive_words (
     UNIQUE(word)
 );
 
--- Audit statistics table
+-- Audit statistics table (per-user daily rollup, maintained by the content service)
 CREATE TABLE IF NOT EXISTS audit_statistics (
     id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
     date DATE NOT NULL,
     total_count INTEGER DEFAULT 0,
     pass_count INTEGER DEFAULT 0,
@@ -128,17 +162,21 @@ CREATE TABLE IF NOT EXISTS audit_statistics (
     image_count INTEGER DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    UNIQUE(date)
+    UNIQUE(user_id, date)
 );
 
 -- Create indexes
 CREATE INDEX IF NOT EXISTS idx_users_username ON users(username);
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_audit_records_user_id ON audit_records(user_id);
+CREATE INDEX IF NOT EXISTS idx_audit_records_user_created ON audit_records(user_id, created_at DESC, id DESC);
 CREATE INDEX IF NOT EXISTS idx_audit_records_content_hash ON audit_records(content_hash);
+CREATE INDEX IF NOT EXISTS idx_audit_records_content_blob ON audit_records(content_blob) WHERE content_blob IS NOT NULL;
 CREATE INDEX IF NOT EXISTS idx_audit_records_status ON audit_records(status);
 CREATE INDEX IF NOT EXISTS idx_audit_records_created_at ON audit_records(created_at);
 CREATE INDEX IF NOT EXISTS idx_audit_records_template_id ON audit_records(template_id);
+CREATE INDEX IF NOT EXISTS idx_audit_jobs_user_id ON audit_jobs(user_id);
+CREATE INDEX IF NOT EXISTS idx_audit_job_items_claimable ON audit_job_items(id) WHERE status IN ('PENDING', 'RUNNING');
 CREATE INDEX IF NOT EXISTS idx_audit_rules_rule_id ON audit_rules(rule_id);
 CREATE INDEX IF NOT EXISTS idx_audit_rules_category ON audit_rules(category);
 CREATE INDEX IF NOT EXISTS idx_audit_rules_severity ON audit_rules(severity);
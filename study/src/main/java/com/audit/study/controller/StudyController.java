@@ -3,6 +3,7 @@ package com.audit.study.controller;
 import com.audit.study.dto.ApiResponse;
 import com.audit.study.dto.StudyDto;
 
+import com.audit.study.dto.StudyRecordAuditUpdateRequest;
 import com.audit.study.dto.StudyRecordBatchRequest;
 import com.audit.study.dto.StudyRecordDto;
 
@@ -130,6 +131,20 @@ public class StudyController {
         }
     }
 
+    /**
+     * Update many Study records from audit results in one call (called by Content Service)
+     */
+    @PutMapping("/{studyId}/records:update-from-audit")
+    public ApiResponse<Integer> updateRecordsFromAudit(@PathVariable Long studyId,
+                                                       @RequestBody StudyRecordAuditUpdateRequest request) {
+        try {
+            int updated = studyService.updateRecordsFromAudit(studyId, request);
+            return ApiResponse.success(updated);
+        } catch (Exception e) {
+            return ApiResponse.error(500, e.getMessage());
+        }
+    }
+
     @PostMapping(path = "/{id}/records:upload", consumes = {"multipart/form-data"})
     public ApiResponse<StudyDto> uploadRecords(
             @RequestHeader("X-User-Info") String userInfo,
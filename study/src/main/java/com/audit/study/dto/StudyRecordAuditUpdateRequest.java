@@ -0,0 +1,76 @@
+package com.audit.study.dto;
+
+import java.util.List;
+
+/**
+ * Bulk form of the update-from-audit callback: one item per study record.
+ * Item fields mirror the single-record update map; null fields keep the current value.
+ */
+public class StudyRecordAuditUpdateRequest {
+    private List<Item> items;
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public static class Item {
+        private Long recordId;
+        private String status;
+        private Double confidence;
+        private String reason;
+        private String aiResult;
+        private String reviewedAt;
+
+        public Long getRecordId() {
+            return recordId;
+        }
+
+        public void setRecordId(Long recordId) {
+            this.recordId = recordId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public Double getConfidence() {
+            return confidence;
+        }
+
+        public void setConfidence(Double confidence) {
+            this.confidence = confidence;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public void setReason(String reason) {
+            this.reason = reason;
+        }
+
+        public String getAiResult() {
+            return aiResult;
+        }
+
+        public void setAiResult(String aiResult) {
+            this.aiResult = aiResult;
+        }
+
+        public String getReviewedAt() {
+            return reviewedAt;
+        }
+
+        public void setReviewedAt(String reviewedAt) {
+            this.reviewedAt = reviewedAt;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.audit.study.repository;
+
+import com.audit.study.dto.StudyRecordAuditUpdateRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Set-based writes to study_records that JPA would otherwise do one entity at a time.
+ */
+@Repository
+public class StudyRecordBulkRepository {
+
+    // One statement for the whole batch: the updates are passed as parallel arrays and joined
+    // to study_records by id. The study_id predicate doubles as the ownership check.
+    private static final String UPDATE_FROM_AUDIT_SQL =
+            "UPDATE study_records r SET " +
+            "status = COALESCE(u.status, r.status), " +
+            "confidence = COALESCE(u.confidence, r.confidence), " +
+            "reason = COALESCE(u.reason, r.reason), " +
+            "ai_result = COALESCE(u.ai_result, r.ai_result), " +
+            "reviewed_at = COALESCE(u.reviewed_at, now()), " +
+            "updated_at = now() " +
+            "FROM unnest(?::bigint[], ?::varchar[], ?::float8[], ?::text[], ?::text[], ?::timestamp[]) " +
+            "AS u(id, status, confidence, reason, ai_result, reviewed_at) " +
+            "WHERE r.id = u.id AND r.study_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Apply audit results to records of one study. Items must have distinct record ids
+     * and an already validated status (or null to keep the current one).
+     *
+     * @return number of records updated; records outside the study are skipped
+     */
+    public int updateFromAudit(Long studyId, List<StudyRecordAuditUpdateRequest.Item> items, List<Timestamp> reviewedAt) {
+        int size = items.size();
+        Long[] ids = new Long[size];
+        String[] statuses = new String[size];
+        Double[] confidences = new Double[size];
+        String[] reasons = new String[size];
+        String[] aiResults = new String[size];
+        Timestamp[] reviewedAts = reviewedAt.toArray(new Timestamp[0]);
+        for (int i = 0; i < size; i++) {
+            StudyRecordAuditUpdateRequest.Item item = items.get(i);
+            ids[i] = item.getRecordId();
+            statuses[i] = item.getStatus();
+            confidences[i] = item.getConfidence();
+            reasons[i] = item.getReason();
+            aiResults[i] = item.getAiResult();
+        }
+
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(UPDATE_FROM_AUDIT_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            ps.setArray(2, connection.createArrayOf("varchar", statuses));
+            ps.setArray(3, connection.createArrayOf("float8", confidences));
+            ps.setArray(4, connection.createArrayOf("text", reasons));
+            ps.setArray(5, connection.createArrayOf("text", aiResults));
+            ps.setArray(6, connection.createArrayOf("timestamp", reviewedAts));
+            ps.setLong(7, studyId);
+            return ps;
+        });
+    }
+}
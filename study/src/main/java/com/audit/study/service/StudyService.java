@@ -1,6 +1,7 @@
 package com.audit.study.service;
 
 import com.audit.study.dto.StudyDto;
+import com.audit.study.dto.StudyRecordAuditUpdateRequest;
 import com.audit.study.dto.StudyRecordBatchRequest;
 import com.audit.study.dto.StudyRecordDto;
 
@@ -8,12 +9,16 @@ import com.audit.study.entity.Study;
 import com.audit.study.entity.StudyRecord;
 import com.audit.study.repository.StudyRepository;
 import com.audit.study.repository.StudyRecordRepository;
+import com.audit.study.repository.StudyRecordBulkRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -29,6 +34,9 @@ public class StudyService {
     @Autowired
     private StudyRecordRepository studyRecordRepository;
     
+    @Autowired
+    private StudyRecordBulkRepository studyRecordBulkRepository;
+    
     public List<StudyDto> getStudies(String userInfo) {
         Long userId = extractUserId(userInfo);
         List<Study> studies = studyRepository.findByUserIdOrderByCreatedAtDesc(userId);
@@ -259,6 +267,60 @@ public class StudyService {
 
 
 
+    /**
+     * Apply a batch of audit results to records of one study in a single UPDATE (called by Content Service).
+     * Invalid values are ignored the same way as in updateRecordFromAudit.
+     *
+     * @return number of records updated
+     */
+    @Transactional
+    public int updateRecordsFromAudit(Long studyId, StudyRecordAuditUpdateRequest request) {
+        if (request == null || request.getItems() == null || request.getItems().isEmpty()) {
+            return 0;
+        }
+        
+        // Last update wins when a record appears more than once
+        Map<Long, StudyRecordAuditUpdateRequest.Item> byRecord = new LinkedHashMap<>();
+        for (StudyRecordAuditUpdateRequest.Item item : request.getItems()) {
+            if (item.getRecordId() == null) {
+                continue;
+            }
+            if (item.getStatus() != null) {
+                try {
+                    item.setStatus(StudyRecord.RecordStatus.valueOf(item.getStatus().toUpperCase()).name());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid status: " + item.getStatus() + ", keeping current status");
+                    item.setStatus(null);
+                }
+            }
+            byRecord.put(item.getRecordId(), item);
+        }
+        if (byRecord.isEmpty()) {
+            return 0;
+        }
+        
+        List<StudyRecordAuditUpdateRequest.Item> items = new ArrayList<>(byRecord.values());
+        List<Timestamp> reviewedAt = new ArrayList<>(items.size());
+        for (StudyRecordAuditUpdateRequest.Item item : items) {
+            Timestamp timestamp = null;
+            if (item.getReviewedAt() != null) {
+                try {
+                    timestamp = Timestamp.valueOf(java.time.LocalDateTime.parse(item.getReviewedAt()));
+                } catch (Exception e) {
+                    // Falls back to now() in the UPDATE, like the single-record path
+                }
+            }
+            reviewedAt.add(timestamp);
+        }
+        
+        int updated = studyRecordBulkRepository.updateFromAudit(studyId, items, reviewedAt);
+        if (updated < items.size()) {
+            System.err.println("Bulk audit update for study " + studyId + ": " + (items.size() - updated)
+                    + " of " + items.size() + " records not found in study");
+        }
+        return updated;
+    }
+
     @Transactional
     public StudyDto uploadRecords(String userInfo,
                                   Long studyId,
@@ -36,6 +36,17 @@ public class AuditTemplateController {
         }
     }
     
+    @GetMapping("/by-template-id/{templateId}")
+    public ApiResponse<AuditTemplateDto> getTemplateByTemplateId(@RequestHeader("X-User-Info") String userInfo,
+                                                               @PathVariable String templateId) {
+        try {
+            AuditTemplateDto template = templateService.getTemplateByTemplateId(userInfo, templateId);
+            return ApiResponse.success(template);
+        } catch (Exception e) {
+            return ApiResponse.error(500, e.getMessage());
+        }
+    }
+    
     @PostMapping
     public ApiResponse<AuditTemplateDto> createTemplate(@RequestHeader("X-User-Info") String userInfo,
                                                       @RequestBody AuditTemplateDto templateDto) {
@@ -27,6 +27,9 @@ public class AuditTemplateService {
     @Autowired
     private ApplicationContext applicationContext;
     
+    @Autowired
+    private TemplateChangePublisher templateChangePublisher;
+    
     public List<AuditTemplateDto> getTemplates(String userInfo) {
         @SuppressWarnings("unchecked")
         Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
@@ -69,6 +72,32 @@ public class AuditTemplateService {
         return convertToDto(template);
     }
     
+    /**
+     * Look up a template by its business ID (e.g. TPL-...), used by the content service
+     * for template-by-reference audits.
+     */
+    public AuditTemplateDto getTemplateByTemplateId(String userInfo, String templateId) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
+        
+        Object userIdObj = userMap.get("id");
+        if (userIdObj == null) {
+            throw new RuntimeException("Missing id in user info. Please clear browser storage and login again. User info: " + userInfo);
+        }
+        
+        Long userId = Long.valueOf(userIdObj.toString());
+        
+        AuditTemplate template = templateRepository.findByTemplateId(templateId)
+                .orElseThrow(() -> new RuntimeException("Template not found"));
+        
+        // Check permissions
+        if (!template.getCreatedBy().equals(userId)) {
+            throw new RuntimeException("Access denied");
+        }
+        
+        return convertToDto(template);
+    }
+    
     @Transactional
     public AuditTemplateDto createTemplate(String userInfo, AuditTemplateDto templateDto) {
         @SuppressWarnings("unchecked")
@@ -88,6 +117,7 @@ public class AuditTemplateService {
                     .ifPresent(existingDefault -> {
                         existingDefault.setIsDefault(false);
                         templateRepository.save(existingDefault);
+                        templateChangePublisher.templateChanged(existingDefault.getTemplateId());
                     });
         }
 
@@ -112,6 +142,7 @@ public class AuditTemplateService {
 
         // Save using Hibernate - let it handle JSONB conversion
         AuditTemplate saved = templateRepository.save(template);
+        templateChangePublisher.templateChanged(saved.getTemplateId());
         return convertToDto(saved);
     }
     
@@ -151,6 +182,7 @@ public class AuditTemplateService {
 
         // Save using Hibernate - let it handle JSONB conversion
         AuditTemplate updated = templateRepository.save(template);
+        templateChangePublisher.templateChanged(updated.getTemplateId());
         return convertToDto(updated);
     }
 
@@ -293,8 +325,10 @@ public class AuditTemplateService {
         }
         
         templateRepository.delete(template);
+        templateChangePublisher.templateChanged(templateIdStr);
     }
     
+    @Transactional
     public AuditTemplateDto setDefaultTemplate(String userInfo, Long templateId) {
         @SuppressWarnings("unchecked")
         Map<String, Object> userMap = JSON.parseObject(userInfo, Map.class);
@@ -320,11 +354,13 @@ public class AuditTemplateService {
                 .ifPresent(existingDefault -> {
                     existingDefault.setIsDefault(false);
                     templateRepository.save(existingDefault);
+                    templateChangePublisher.templateChanged(existingDefault.getTemplateId());
                 });
         
         // Set new default template
         template.setIsDefault(true);
         template = templateRepository.save(template);
+        templateChangePublisher.templateChanged(template.getTemplateId());
         
         return convertToDto(template);
     }
@@ -0,0 +1,52 @@
+package com.audit.template.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Announces template changes on Redis pub/sub, so services that cache compiled templates
+ * (the content service) drop their copy. The message is the business template ID.
+ */
+@Component
+public class TemplateChangePublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(TemplateChangePublisher.class);
+
+    public static final String CHANNEL = "audit:template:invalidate";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Publish the change once the current transaction commits, or right away outside one.
+     */
+    public void templateChanged(String templateId) {
+        if (templateId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(templateId);
+                }
+            });
+        } else {
+            publish(templateId);
+        }
+    }
+
+    private void publish(String templateId) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, templateId);
+        } catch (Exception e) {
+            // Subscribers also expire their copies on their own, so a lost message only delays the change
+            log.warn("[TemplateChangePublisher] Failed to publish change of template {}: {}", templateId, e.getMessage());
+        }
+    }
+}
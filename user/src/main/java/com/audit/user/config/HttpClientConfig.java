@@ -0,0 +1,114 @@
+package com.audit.user.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled {@link RestTemplate} for the user statistics page, which asks the study and template
+ * services for several counts per view. Connections are kept alive between views, with a small
+ * pool and short read timeout since these are quick lookups; see the content service for the
+ * same setup sized for AI traffic.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpClientConfig.class);
+
+    @Bean
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${audit.http.pool.max-total:50}") int maxTotal,
+            @Value("${audit.http.pool.max-per-route:10}") int maxPerRoute,
+            @Value("${audit.http.pool.routes:}") String routes,
+            @Value("${audit.http.pool.validate-after-inactivity-ms:2000}") int validateAfterInactivityMs) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(maxTotal);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        manager.setValidateAfterInactivity(validateAfterInactivityMs);
+
+        // host:port=max,host:port=max
+        for (String entry : routes.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                HttpRoute route = new HttpRoute(HttpHost.create(parts[0].trim()));
+                manager.setMaxPerRoute(route, Integer.parseInt(parts[1].trim()));
+                bindRouteMetrics(meterRegistry, manager, route, parts[0].trim());
+            } catch (IllegalArgumentException e) {
+                log.warn("[HttpClientConfig] Ignoring pool route '{}': {}", entry, e.getMessage());
+            }
+        }
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(manager, "shared").bindTo(meterRegistry);
+        return manager;
+    }
+
+    @Bean
+    public CloseableHttpClient httpClient(
+            PoolingHttpClientConnectionManager httpConnectionManager,
+            @Value("${audit.http.keep-alive-seconds:30}") long keepAliveSeconds,
+            @Value("${audit.http.pool.max-idle-seconds:30}") long maxIdleSeconds,
+            @Value("${audit.http.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${audit.http.read-timeout-ms:10000}") int readTimeoutMs,
+            @Value("${audit.http.connection-request-timeout-ms:2000}") int connectionRequestTimeoutMs) {
+        // Honour the server's Keep-Alive header, otherwise keep connections for keep-alive-seconds
+        ConnectionKeepAliveStrategy keepAlive = (response, context) -> {
+            long serverMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverMs > 0 ? serverMs : TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+        };
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setKeepAliveStrategy(keepAlive)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(maxIdleSeconds, TimeUnit.SECONDS)
+                .disableCookieManagement()
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private static void bindRouteMetrics(MeterRegistry meterRegistry, PoolingHttpClientConnectionManager manager,
+                                         HttpRoute route, String name) {
+        Gauge.builder("audit.http.pool.route.connections", manager, m -> m.getStats(route).getLeased())
+                .tag("route", name).tag("state", "leased").register(meterRegistry);
+        Gauge.builder("audit.http.pool.route.connections", manager, m -> m.getStats(route).getAvailable())
+                .tag("route", name).tag("state", "available").register(meterRegistry);
+        Gauge.builder("audit.http.pool.route.pending", manager, m -> m.getStats(route).getPending())
+                .tag("route", name).register(meterRegistry);
+        Gauge.builder("audit.http.pool.route.utilization", manager, m -> {
+                    int max = m.getStats(route).getMax();
+                    return max > 0 ? (double) m.getStats(route).getLeased() / max : 0;
+                })
+                .description("Leased connections as a fraction of the route's limit")
+                .tag("route", name).register(meterRegistry);
+    }
+}
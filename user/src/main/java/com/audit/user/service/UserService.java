@@ -37,6 +37,9 @@ public class UserService {
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private RestTemplate restTemplate;
+    
     public User register(RegisterRequest request) {
         // Check if username exists
         if (userRepository.findByUsername(request.getUsername()).isPresent()) {
@@ -237,8 +240,6 @@ public class UserService {
         
         try {
             // Call other services to get real statistics
-            RestTemplate restTemplate = new RestTemplate();
-            
             // Get studies created by user
             try {
                 String studyUrl = "http://audit-study:8085/api/study/user/" + user.getId() + "/count";